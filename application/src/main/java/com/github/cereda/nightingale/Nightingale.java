@@ -33,17 +33,20 @@
  */
 package com.github.cereda.nightingale;
 
-import com.github.cereda.nightingale.controller.LanguageController;
-import com.github.cereda.nightingale.controller.LoggingController;
+import com.github.cereda.nightingale.controller.ConfigurationController;
 import com.github.cereda.nightingale.model.NightingaleException;
+import com.github.cereda.nightingale.model.Batch;
 import com.github.cereda.nightingale.model.Configuration;
+import com.github.cereda.nightingale.model.Daemon;
 import com.github.cereda.nightingale.model.Directive;
 import com.github.cereda.nightingale.model.Extractor;
 import com.github.cereda.nightingale.model.Interpreter;
 import com.github.cereda.nightingale.model.Parser;
 import com.github.cereda.nightingale.model.StopWatch;
+import com.github.cereda.nightingale.model.Watcher;
 import com.github.cereda.nightingale.utils.DirectiveUtils;
 import com.github.cereda.nightingale.utils.DisplayUtils;
+import java.io.File;
 import java.util.List;
 
 /**
@@ -61,22 +64,13 @@ public class Nightingale {
      */
     public static void main(String[] args) {
 
-        // the first component to be initialized is the
-        // language controller; note that init() actually
-        // has no body at all, but it's a dirty maneuver to
-        // trigger the static class startup
-        LanguageController.init();
-        
-        // the second component to be initalized is the
-        // logging controller; note init() actually disables
-        // the logging, so early exceptions won't generate
-        // a lot of noise in the terminal
-        LoggingController.init();
-        
-        // print the nightingale logo in the terminal; I just
-        // hope people use this tool in a good terminal with
-        // fixed-width fonts, otherwise the logo will be messed
-        DisplayUtils.printLogo();
+        // note that nothing is initialized upfront here; the
+        // language controller, the file types and logback are
+        // all set up on their first use, and the logging starts
+        // silent by default, so quick executions like --help or
+        // --version do not pay for them (nor for groovy, yaml or
+        // xml, by the way); the logo itself is only printed once
+        // the command line arguments are parsed
 
         try {
 
@@ -89,18 +83,95 @@ public class Nightingale {
             
             // if we are here, either there was no configuration
             // file at all or we managed to load the settings; now,
-            // it's time to properly parse the command line arguments;
-            // this is done by creating a new instance of nightingale's
-            // command line parser and providing the string array to it
-            Parser parser = new Parser(args);
-
-            // now let's see if we are good to go; parse() will return
-            // a boolean value indicating if the provided arguments
-            // allow the tool to continue (we might reach some special
-            // flags as well, like --help or --version, which simply
-            // do their jobs and return false, since there's no point
-            // of continuing processing with such flags)
-            if (parser.parse()) {
+            // it's time to do the actual work
+            execute(args);
+
+        } catch (NightingaleException exception) {
+            
+            // something bad happened, so nightingale will print the proper
+            // exception and provide details on it, if available; the idea
+            // here is to propagate an exception throughout the whole
+            // application and catch it here instead of a local treatment
+            DisplayUtils.printException(exception);
+        }
+
+        // we are done here (with or without errors, that makes no difference
+        // at this point), so let's stop our stopwatch; now it's just an easy
+        // subtraction to be made (note that the values are internally
+        // represented as nanoseconds, but the result is printed as seconds)
+        StopWatch.stop();
+        
+        // the last command from nightingale; once the execution time is
+        // available, print it; note that this notification is suppressed
+        // when the command line parsing returns false as result (it makes
+        // no sense to print the execution time for a help message, I guess)
+        DisplayUtils.printTime();
+    }
+
+    /**
+     * Parses the provided command line arguments and processes the file (or
+     * the batch of files) accordingly. This method is also called by the
+     * daemon for every build requested by the thin client, in which case the
+     * application is already initialized and configured.
+     * @param args A string array containing all command line arguments.
+     * @return A boolean value indicating if the execution has succeeded.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static boolean execute(String[] args) throws NightingaleException {
+
+        // first, it's time to properly parse the command line arguments;
+        // this is done by creating a new instance of nightingale's
+        // command line parser and providing the string array to it
+        Parser parser = new Parser(args);
+
+        // now let's see if we are good to go; parse() will return
+        // a boolean value indicating if the provided arguments
+        // allow the tool to continue (we might reach some special
+        // flags as well, like --help or --version, which simply
+        // do their jobs and return false, since there's no point
+        // of continuing processing with such flags)
+        if (parser.parse()) {
+
+            // the daemon was requested, so this very instance
+            // stays around and serves builds requested by the
+            // thin client, until it is terminated
+            if ((Boolean) ConfigurationController.
+                    getInstance().
+                    get("execution.daemon")) {
+                Daemon daemon = new Daemon();
+                daemon.execute();
+                return true;
+            }
+
+            // the watch mode was requested, so the file is built
+            // once and then rebuilt whenever it (or any file its
+            // directives refer to) changes, until it is terminated
+            if ((Boolean) ConfigurationController.
+                    getInstance().
+                    get("execution.watch")) {
+                Watcher watcher = new Watcher();
+                return watcher.execute();
+            }
+
+            // more than one file was provided (or a directory, or
+            // a pattern), so we have a batch; each file goes through
+            // the very same steps described below, but they all share
+            // this very application instance, so rules are compiled
+            // once and the startup cost is paid only once as well
+            if (ConfigurationController.
+                    getInstance().
+                    contains("execution.references")) {
+                @SuppressWarnings("unchecked")
+                List<File> references = (List<File>)
+                        ConfigurationController.
+                                getInstance().
+                                get("execution.references");
+                StopWatch.start();
+                Batch batch = new Batch();
+                batch.setReferences(references);
+                return batch.execute();
+            } else {
 
                 // let's print the current file information; it is a
                 // basic display, just the file name, the size properly
@@ -110,14 +181,14 @@ public class Nightingale {
                 // either through the configuration file or manually
                 // in the command line)
                 DisplayUtils.printFileInformation();
-                
+            
                 // time to read the file and try to extract the directives;
                 // this class does a pretty good job on finding directives,
                 // including the multiline ones; it was a long awaited
                 // feature people were asking me to implement, so here
                 // it is!
                 Extractor extractor = new Extractor();
-                
+            
                 // extract() brings us a list of directives properly parsed
                 // and almost ready to be handled; note that no directives
                 // in the provided file will raise an exception; this is
@@ -125,7 +196,7 @@ public class Nightingale {
                 // (although it wouldn't be so difficult to write one,
                 // I decided not to take the risk)
                 List<Directive> directives = extractor.extract();
-                
+            
                 // once we have our nice list of directives, it is time to
                 // actually validate them (for example, we have a couple of
                 // keywords that cannot be used as directive parameters);
@@ -137,7 +208,7 @@ public class Nightingale {
                 // the final list of directives to be effectively processed
                 // by nightingale
                 directives = DirectiveUtils.validate(directives);
-                
+            
                 // nightingale features now a stopwatch, so we can see how
                 // much time has passed since everything started; start(),
                 // for obvious reasons, start the stopwatch and keeps track
@@ -146,17 +217,17 @@ public class Nightingale {
                 // (although timinig is not a serious business in here, it's
                 // just a cool addition)
                 StopWatch.start();
-                
+            
                 // this is surely the heart of nightingale; this class
                 // implements a powerful interpreter that will handle all
                 // rules and their corresponding tasks
                 Interpreter interpreter = new Interpreter();
-                
+            
                 // once we have this bad boy ready, let's provide the list
                 // of directives previously extracted and validated; it is
                 // like loading a cannon, I guess
                 interpreter.setDirectives(directives);
-                
+            
                 // time to shine, now the interpreter class will interpret
                 // one directive at a time, get the corresponding rule,
                 // set the parameters, evaluate it, get the tasks, run them,
@@ -164,29 +235,15 @@ public class Nightingale {
                 // nightingale will try to evaluate things progressively,
                 // so in case of an error, the previous tasks were already
                 // processed and potentially executed
-                interpreter.execute();
+                return interpreter.execute();
 
             }
-        } catch (NightingaleException exception) {
-            
-            // something bad happened, so nightingale will print the proper
-            // exception and provide details on it, if available; the idea
-            // here is to propagate an exception throughout the whole
-            // application and catch it here instead of a local treatment
-            DisplayUtils.printException(exception);
         }
 
-        // we are done here (with or without errors, that makes no difference
-        // at this point), so let's stop our stopwatch; now it's just an easy
-        // subtraction to be made (note that the values are internally
-        // represented as nanoseconds, but the result is printed as seconds)
-        StopWatch.stop();
-        
-        // the last command from nightingale; once the execution time is
-        // available, print it; note that this notification is suppressed
-        // when the command line parsing returns false as result (it makes
-        // no sense to print the execution time for a help message, I guess)
-        DisplayUtils.printTime();
+        // the parser returned false, so there was
+        // nothing to process at all (a help message,
+        // for instance), which is not an error
+        return true;
     }
 
 }
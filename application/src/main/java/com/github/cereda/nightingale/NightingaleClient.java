@@ -0,0 +1,175 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+
+/**
+ * Thin client class. This class forwards the command line arguments, the
+ * working directory and the environment to a running daemon, and displays
+ * the build output as it comes. It relies on the Java platform alone, so it
+ * starts as fast as a virtual machine can. When there is no daemon around,
+ * the build simply runs in here, as usual.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class NightingaleClient {
+
+    /**
+     * The magic number which opens every request.
+     */
+    public static final int MAGIC = 0x4e474452;
+
+    /**
+     * Main method. This is the client entry point.
+     * @param args A string array containing all command line arguments.
+     */
+    public static void main(String[] args) {
+        int status = request(args);
+        if (status < 0) {
+            Nightingale.main(args);
+        } else {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Requests a build to the daemon.
+     * @param args A string array containing all command line arguments.
+     * @return The exit status of the build, or a negative value if the daemon
+     * could not be reached, so the build should run locally.
+     */
+    private static int request(String[] args) {
+        File file = new File(new File(System.getProperty("user.home"),
+                ".nightingale"), "daemon");
+        if (!file.isFile()) {
+            return -1;
+        }
+
+        int port;
+        String token;
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), "UTF-8"));
+            port = Integer.parseInt(reader.readLine().trim());
+            token = reader.readLine().trim();
+        } catch (IOException ioexception) {
+            return -1;
+        } catch (RuntimeException rexception) {
+            return -1;
+        } finally {
+            close(reader);
+        }
+
+        // once the daemon sends anything back, the
+        // build cannot run locally anymore, otherwise
+        // it would run twice
+        boolean started = false;
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(
+                    InetAddress.getLoopbackAddress(), port), 1000);
+            DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            output.writeInt(MAGIC);
+            output.writeUTF(token);
+            output.writeUTF(new File("").getAbsolutePath());
+            Map<String, String> environment = System.getenv();
+            output.writeInt(environment.size());
+            for (Map.Entry<String, String> entry : environment.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeUTF(entry.getValue());
+            }
+            output.writeInt(args.length);
+            for (String argument : args) {
+                output.writeUTF(argument);
+            }
+            output.flush();
+
+            DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            byte[] buffer = new byte[8192];
+            int length = input.readInt();
+            while (length >= 0) {
+                started = true;
+                while (length > 0) {
+                    int read = input.read(buffer, 0,
+                            Math.min(length, buffer.length));
+                    if (read < 0) {
+                        return 1;
+                    }
+                    System.out.write(buffer, 0, read);
+                    length = length - read;
+                }
+                System.out.flush();
+                length = input.readInt();
+            }
+            return input.readInt();
+        } catch (IOException ioexception) {
+            return started ? 1 : -1;
+        } finally {
+            close(socket);
+        }
+    }
+
+    /**
+     * Closes the provided resource silently.
+     * @param closeable The resource.
+     */
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ioexception) {
+                // nothing to be done here
+            }
+        }
+    }
+
+}
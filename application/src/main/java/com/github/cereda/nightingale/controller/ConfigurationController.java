@@ -34,6 +34,7 @@
 package com.github.cereda.nightingale.controller;
         
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.Map;
 
 /**
@@ -56,11 +57,20 @@ public class ConfigurationController {
     // as long as you know what to retrieve later on
     private final Map<String, Object> map;
 
+    // a thread might open its own scope, that is, a
+    // private layer of settings on top of the shared
+    // map; this is needed when directives run in
+    // parallel, since each one of them changes
+    // settings like the current file and rule; scopes
+    // might be nested, so each thread holds a stack
+    private final ThreadLocal<LinkedList<Map<String, Object>>> scopes;
+
     /**
      * Private constructor.
      */
     private ConfigurationController() {
         map = new HashMap<String, Object>();
+        scopes = new ThreadLocal<LinkedList<Map<String, Object>>>();
     }
 
     /**
@@ -80,6 +90,10 @@ public class ConfigurationController {
      * @return An object indexed by the provided key.
      */
     public Object get(String key) {
+        Map<String, Object> local = getLocal();
+        if ((local != null) && local.containsKey(key)) {
+            return local.get(key);
+        }
         return map.get(key);
     }
 
@@ -90,7 +104,12 @@ public class ConfigurationController {
      * @param value The object to be indexed by the provided key.
      */
     public void put(String key, Object value) {
-        map.put(key, value);
+        Map<String, Object> local = getLocal();
+        if (local != null) {
+            local.put(key, value);
+        } else {
+            map.put(key, value);
+        }
     }
 
     /**
@@ -99,7 +118,68 @@ public class ConfigurationController {
      * @return A boolean value indicating if the map contains the provided key.
      */
     public boolean contains(String key) {
+        Map<String, Object> local = getLocal();
+        if ((local != null) && local.containsKey(key)) {
+            return true;
+        }
         return map.containsKey(key);
     }
 
+    /**
+     * Gets the settings written in the scope of the current thread, if any.
+     * The returned map is a copy, so it can be safely handed over to another
+     * thread and used as the parent of a new scope.
+     * @return A map containing the scoped settings, or null if the current
+     * thread has no open scope.
+     */
+    public Map<String, Object> getScope() {
+        Map<String, Object> local = getLocal();
+        return local == null ? null : new HashMap<String, Object>(local);
+    }
+
+    /**
+     * Opens a scope for the current thread. From now on, every setting put
+     * by this thread is kept private to it, and lookups check the scope
+     * before the shared map.
+     * @param parent A map of settings the new scope starts with, usually
+     * obtained from the scope of the thread which spawned the current one;
+     * it might be null.
+     */
+    public void openScope(Map<String, Object> parent) {
+        Map<String, Object> local = new HashMap<String, Object>();
+        if (parent != null) {
+            local.putAll(parent);
+        }
+        LinkedList<Map<String, Object>> stack = scopes.get();
+        if (stack == null) {
+            stack = new LinkedList<Map<String, Object>>();
+            scopes.set(stack);
+        }
+        stack.push(local);
+    }
+
+    /**
+     * Closes the innermost scope of the current thread, discarding its
+     * settings; the enclosing scope, if any, becomes the current one.
+     */
+    public void closeScope() {
+        LinkedList<Map<String, Object>> stack = scopes.get();
+        if (stack != null) {
+            stack.pop();
+            if (stack.isEmpty()) {
+                scopes.remove();
+            }
+        }
+    }
+
+    /**
+     * Gets the innermost scope of the current thread.
+     * @return The map of scoped settings, or null if the current thread has
+     * no open scope.
+     */
+    private Map<String, Object> getLocal() {
+        LinkedList<Map<String, Object>> stack = scopes.get();
+        return stack == null ? null : stack.peek();
+    }
+
 }
@@ -0,0 +1,174 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.controller;
+
+import com.github.cereda.nightingale.model.Database;
+import com.github.cereda.nightingale.model.NightingaleException;
+import com.github.cereda.nightingale.utils.DatabaseUtils;
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implements the database controller. This class holds every database loaded
+ * during the execution, so change checks are made against memory instead of
+ * reading and writing the database file on every call. Changes are written
+ * back at checkpoints (the end of each interpretation) and when the
+ * application is terminated. This controller is implemented as a singleton.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class DatabaseController {
+
+    // the controller itself, since we have a singleton;
+    // this is the reference instance, instantiated once
+    private static final DatabaseController instance =
+            new DatabaseController();
+
+    // the databases are indexed by their files, since
+    // each main file directory has its own database
+    private final Map<File, Database> databases;
+
+    // the state of each database file when it was last
+    // loaded or saved, so changes made by some other
+    // process can be detected and the file reloaded
+    private final Map<File, String> stamps;
+
+    // the database files with changes
+    // not yet written back to disk
+    private final Set<File> changes;
+
+    /**
+     * Private constructor. Pending changes are written back when the
+     * application is terminated, even if it is interrupted.
+     */
+    private DatabaseController() {
+        databases = new HashMap<File, Database>();
+        stamps = new HashMap<File, String>();
+        changes = new LinkedHashSet<File>();
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    flush();
+                } catch (NightingaleException exception) {
+                    // quack, quack, quack!
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the singleton reference. Since this class is implemented as a
+     * singleton, you will get the same controller every single time.
+     * @return The database controller which holds the databases.
+     */
+    public static DatabaseController getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the database of the current main file, loading it if needed. The
+     * database is kept in memory, so changes should be made directly in the
+     * returned object and then notified through update().
+     * @return The database of the current main file.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public synchronized Database get() throws NightingaleException {
+        File file = DatabaseUtils.getFile();
+        
+        // a database without pending changes is discarded
+        // if its file was modified by someone else, since
+        // the copy in memory is outdated
+        if (databases.containsKey(file) && !changes.contains(file)
+                && !getStamp(file).equals(stamps.get(file))) {
+            databases.remove(file);
+        }
+        if (!databases.containsKey(file)) {
+            databases.put(file, DatabaseUtils.load(file));
+            stamps.put(file, getStamp(file));
+        }
+        return databases.get(file);
+    }
+
+    /**
+     * Marks the database of the current main file as changed, so it is
+     * written back at the next checkpoint.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public synchronized void update() throws NightingaleException {
+        changes.add(DatabaseUtils.getFile());
+    }
+
+    /**
+     * Writes back every database with pending changes, merging them with
+     * changes written by other executions in the meantime.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public synchronized void flush() throws NightingaleException {
+        for (File file : new LinkedHashSet<File>(changes)) {
+            DatabaseUtils.save(databases.get(file), file);
+            changes.remove(file);
+
+            // the saved file might hold entries merged from
+            // other executions, so it is loaded again on the
+            // next access instead of keeping this copy
+            databases.remove(file);
+            stamps.remove(file);
+        }
+    }
+
+    /**
+     * Gets the state of the provided file, that is, its size and the time it
+     * was last modified, or a mark if it does not exist.
+     * @param file The file.
+     * @return A string representing the file state.
+     */
+    private String getStamp(File file) {
+        if (!file.exists()) {
+            return "missing";
+        }
+        return String.valueOf(file.lastModified()).
+                concat(":").
+                concat(String.valueOf(file.length()));
+    }
+
+}
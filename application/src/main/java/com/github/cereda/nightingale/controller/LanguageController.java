@@ -52,8 +52,12 @@ public class LanguageController {
     private static final LanguageController instance =
             new LanguageController();
     
+    // the current locale for all messages
+    private Locale locale;
+
     // the message conveyor helps us to get localized messages
-    // according to the provided locale
+    // according to the provided locale; it is only created
+    // when the first message is actually requested
     private IMessageConveyor conveyor;
 
     /**
@@ -61,15 +65,7 @@ public class LanguageController {
      * messages in nightingale.
      */
     private LanguageController() {
-        conveyor = new MessageConveyor(new Locale("en"));
-    }
-
-    /**
-     * Initializes the class. This method actually does nothing, it just
-     * triggers the static attributions.
-     */
-    public static void init() {
-        // quack, quack, quack!
+        locale = new Locale("en");
     }
 
     /**
@@ -87,8 +83,21 @@ public class LanguageController {
      * @param locale The new locale for localized messages through the language
      * conveyor.
      */
-    public void setLocale(Locale locale) {
-        conveyor = new MessageConveyor(locale);
+    public synchronized void setLocale(Locale locale) {
+        this.locale = locale;
+        conveyor = null;
+    }
+
+    /**
+     * Gets the language conveyor, creating it for the current locale if this
+     * is the first message requested since the locale was set.
+     * @return The language conveyor.
+     */
+    private synchronized IMessageConveyor getConveyor() {
+        if (conveyor == null) {
+            conveyor = new MessageConveyor(locale);
+        }
+        return conveyor;
     }
 
     /**
@@ -101,7 +110,7 @@ public class LanguageController {
      * enumeration key and applied the array of objects as parameters.
      */
     public <E extends Enum<?>> String getMessage(E key, Object... parameters) {
-        return conveyor.getMessage(key, parameters);
+        return getConveyor().getMessage(key, parameters);
     }
 
     /**
@@ -112,7 +121,7 @@ public class LanguageController {
      * enumeration key.
      */
     public <E extends Enum<?>> String getMessage(E key) {
-        return conveyor.getMessage(key);
+        return getConveyor().getMessage(key);
     }
 
 }
@@ -0,0 +1,73 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.controller;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.Configurator;
+import ch.qos.logback.core.spi.ContextAwareBase;
+
+/**
+ * Implements the logging configurator. Logback finds this class through the
+ * service loader the first time a logger is requested and uses it instead of
+ * its default configuration, which would print every log entry in the
+ * terminal. The logging simply starts silent, without parsing any XML
+ * configuration; the logging controller takes over when the logging is
+ * actually enabled.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class LoggingConfigurator extends ContextAwareBase
+        implements Configurator {
+
+    /**
+     * Configures the provided logger context, silencing it.
+     * @param context The logger context.
+     */
+    @Override
+    public void configure(LoggerContext context) {
+        silence(context);
+    }
+
+    /**
+     * Silences the provided logger context by turning the root logger off.
+     * @param context The logger context.
+     */
+    public static void silence(LoggerContext context) {
+        context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.OFF);
+    }
+
+}
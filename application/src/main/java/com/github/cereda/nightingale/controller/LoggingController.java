@@ -48,32 +48,40 @@ import org.slf4j.LoggerFactory;
  */
 public class LoggingController {
 
+    // indicates if the logging feature is currently enabled;
+    // logback is only touched when the logging is enabled or
+    // when it has to be disabled again, so a silent execution
+    // never loads the joran configuration machinery at all
+    private static boolean enabled = false;
+
     /**
      * Sets the logging configuration according to the provided boolean value.
      * If the value is set to true, the log entries will be appended to a file,
-     * otherwise the logging feature will keep silent.
+     * otherwise the logging feature will keep silent. Note that the logging
+     * starts silent by default (see the logging configurator), so disabling
+     * a logging which was never enabled costs nothing.
      * @param enable A boolean value that indicates the logging behaviour
      * throughout the application.
      */
     public static void enableLogging(boolean enable) {
         
-        // get the logger context from a factory, set a
-        // new context and reset it
-        LoggerContext loggerContext =
-                (LoggerContext) LoggerFactory.getILoggerFactory();
-        
-        try {
+        // if enabled, the log entries will be
+        // appended to a file, otherwise it will
+        // remain silent
+        if (enable) {
             
-            // get a new configuration and set
-            // the context
-            JoranConfigurator configurator = new JoranConfigurator();
-            configurator.setContext(loggerContext);
-            loggerContext.reset();
+            // get the logger context from a factory, set a
+            // new context and reset it
+            LoggerContext loggerContext =
+                    (LoggerContext) LoggerFactory.getILoggerFactory();
             
-            // if enabled, the log entries will be
-            // appended to a file, otherwise it will
-            // remain silent
-            if (enable) {
+            try {
+                
+                // get a new configuration and set
+                // the context
+                JoranConfigurator configurator = new JoranConfigurator();
+                configurator.setContext(loggerContext);
+                loggerContext.reset();
                 
                 // set the file name and configure
                 // the logging controller to append
@@ -82,10 +90,22 @@ public class LoggingController {
                     getInstance().get("execution.log.name");
                 loggerContext.putProperty("name", name);
                 configurator.doConfigure(getResource());
+            } catch (JoranException exception) {
+                // quack, quack, quack!
+            }
+        } else {
+            if (enabled) {
+                
+                // the logging was enabled at some point, so
+                // the context is reset and silenced again,
+                // just like the initial configuration does
+                LoggerContext loggerContext =
+                        (LoggerContext) LoggerFactory.getILoggerFactory();
+                loggerContext.reset();
+                LoggingConfigurator.silence(loggerContext);
             }
-        } catch (JoranException exception) {
-            // quack, quack, quack!
         }
+        enabled = enable;
     }
     
     /**
@@ -96,12 +116,5 @@ public class LoggingController {
         String r = "/com/github/cereda/nightingale/configuration/logback.xml";
         return LoggingController.class.getResourceAsStream(r);
     }
-    
-    /**
-     * Initializes the logging controller by disabling it.
-     */
-    public static void init() {
-        enableLogging(false);
-    }
 
 }
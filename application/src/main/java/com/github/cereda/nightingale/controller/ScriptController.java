@@ -0,0 +1,165 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.controller;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Implements the script controller. This class holds the script classes
+ * compiled during the execution, so rules and conditionals are parsed and
+ * compiled only once and simply instantiated afterwards. Since the daemon
+ * and the watch mode might run for a long time, the number of classes held
+ * is bounded: the least recently used ones are dropped, and so are the ones
+ * compiled from an older version of a script file. Every script class has a
+ * class loader of its own, so dropped classes can be unloaded. This
+ * controller is implemented as a singleton.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class ScriptController {
+
+    // the controller itself, since we have a singleton;
+    // this is the reference instance, instantiated once
+    private static final ScriptController instance =
+            new ScriptController();
+
+    // the maximum number of script classes
+    // held at the same time
+    private static final int LIMIT = 256;
+
+    // the compiled script classes are stored in a map,
+    // indexed by a key that identifies both the script
+    // location and its content, so a modified script
+    // is never mistaken for an old one; the map is kept
+    // in access order, so the eldest entry is always the
+    // least recently used one
+    private final Map<String, Class<? extends Script>> scripts;
+
+    // one class loader per script base class, since the
+    // compiler configuration is attached to the loader
+    // and not to the script itself
+    private final Map<String, GroovyClassLoader> loaders;
+
+    /**
+     * Private constructor.
+     */
+    private ScriptController() {
+        scripts = new LinkedHashMap<String, Class<? extends Script>>(
+                16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, Class<? extends Script>> eldest) {
+                return size() > LIMIT;
+            }
+        };
+        loaders = new HashMap<String, GroovyClassLoader>();
+    }
+
+    /**
+     * Gets the singleton reference. Since this class is implemented as a
+     * singleton, you will get the same controller every single time.
+     * @return The script controller which holds the compiled scripts.
+     */
+    public static ScriptController getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the script class indexed by the provided key.
+     * @param key The provided key.
+     * @return The script class indexed by the provided key, or null if there
+     * is no such class.
+     */
+    public Class<? extends Script> get(String key) {
+        return scripts.get(key);
+    }
+
+    /**
+     * Puts the script class in the map and indexes it under the provided key.
+     * @param key The provided key.
+     * @param script The script class.
+     */
+    public void put(String key, Class<? extends Script> script) {
+        scripts.put(key, script);
+    }
+
+    /**
+     * Removes every script class whose key starts with the provided prefix,
+     * that is, every class compiled from the provided location.
+     * @param prefix The key prefix.
+     */
+    public void removeAll(String prefix) {
+        Iterator<String> iterator = scripts.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Checks if the map contains the provided key.
+     * @param key The key to be checked.
+     * @return A boolean value indicating if the map contains the provided key.
+     */
+    public boolean contains(String key) {
+        return scripts.containsKey(key);
+    }
+
+    /**
+     * Gets the class loader associated with the provided script base class.
+     * @param base The fully qualified name of the script base class.
+     * @return The class loader, or null if there is no such loader.
+     */
+    public GroovyClassLoader getLoader(String base) {
+        return loaders.get(base);
+    }
+
+    /**
+     * Associates the class loader with the provided script base class.
+     * @param base The fully qualified name of the script base class.
+     * @param loader The class loader.
+     */
+    public void putLoader(String base, GroovyClassLoader loader) {
+        loaders.put(base, loader);
+    }
+
+}
@@ -33,6 +33,7 @@
  */
 package com.github.cereda.nightingale.controller;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -60,7 +61,7 @@ public class SessionController {
      * Private constructor.
      */
     private SessionController() {
-        map = new HashMap<String, Object>();
+        map = Collections.synchronizedMap(new HashMap<String, Object>());
     }
 
     /**
@@ -79,7 +80,7 @@ public class SessionController {
      * @return The object indexed by the provided map key.
      */
     public Object get(String key) {
-        return map.get(key);
+        return getMap().get(key);
     }
 
     /**
@@ -89,7 +90,7 @@ public class SessionController {
      * @param value The object to be indexed under the provided key.
      */
     public void put(String key, Object value) {
-        map.put(key, value);
+        getMap().put(key, value);
     }
 
     /**
@@ -100,7 +101,7 @@ public class SessionController {
      * provided key.
      */
     public boolean contains(String key) {
-        return map.containsKey(key);
+        return getMap().containsKey(key);
     }
 
     /**
@@ -110,7 +111,7 @@ public class SessionController {
      * be removed.
      */
     public void remove(String key) {
-        map.remove(key);
+        getMap().remove(key);
     }
 
     /**
@@ -118,7 +119,22 @@ public class SessionController {
      * the same name.
      */
     public void clear() {
-        map.clear();
+        getMap().clear();
+    }
+
+    /**
+     * Gets the session map of the current document. When documents are
+     * processed in batch, each one of them holds its own session map in the
+     * configuration scope; otherwise, the application-wide map is used.
+     * @return The session map.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getMap() {
+        Map<String, Object> local = (Map<String, Object>)
+                ConfigurationController.
+                        getInstance().
+                        get("execution.session");
+        return local == null ? map : local;
     }
 
 }
@@ -0,0 +1,122 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Implements the resource accounting model. The usage of every command is
+ * aggregated per directive and per rule, in order of appearance, so the
+ * costly ones can be spotted in the summary. Directives might run in
+ * parallel, so every method is synchronized.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class Accounting {
+
+    // the aggregated usages, indexed by
+    // directive and by rule
+    private final Map<String, Usage> directives;
+    private final Map<String, Usage> rules;
+
+    /**
+     * Constructor.
+     */
+    public Accounting() {
+        directives = new LinkedHashMap<String, Usage>();
+        rules = new LinkedHashMap<String, Usage>();
+    }
+
+    /**
+     * Records the usage of a command.
+     * @param directive The directive description.
+     * @param rule The rule identifier.
+     * @param usage The usage of the command.
+     */
+    public synchronized void record(String directive, String rule,
+            Usage usage) {
+        add(directives, directive, usage);
+        add(rules, rule, usage);
+    }
+
+    /**
+     * Gets a copy of the usages aggregated per directive.
+     * @return A map of usages, indexed by directive description.
+     */
+    public synchronized Map<String, Usage> getDirectives() {
+        return new LinkedHashMap<String, Usage>(directives);
+    }
+
+    /**
+     * Gets a copy of the usages aggregated per rule.
+     * @return A map of usages, indexed by rule identifier.
+     */
+    public synchronized Map<String, Usage> getRules() {
+        return new LinkedHashMap<String, Usage>(rules);
+    }
+
+    /**
+     * Checks if no command was accounted for.
+     * @return A boolean value indicating if the accounting is empty.
+     */
+    public synchronized boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Clears the accounting, so it can be used for a new build.
+     */
+    public synchronized void clear() {
+        directives.clear();
+        rules.clear();
+    }
+
+    /**
+     * Adds the provided usage to the entry indexed by the provided key.
+     * @param map The map of usages.
+     * @param key The key.
+     * @param usage The usage to be added.
+     */
+    private void add(Map<String, Usage> map, String key, Usage usage) {
+        Usage current = map.get(key);
+        if (current == null) {
+            current = new Usage();
+            map.put(key, current);
+        }
+        current.add(usage);
+    }
+
+}
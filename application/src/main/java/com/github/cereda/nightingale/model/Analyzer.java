@@ -0,0 +1,139 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.model;
+
+import java.util.regex.Pattern;
+
+/**
+ * Implements the analyzer model. An analyzer receives the output of a command
+ * one line at a time, while the command runs, and its result is published in
+ * the session once the command ends, under the key the analyzer was declared
+ * with. The default analyzer simply tells if its pattern was found; rules
+ * might provide their own analyzers by extending this class. Note that TeX
+ * engines wrap their output at 79 columns (max_print_line), and very long
+ * lines are handed over in chunks, so patterns are also looked up across
+ * the boundary between two consecutive lines.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class Analyzer {
+
+    // the column at which TeX engines wrap
+    // their output; the chunks of very long
+    // lines are longer than that as well
+    private static final int WIDTH = 79;
+
+    // the pattern to be found in the
+    // output, if any
+    private final Pattern pattern;
+
+    // a flag indicating if the pattern
+    // was found so far
+    private boolean found;
+
+    // the previous line of output, if it
+    // might have been wrapped into the
+    // current one
+    private String previous;
+
+    /**
+     * Constructor, for analyzers which do not rely on a pattern.
+     */
+    public Analyzer() {
+        this.pattern = null;
+    }
+
+    /**
+     * Constructor.
+     * @param pattern The pattern to be found in the output.
+     */
+    public Analyzer(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * Constructor.
+     * @param regex The regex to be found in the output.
+     */
+    public Analyzer(String regex) {
+        this(Pattern.compile(regex));
+    }
+
+    /**
+     * Resets the analyzer, so it can be used for a new command.
+     */
+    public void reset() {
+        found = false;
+        previous = null;
+    }
+
+    /**
+     * Analyzes the provided line of output, without its line terminator.
+     * @param line The line of output.
+     */
+    public void analyze(String line) {
+        if (!found && (pattern != null)) {
+            found = find(pattern, line);
+        }
+    }
+
+    /**
+     * Checks if the provided pattern is found in the provided line of output
+     * or across the boundary between the previous line and this one, when
+     * the previous line was long enough to have been wrapped. Since lines
+     * are wrapped at 79 columns, a match shorter than that spans two lines
+     * at most; shorter lines are never joined, so unrelated lines cannot
+     * produce a match together.
+     * @param pattern The pattern.
+     * @param line The line of output.
+     * @return A boolean value indicating if the pattern was found.
+     */
+    protected boolean find(Pattern pattern, String line) {
+        boolean result = pattern.matcher(line).find()
+                || ((previous != null)
+                        && pattern.matcher(previous.concat(line)).find());
+        previous = (line.length() >= WIDTH) ? line : null;
+        return result;
+    }
+
+    /**
+     * Gets the result of the analysis, to be published in the session.
+     * @return A boolean value indicating if the pattern was found.
+     */
+    public Object getResult() {
+        return found;
+    }
+
+}
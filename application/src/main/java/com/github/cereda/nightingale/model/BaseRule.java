@@ -36,8 +36,10 @@ package com.github.cereda.nightingale.model;
 import com.github.cereda.nightingale.controller.ConfigurationController;
 import com.github.cereda.nightingale.controller.LanguageController;
 import com.github.cereda.nightingale.utils.CommonUtils;
+import com.github.cereda.nightingale.utils.DependencyUtils;
 import groovy.lang.Script;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -51,8 +53,15 @@ public class BaseRule extends Script {
 
     // these are the rule parameters, set as an static
     // attribute in order to avoid the explicit need
-    // to call a setter in the rule context
-    private static Map<String, Object> parameters;
+    // to call a setter in the rule context; it is
+    // local to each thread, since directives might
+    // be interpreted in parallel
+    private static final ThreadLocal<Map<String, Object>> current =
+            new ThreadLocal<Map<String, Object>>();
+
+    // the parameters of the directive this very
+    // rule instance was created for
+    private final Map<String, Object> parameters;
     
     // the file reference, not necessarily the current file
     // being processed; this file represents the main file
@@ -79,6 +88,7 @@ public class BaseRule extends Script {
                 getInstance().
                 get("execution.reference");
         session = new Session();
+        parameters = current.get();
     }
 
     /**
@@ -103,7 +113,7 @@ public class BaseRule extends Script {
      * @param parameters A map containing the rule parameters.
      */
     public static void setParameters(Map<String, Object> parameters) {
-        BaseRule.parameters = parameters;
+        current.set(parameters);
     }
 
     /**
@@ -435,6 +445,87 @@ public class BaseRule extends Script {
         return !changed(filename);
     }
 
+    /**
+     * Checks if any of the provided files has changed from the last run. The
+     * files are verified in parallel and every one of them is up to date
+     * afterwards, so all changes are accounted for.
+     * @param files The list of files (or paths).
+     * @return A boolean value indicating if any file has changed from the
+     * last run.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public boolean changed(List<?> files) throws NightingaleException {
+        List<File> list = new ArrayList<File>();
+        for (Object file : files) {
+            list.add(CommonUtils.checkClass(File.class, file)
+                    ? (File) file
+                    : CommonUtils.getFile(String.valueOf(file)));
+        }
+        return CommonUtils.hasChanged(list);
+    }
+
+    /**
+     * Checks if none of the provided files has changed from the last run.
+     * @param files The list of files (or paths).
+     * @return A boolean value indicating if no file has changed from the
+     * last run.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public boolean unchanged(List<?> files) throws NightingaleException {
+        return !changed(files);
+    }
+
+    /**
+     * Gets the files matching the provided glob pattern, like
+     * 'figures/*.pdf'; relative patterns are resolved against the working
+     * directory.
+     * @param pattern The glob pattern.
+     * @return The list of matching files, in order.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public List<File> glob(String pattern) throws NightingaleException {
+        return CommonUtils.glob(pattern);
+    }
+
+    /**
+     * Gets the dependencies of the current file (might not be the reference
+     * file), as listed in the recorder file written by the TeX engines when
+     * the '-recorder' option is used.
+     * @return A list of files, which is empty if the dependencies are not
+     * known.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public List<File> dependencies() throws NightingaleException {
+        return DependencyUtils.getDependencies();
+    }
+
+    /**
+     * Checks if any dependency of the current file (might not be the
+     * reference file) has changed from the last run. The current file is
+     * also outdated when its dependencies are not known yet.
+     * @return A boolean value indicating if the current file is outdated.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public boolean outdated() throws NightingaleException {
+        return DependencyUtils.isOutdated();
+    }
+
+    /**
+     * Checks if no dependency of the current file (might not be the
+     * reference file) has changed from the last run.
+     * @return A boolean value indicating if the current file is up to date.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public boolean uptodate() throws NightingaleException {
+        return !outdated();
+    }
+
     /**
      * Returns a file based on the provided string.
      * @param filename The provided string.
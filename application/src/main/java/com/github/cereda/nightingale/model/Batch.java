@@ -0,0 +1,286 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.model;
+
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.controller.LanguageController;
+import com.github.cereda.nightingale.utils.CommonUtils;
+import com.github.cereda.nightingale.utils.DirectiveUtils;
+import com.github.cereda.nightingale.utils.DisplayUtils;
+import com.github.cereda.nightingale.utils.RoutingOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes a batch of files. Each file goes through the very same steps of a
+ * single file execution, that is, extraction, validation and interpretation
+ * of directives, but the application startup, the configuration and the
+ * compiled rules are shared by all of them. Files might be processed in
+ * parallel, in which case the output of each file is buffered and displayed
+ * at once when the file is done.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class Batch {
+
+    // list of files to be
+    // processed in here
+    private List<File> references;
+
+    // the application messages obtained from the
+    // language controller
+    private static final LanguageController messages =
+            LanguageController.getInstance();
+
+    // the class logger obtained from
+    // the logger factory
+    private static final Logger logger =
+            LoggerFactory.getLogger(Batch.class);
+
+    /**
+     * Sets the list of files.
+     * @param references The list of files.
+     */
+    public void setReferences(List<File> references) {
+        this.references = references;
+    }
+
+    /**
+     * Processes each file and displays a summary in the end. Errors in a file
+     * are displayed in its own block and do not prevent the other files from
+     * being processed.
+     * @return A boolean value indicating if every file has succeeded.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public boolean execute() throws NightingaleException {
+
+        // files are processed in parallel only when
+        // the output is not interactive, that is,
+        // neither in verbose nor in dry-run modes
+        int jobs = (int) ((long) (Long) ConfigurationController.
+                getInstance().
+                get("execution.jobs"));
+        boolean parallel = jobs > 1
+                && references.size() > 1
+                && !((Boolean) ConfigurationController.
+                        getInstance().
+                        get("execution.verbose"))
+                && !((Boolean) ConfigurationController.
+                        getInstance().
+                        get("execution.dryrun"));
+        if (!parallel) {
+            jobs = 1;
+        }
+
+        logger.info(messages.getMessage(
+                Messages.LOG_INFO_BATCH_FILES,
+                references.size(),
+                jobs)
+        );
+
+        // the settings of the current thread, if any,
+        // are handed over to every file scope
+        final Map<String, Object> parent = ConfigurationController.
+                getInstance().
+                getScope();
+        List<Pair<String, String>> summary =
+                new ArrayList<Pair<String, String>>();
+
+        if (!parallel) {
+            for (File reference : references) {
+                summary.add(process(reference, parent, null));
+            }
+        } else {
+
+            // the standard output is replaced by a router,
+            // so each file writes into its own buffer, which
+            // is later copied to the current output
+            final OutputStream console = ConfigurationController.
+                    getInstance().
+                    contains("display.buffer")
+                    ? (OutputStream) ConfigurationController.
+                            getInstance().
+                            get("display.buffer")
+                    : System.out;
+            PrintStream stream = System.out;
+            System.setOut(new PrintStream(
+                    new RoutingOutputStream(stream),
+                    true)
+            );
+            ExecutorService pool = Executors.newFixedThreadPool(jobs);
+            try {
+                List<Future<Pair<String, String>>> futures =
+                        new ArrayList<Future<Pair<String, String>>>();
+                for (final File reference : references) {
+                    futures.add(pool.submit(
+                            new Callable<Pair<String, String>>() {
+
+                        @Override
+                        public Pair<String, String> call() {
+                            return process(reference, parent, console);
+                        }
+                    }));
+                }
+                for (Future<Pair<String, String>> future : futures) {
+                    summary.add(future.get());
+                }
+            } catch (InterruptedException iexception) {
+                throw new NightingaleException(
+                        messages.getMessage(
+                                Messages.ERROR_BATCH_INTERRUPTED
+                        ),
+                        iexception
+                );
+            } catch (ExecutionException eexception) {
+                throw new NightingaleException(
+                        messages.getMessage(
+                                Messages.ERROR_BATCH_GENERIC_EXCEPTION
+                        ),
+                        eexception
+                );
+            } finally {
+                pool.shutdownNow();
+                System.setOut(stream);
+            }
+        }
+
+        DisplayUtils.printSummary(summary);
+        
+        boolean result = true;
+        for (Pair<String, String> entry : summary) {
+            if (!entry.getSecondElement().equals(
+                    messages.getMessage(Messages.INFO_LABEL_ON_SUCCESS))) {
+                result = false;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Processes the provided file in its own configuration scope and session.
+     * @param reference The file.
+     * @param parent The settings the file scope starts with; it might be
+     * null.
+     * @param console The stream the buffered output is copied to when the
+     * file is done, or null if the output is not buffered.
+     * @return A pair containing the file description and its result label.
+     */
+    private Pair<String, String> process(File reference,
+            Map<String, Object> parent, OutputStream console) {
+        ConfigurationController controller =
+                ConfigurationController.getInstance();
+        controller.openScope(parent);
+        controller.put("execution.session",
+                Collections.synchronizedMap(new HashMap<String, Object>())
+        );
+
+        // when buffered, directives of this very file
+        // run in order, since the available jobs are
+        // already taken by the files themselves
+        ByteArrayOutputStream buffer = null;
+        if (console != null) {
+            buffer = new ByteArrayOutputStream();
+            controller.put("display.buffer", buffer);
+            controller.put("execution.jobs", 1L);
+        }
+
+        long beginning = System.nanoTime();
+        String result;
+        try {
+            CommonUtils.setReference(reference);
+            DisplayUtils.printFileInformation();
+            Extractor extractor = new Extractor();
+            List<Directive> directives = extractor.extract();
+            directives = DirectiveUtils.validate(directives);
+            Interpreter interpreter = new Interpreter();
+            interpreter.setDirectives(directives);
+            result = messages.getMessage(interpreter.execute()
+                    ? Messages.INFO_LABEL_ON_SUCCESS
+                    : Messages.INFO_LABEL_ON_FAILURE
+            );
+        } catch (NightingaleException exception) {
+            DisplayUtils.printException(exception);
+            result = messages.getMessage(Messages.INFO_LABEL_ON_ERROR);
+        } finally {
+            DisplayUtils.printBlockEnd();
+            controller.closeScope();
+        }
+        long end = System.nanoTime();
+
+        if (console != null) {
+            try {
+                synchronized (console) {
+                    console.write(buffer.toByteArray(), 0, buffer.size());
+                    console.flush();
+                }
+            } catch (IOException exception) {
+                // the output is gone, so there is
+                // nothing left to be done here
+            }
+        }
+
+        Language language = (Language) controller.get("execution.language");
+        String time = String.format(
+                language.getLocale(),
+                "%1.2f",
+                (double) (end - beginning) / 1000000000
+        );
+        return new Pair<String, String>(
+                messages.getMessage(
+                        Messages.INFO_DISPLAY_BATCH_ENTRY,
+                        reference.getName(),
+                        time
+                ),
+                result
+        );
+    }
+
+}
@@ -37,6 +37,7 @@ import com.github.cereda.nightingale.controller.ConfigurationController;
 import com.github.cereda.nightingale.controller.LanguageController;
 import com.github.cereda.nightingale.utils.CommonUtils;
 import com.github.cereda.nightingale.utils.ConfigurationUtils;
+import com.github.cereda.nightingale.utils.HashUtils;
 import java.io.File;
 import java.math.BigDecimal;
 import java.nio.charset.Charset;
@@ -46,6 +47,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang.SystemUtils;
 
 /**
  * Implements the configuration model, which holds the default settings and can
@@ -67,13 +69,7 @@ public class Configuration {
      * the higher levels.
      */
     public static void load() throws NightingaleException {
-        
-        // initialize both file type and language models,
-        // since we can track errors from there instead
-        // of relying on a check on this level
-        FileType.init();
-        Language.init();
-        
+
         // reset everything
         reset();
         
@@ -109,6 +105,10 @@ public class Configuration {
         Map<String, Object> mapping = new HashMap<String, Object>();
 
         mapping.put("execution.loops", 10L);
+        mapping.put("execution.jobs", 1L);
+        mapping.put("execution.daemon", false);
+        mapping.put("execution.watch", false);
+        mapping.put("execution.watch.delay", 250L);
         mapping.put("directives.charset", Charset.forName("UTF-8"));
         mapping.put("execution.errors.halt", true);
         mapping.put("execution.timeout", false);
@@ -124,6 +124,9 @@ public class Configuration {
         mapping.put("application.pattern", "nightingale:\\s");
         mapping.put("application.width", 65);
         mapping.put("execution.database.name", "nightingale");
+        mapping.put("execution.database.format", "xml");
+        mapping.put("execution.database.strict", false);
+        mapping.put("execution.database.algorithm", "crc32");
         mapping.put("execution.log.name", "nightingale");
         mapping.put("execution.verbose", false);
         mapping.put("trigger.halt", false);
@@ -131,8 +134,19 @@ public class Configuration {
         mapping.put("execution.logging", false);
         mapping.put("execution.dryrun", false);
         mapping.put("application.copyright.year", "2014");
-        mapping.put("execution.filetypes", ConfigurationUtils.
-                getDefaultFileTypes()
+        mapping.put("execution.cache.classes", true);
+        mapping.put("execution.cache.classes.size", 64L);
+        mapping.put("execution.cache.outputs", false);
+        mapping.put("execution.cache.outputs.size", 512L);
+        mapping.put("execution.uptodate", false);
+        mapping.put("execution.output.policy", "block");
+        mapping.put("execution.termination", false);
+        mapping.put("execution.accounting", false);
+        mapping.put("execution.termination.patterns", Arrays.asList(
+                "^! ", "Emergency stop", "Fatal error occurred")
+        );
+        mapping.put("execution.cache.path", CommonUtils.buildPath(
+                SystemUtils.USER_HOME, ".nightingale")
         );
         mapping.put("execution.rule.paths", Arrays.asList(
                 CommonUtils.buildPath(ConfigurationUtils.getApplicationPath(),
@@ -227,6 +241,38 @@ public class Configuration {
             );
         }
 
+        // set the database format
+        if (data.containsKey("database format")) {
+            String value = (String) data.get("database format");
+            if (value.equals("binary") || value.equals("xml")) {
+                controller.put("execution.database.format", value);
+            } else {
+                throw new NightingaleException(messages.getMessage(
+                        Messages.ERROR_CONFIGURATION_INVALID_DATABASE_FORMAT)
+                );
+            }
+        }
+
+        // enable strict checks, that is, files are
+        // always hashed when checking for changes
+        if (data.containsKey("strict checks")) {
+            controller.put("execution.database.strict",
+                    (Boolean) data.get("strict checks")
+            );
+        }
+
+        // set the hash algorithm
+        if (data.containsKey("hash algorithm")) {
+            String value = (String) data.get("hash algorithm");
+            if (HashUtils.isSupported(value)) {
+                controller.put("execution.database.algorithm", value);
+            } else {
+                throw new NightingaleException(messages.getMessage(
+                        Messages.ERROR_CONFIGURATION_INVALID_HASH_ALGORITHM)
+                );
+            }
+        }
+
         // set the log name
         if (data.containsKey("log name")) {
             controller.put("execution.log.name",
@@ -258,6 +304,93 @@ public class Configuration {
             );
         }
 
+        // enable the class cache
+        if (data.containsKey("enable class cache")) {
+            controller.put("execution.cache.classes",
+                    (Boolean) data.get("enable class cache")
+            );
+        }
+
+        // set the class cache size, in megabytes
+        if (data.containsKey("class cache size")) {
+            long value = (Long) data.get("class cache size");
+            if (value > 0) {
+                controller.put("execution.cache.classes.size", value);
+            } else {
+                throw new NightingaleException(messages.getMessage(
+                        Messages.ERROR_CONFIGURATION_CLASS_CACHE_SIZE_INVALID_RANGE)
+                );
+            }
+        }
+
+        // enable the output cache
+        if (data.containsKey("enable output cache")) {
+            controller.put("execution.cache.outputs",
+                    (Boolean) data.get("enable output cache")
+            );
+        }
+
+        // set the output cache size, in megabytes
+        if (data.containsKey("output cache size")) {
+            long value = (Long) data.get("output cache size");
+            if (value > 0) {
+                controller.put("execution.cache.outputs.size", value);
+            } else {
+                throw new NightingaleException(messages.getMessage(
+                        Messages.ERROR_CONFIGURATION_OUTPUT_CACHE_SIZE_INVALID_RANGE)
+                );
+            }
+        }
+
+        // skip directives which are up to date
+        if (data.containsKey("skip up to date directives")) {
+            controller.put("execution.uptodate",
+                    (Boolean) data.get("skip up to date directives")
+            );
+        }
+
+        // set what to do when the terminal cannot keep
+        // up with the output of a command
+        if (data.containsKey("slow output policy")) {
+            String value = (String) data.get("slow output policy");
+            if (value.equals("block") || value.equals("file")) {
+                controller.put("execution.output.policy", value);
+            } else {
+                throw new NightingaleException(messages.getMessage(
+                        Messages.ERROR_CONFIGURATION_INVALID_OUTPUT_POLICY)
+                );
+            }
+        }
+
+        // kill commands as soon as their output
+        // shows they are doomed to fail
+        if (data.containsKey("enable early termination")) {
+            controller.put("execution.termination",
+                    (Boolean) data.get("enable early termination")
+            );
+        }
+
+        // set the fatal output patterns
+        if (data.containsKey("fatal output patterns")) {
+            @SuppressWarnings("unchecked")
+            List<String> patterns = (List<String>)
+                    data.get("fatal output patterns");
+            if (ConfigurationUtils.checkRegexes(patterns)) {
+                controller.put("execution.termination.patterns", patterns);
+            } else {
+                throw new NightingaleException(messages.getMessage(
+                        Messages.ERROR_CONFIGURATION_INVALID_FATAL_PATTERNS)
+                );
+            }
+        }
+
+        // account for the resources used by each command
+        if (data.containsKey("resource accounting")) {
+            controller.put("execution.accounting",
+                    (Boolean) data.get("resource accounting")
+            );
+        }
+
         // set the maximum number of loops
         if (data.containsKey("maximum number of loops")) {
             long value = (Long) data.get("maximum number of loops");
@@ -269,6 +402,18 @@ public class Configuration {
                 );
             }
         }
+
+        // set the number of parallel jobs
+        if (data.containsKey("number of jobs")) {
+            long value = (Long) data.get("number of jobs");
+            if (value > 0) {
+                controller.put("execution.jobs", value);
+            } else {
+                throw new NightingaleException(messages.getMessage(
+                        Messages.ERROR_CONFIGURATION_JOBS_INVALID_RANGE)
+                );
+            }
+        }
     }
 
 }
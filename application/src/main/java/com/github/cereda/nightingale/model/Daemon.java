@@ -0,0 +1,333 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.model;
+
+import com.github.cereda.nightingale.Nightingale;
+import com.github.cereda.nightingale.NightingaleClient;
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.controller.LanguageController;
+import com.github.cereda.nightingale.controller.LoggingController;
+import com.github.cereda.nightingale.utils.CommonUtils;
+import com.github.cereda.nightingale.utils.DisplayUtils;
+import com.github.cereda.nightingale.utils.FrameOutputStream;
+import com.github.cereda.nightingale.utils.RoutingOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implements the build daemon. The daemon keeps the application initialized,
+ * configured and with its rules compiled, and serves builds requested by the
+ * thin client through a local socket. Since there are no Unix domain sockets
+ * in the supported Java platform, the daemon listens on the loopback address
+ * only and writes its port and a random token to a file readable by the
+ * current user alone; requests without the proper token are ignored.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class Daemon {
+
+    // the application messages obtained from the
+    // language controller
+    private static final LanguageController messages =
+            LanguageController.getInstance();
+
+    // the class logger obtained from
+    // the logger factory
+    private static final Logger logger =
+            LoggerFactory.getLogger(Daemon.class);
+
+    // the token the client must present
+    // in order to have its request served
+    private String token;
+
+    /**
+     * Starts the daemon and serves requests, one at a time, until the
+     * application is terminated.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public void execute() throws NightingaleException {
+
+        final File file = getDaemonFile();
+        ServerSocket server;
+        try {
+            server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            token = generateToken();
+            write(file, server.getLocalPort());
+        } catch (IOException ioexception) {
+            throw new NightingaleException(
+                    messages.getMessage(
+                            Messages.ERROR_DAEMON_IO_EXCEPTION,
+                            file.getPath()
+                    ),
+                    ioexception
+            );
+        }
+
+        // the daemon file is removed when the application
+        // is terminated, so clients do not try to reach
+        // a daemon which is not there anymore
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+
+            @Override
+            public void run() {
+                FileUtils.deleteQuietly(file);
+            }
+        });
+
+        // from now on, the standard output is routed, so
+        // each build writes back to its own client
+        System.setOut(new PrintStream(
+                new RoutingOutputStream(System.out),
+                true)
+        );
+        ConfigurationController.
+                getInstance().
+                put("execution.daemon", false);
+        ConfigurationController.
+                getInstance().
+                put("execution.daemon.active", true);
+        DisplayUtils.wrapText(
+                messages.getMessage(
+                        Messages.INFO_DAEMON_LISTENING,
+                        String.valueOf(server.getLocalPort())
+                )
+        );
+
+        while (true) {
+            try {
+                serve(server.accept());
+            } catch (IOException ioexception) {
+                logger.info(
+                        messages.getMessage(
+                                Messages.LOG_INFO_DAEMON_REQUEST_FAILED
+                        )
+                );
+            }
+        }
+    }
+
+    /**
+     * Serves a request from the client. The request holds the client working
+     * directory, its environment and the command line arguments; the build
+     * output is sent back as it is produced, followed by the exit status.
+     * @param socket The client socket.
+     * @throws IOException An IO exception.
+     */
+    private void serve(Socket socket) throws IOException {
+        try {
+
+            // the request is expected right away,
+            // so a client which does not send
+            // anything is simply dropped
+            socket.setSoTimeout(10000);
+            DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream())
+            );
+            if ((input.readInt() != NightingaleClient.MAGIC)
+                    || !MessageDigest.isEqual(
+                            token.getBytes(Charset.forName("UTF-8")),
+                            input.readUTF().getBytes(Charset.forName("UTF-8"))
+                    )) {
+                return;
+            }
+
+            File directory = new File(input.readUTF());
+            Map<String, String> environment = new HashMap<String, String>();
+            int size = input.readInt();
+            for (int i = 0; i < size; i++) {
+                environment.put(input.readUTF(), input.readUTF());
+            }
+            String[] arguments = new String[input.readInt()];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = input.readUTF();
+            }
+            socket.setSoTimeout(0);
+
+            logger.info(
+                    messages.getMessage(
+                            Messages.LOG_INFO_DAEMON_REQUEST,
+                            directory.getPath(),
+                            Arrays.toString(arguments)
+                    )
+            );
+
+            FrameOutputStream output = new FrameOutputStream(
+                    new DataOutputStream(
+                            new BufferedOutputStream(socket.getOutputStream())
+                    )
+            );
+            int status = build(directory, environment, arguments, output);
+            output.finish(status);
+            
+        } finally {
+            IOUtils.closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Runs a build in its own configuration scope and session, just like a
+     * regular execution in the client working directory would do.
+     * @param directory The client working directory.
+     * @param environment The client environment.
+     * @param arguments The command line arguments.
+     * @param output The stream which sends the output to the client.
+     * @return The exit status, that is, zero if the build has succeeded and
+     * one otherwise.
+     */
+    private int build(File directory, Map<String, String> environment,
+            String[] arguments, FrameOutputStream output) {
+        ConfigurationController controller =
+                ConfigurationController.getInstance();
+        controller.openScope(null);
+        controller.put("execution.directory", directory);
+        controller.put("execution.environment", environment);
+        controller.put("display.buffer", output);
+        controller.put("display.logo", false);
+        controller.put("execution.session",
+                Collections.synchronizedMap(new HashMap<String, Object>())
+        );
+
+        boolean success = false;
+        try {
+            StopWatch.start();
+            try {
+                success = Nightingale.execute(arguments);
+            } catch (NightingaleException exception) {
+                DisplayUtils.printException(exception);
+            }
+            StopWatch.stop();
+            DisplayUtils.printTime();
+        } finally {
+            controller.closeScope();
+
+            // the build might have changed both language
+            // and logging, so they are restored to the
+            // daemon settings
+            LanguageController.getInstance().setLocale(
+                    ((Language) controller.get("execution.language")).
+                            getLocale()
+            );
+            LoggingController.enableLogging(
+                    (Boolean) controller.get("execution.logging")
+            );
+        }
+        return success ? 0 : 1;
+    }
+
+    /**
+     * Gets the daemon file, which holds the port and the token.
+     * @return The daemon file.
+     */
+    private File getDaemonFile() {
+        return new File(CommonUtils.buildPath(
+                (String) ConfigurationController.
+                        getInstance().
+                        get("execution.cache.path"),
+                "daemon")
+        );
+    }
+
+    /**
+     * Generates a random token.
+     * @return A string containing a random token.
+     */
+    private String generateToken() {
+        byte[] bytes = new byte[32];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the daemon file. The file is written to a temporary file first,
+     * made readable by the current user alone, and then moved to its final
+     * location.
+     * @param file The daemon file.
+     * @param port The port the daemon is listening on.
+     * @throws IOException An IO exception.
+     */
+    private void write(File file, int port) throws IOException {
+        FileUtils.forceMkdir(file.getParentFile());
+        File temporary = File.createTempFile("daemon", ".tmp",
+                file.getParentFile());
+        try {
+            Files.setPosixFilePermissions(temporary.toPath(),
+                    PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException uoexception) {
+            temporary.setReadable(false, false);
+            temporary.setReadable(true, true);
+        }
+        FileUtils.writeStringToFile(
+                temporary,
+                String.valueOf(port).concat("\n").concat(token).concat("\n"),
+                "UTF-8"
+        );
+        try {
+            Files.move(temporary.toPath(), file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException amnsexception) {
+            Files.move(temporary.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+}
@@ -34,12 +34,17 @@
 package com.github.cereda.nightingale.model;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
 import org.simpleframework.xml.ElementMap;
 import org.simpleframework.xml.Root;
 
 /**
- * The XML database model, which keeps track on file changes. I am using the
- * Simple framework to marshall and unmarshall objects and XML files.
+ * The database model, which keeps track on file changes. The database is
+ * either stored as XML, in which case I am using the Simple framework to
+ * marshall and unmarshall objects and XML files, or as a binary table, in
+ * which case lookups go straight to the table and only the changes are kept
+ * in memory, until the database is saved again.
  * @author Paulo Roberto Massa Cereda
  * @version 1.0
  * @since 1.0
@@ -49,16 +54,40 @@ public class Database {
 
     // the whole database is implemented as a map, where
     // the key is the absolute canonical file and the value
-    // is its corresponding CRC32 hash; the XML map is done
-    // inline, so it does not clutter the output a lot
+    // is its corresponding fingerprint; the XML map is done
+    // inline, so it does not clutter the output a lot; when
+    // the database comes from a binary table, the map only
+    // holds the entries added or updated since then
     @ElementMap(entry = "hash", key = "file", attribute = true, inline = true)
     private HashMap<String, String> map;
 
+    // the binary table the database was loaded
+    // from, if any, and the paths removed since
+    // then, which are still in the table
+    private DatabaseTable table;
+    private Set<String> removals;
+
+    // the paths added, updated or removed since the
+    // database was loaded, so they can be merged into
+    // a copy saved by someone else in the meantime
+    private Set<String> modifications;
+
     /**
      * Constructor. It creates a new map.
      */
     public Database() {
         map = new HashMap<String, String>();
+        removals = new HashSet<String>();
+        modifications = new HashSet<String>();
+    }
+
+    /**
+     * Constructor. It creates a database backed by the provided table.
+     * @param table The binary table.
+     */
+    public Database(DatabaseTable table) {
+        this();
+        this.table = table;
     }
 
     /**
@@ -77,4 +106,85 @@ public class Database {
         this.map = map;
     }
 
+    /**
+     * Gets the value associated with the provided path.
+     * @param path The path.
+     * @return The value, or null if the path is not in the database.
+     */
+    public String get(String path) {
+        if (map.containsKey(path)) {
+            return map.get(path);
+        }
+        if ((table == null) || removals.contains(path)) {
+            return null;
+        }
+        return table.get(path);
+    }
+
+    /**
+     * Checks if the provided path is in the database.
+     * @param path The path.
+     * @return A boolean value indicating if the path is in the database.
+     */
+    public boolean contains(String path) {
+        return get(path) != null;
+    }
+
+    /**
+     * Associates the provided value with the provided path.
+     * @param path The path.
+     * @param value The value.
+     */
+    public void put(String path, String value) {
+        map.put(path, value);
+        removals.remove(path);
+        modifications.add(path);
+    }
+
+    /**
+     * Removes the provided path from the database.
+     * @param path The path.
+     */
+    public void remove(String path) {
+        map.remove(path);
+        if (table != null) {
+            removals.add(path);
+        }
+        modifications.add(path);
+    }
+
+    /**
+     * Gets every entry in the database, merging the table, if any, with
+     * the changes made since it was loaded.
+     * @return A map containing every entry.
+     */
+    public HashMap<String, String> getEntries() {
+        HashMap<String, String> entries = new HashMap<String, String>();
+        if (table != null) {
+            entries.putAll(table.getEntries());
+            for (String path : removals) {
+                entries.remove(path);
+            }
+        }
+        entries.putAll(map);
+        return entries;
+    }
+
+    /**
+     * Applies the changes made to this database since it was loaded to the
+     * provided database, which is usually a fresher copy of the very same
+     * database file, so entries written by someone else are kept.
+     * @param database The database the changes are applied to.
+     */
+    public void applyChanges(Database database) {
+        for (String path : modifications) {
+            String value = get(path);
+            if (value == null) {
+                database.remove(path);
+            } else {
+                database.put(path, value);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,310 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements the binary database table. The table is a file read into
+ * memory, holding an open addressing hash table of paths and their
+ * corresponding values, so a lookup only touches the slots it probes and
+ * the records it compares, instead of parsing the whole database. The file
+ * starts with a header (magic number, version, capacity and count), followed
+ * by the slots (the path hash and the record offset) and then the records
+ * (the path and the value, both prefixed by their lengths).
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class DatabaseTable {
+
+    // the magic number ("NGDB"), the format
+    // version and the header and slot sizes
+    private static final int MAGIC = 0x4e474442;
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int SLOT = 12;
+
+    // paths and values are always
+    // encoded as UTF-8 strings
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // the file contents, the number of
+    // slots and the number of records
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final int count;
+
+    /**
+     * Private constructor. Tables are obtained through open().
+     * @param buffer The file contents.
+     * @param capacity The number of slots.
+     * @param count The number of records.
+     */
+    private DatabaseTable(ByteBuffer buffer, int capacity, int count) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.count = count;
+    }
+
+    /**
+     * Opens the provided table file, reading it into memory. The file is not
+     * mapped, so no handle is left behind and the file can be replaced right
+     * away, even on systems which lock mapped files.
+     * @param file The table file.
+     * @return The table.
+     * @throws IOException The file could not be read or it is not a valid
+     * table file.
+     */
+    public static DatabaseTable open(File file) throws IOException {
+        RandomAccessFile stream = new RandomAccessFile(file, "r");
+        ByteBuffer buffer;
+        try {
+            FileChannel channel = stream.getChannel();
+            long size = channel.size();
+            if ((size < HEADER) || (size > Integer.MAX_VALUE)) {
+                throw new IOException("Invalid database table size.");
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Truncated database table.");
+                }
+            }
+            buffer.flip();
+        } finally {
+            stream.close();
+        }
+        if ((buffer.getInt(0) != MAGIC)
+                || (buffer.getInt(4) != VERSION)) {
+            throw new IOException("Invalid database table header.");
+        }
+        
+        // the slots must fit in the file, and the table
+        // must have at least one free slot, otherwise
+        // a lookup could probe forever
+        int capacity = buffer.getInt(8);
+        int count = buffer.getInt(12);
+        if ((capacity <= 0) || ((capacity & (capacity - 1)) != 0)
+                || (HEADER + ((long) capacity * SLOT) > buffer.limit())
+                || (count < 0) || (count >= capacity)) {
+            throw new IOException("Invalid database table capacity.");
+        }
+        return new DatabaseTable(buffer, capacity, count);
+    }
+
+    /**
+     * Gets the number of records in the table.
+     * @return The number of records.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the value associated with the provided path.
+     * @param path The path.
+     * @return The value, or null if the path is not in the table.
+     */
+    public String get(String path) {
+        byte[] key = path.getBytes(UTF8);
+        long hash = hash(key);
+        int index = index(hash, capacity);
+        
+        // a sound table always has a free slot, but
+        // the probes are bounded anyway, so a damaged
+        // file cannot make a lookup loop forever
+        for (int probe = 0; probe < capacity; probe++) {
+            int slot = HEADER + (index * SLOT);
+            int offset = buffer.getInt(slot + 8);
+            if (offset == 0) {
+                return null;
+            }
+            if ((buffer.getLong(slot) == hash) && matches(offset, key)) {
+                int length = buffer.getInt(offset);
+                return read(offset + 4 + length);
+            }
+            index = (index + 1) & (capacity - 1);
+        }
+        return null;
+    }
+
+    /**
+     * Gets every record in the table. This method reads the whole table and
+     * it is meant for rewriting it, not for lookups.
+     * @return A map containing every record.
+     */
+    public Map<String, String> getEntries() {
+        Map<String, String> entries = new HashMap<String, String>();
+        for (int index = 0; index < capacity; index++) {
+            int offset = buffer.getInt(HEADER + (index * SLOT) + 8);
+            if (offset != 0) {
+                int length = buffer.getInt(offset);
+                entries.put(read(offset), read(offset + 4 + length));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the provided records as a table file.
+     * @param entries The records.
+     * @param file The table file.
+     * @throws IOException The file could not be written.
+     */
+    public static void write(Map<String, String> entries, File file)
+            throws IOException {
+
+        // the table is kept at most half full,
+        // so probe sequences remain short
+        int capacity = 16;
+        while (capacity < entries.size() * 2) {
+            capacity = capacity * 2;
+        }
+
+        // lay out the records right after the slots,
+        // placing each one in the first free slot
+        // of its probe sequence
+        long[] hashes = new long[capacity];
+        int[] offsets = new int[capacity];
+        List<byte[]> records = new ArrayList<byte[]>();
+        int offset = HEADER + (capacity * SLOT);
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            byte[] key = entry.getKey().getBytes(UTF8);
+            byte[] value = entry.getValue().getBytes(UTF8);
+            long hash = hash(key);
+            int index = index(hash, capacity);
+            while (offsets[index] != 0) {
+                index = (index + 1) & (capacity - 1);
+            }
+            hashes[index] = hash;
+            offsets[index] = offset;
+            records.add(key);
+            records.add(value);
+            offset = offset + 8 + key.length + value.length;
+        }
+
+        DataOutputStream stream = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file))
+        );
+        try {
+            stream.writeInt(MAGIC);
+            stream.writeInt(VERSION);
+            stream.writeInt(capacity);
+            stream.writeInt(entries.size());
+            for (int index = 0; index < capacity; index++) {
+                stream.writeLong(hashes[index]);
+                stream.writeInt(offsets[index]);
+            }
+            for (byte[] record : records) {
+                stream.writeInt(record.length);
+                stream.write(record);
+            }
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Gets the first slot index for the provided hash.
+     * @param hash The hash.
+     * @param capacity The number of slots.
+     * @return The slot index.
+     */
+    private static int index(long hash, int capacity) {
+        return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+    }
+
+    /**
+     * Checks if the record at the provided offset has the provided path.
+     * @param offset The record offset.
+     * @param key The path, as bytes.
+     * @return A boolean value indicating if the record has the path.
+     */
+    private boolean matches(int offset, byte[] key) {
+        if (buffer.getInt(offset) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + 4 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the length-prefixed string at the provided offset.
+     * @param offset The string offset.
+     * @return The string.
+     */
+    private String read(int offset) {
+        int length = buffer.getInt(offset);
+        byte[] bytes = new byte[length];
+        
+        // a duplicate has its own position, so
+        // concurrent reads do not interfere
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 4);
+        view.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Calculates the 64-bit FNV-1a hash of the provided bytes.
+     * @param bytes The bytes.
+     * @return The hash.
+     */
+    private static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash = hash ^ (b & 0xff);
+            hash = hash * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+}
@@ -61,6 +61,12 @@ public class Directive {
     // directive
     private List<Integer> lineNumbers;
 
+    // the parallel group this directive belongs to;
+    // consecutive directives sharing the same nonzero
+    // group might run concurrently, while zero means
+    // the directive runs on its own, in order
+    private int group;
+
     /**
      * Gets the directive identifier.
      * @return A string representing the directive identifier.
@@ -126,6 +132,24 @@ public class Directive {
         this.lineNumbers = lineNumbers;
     }
 
+    /**
+     * Gets the parallel group of the current directive.
+     * @return An integer value representing the parallel group, or zero if
+     * the directive must run on its own.
+     */
+    public int getGroup() {
+        return group;
+    }
+
+    /**
+     * Sets the parallel group of the current directive.
+     * @param group An integer value representing the parallel group, or zero
+     * if the directive must run on its own.
+     */
+    public void setGroup(int group) {
+        this.group = group;
+    }
+
     /**
      * Provides a textual representation of the current directive.
      * @return A string containing a textual representation of the current
@@ -138,7 +162,8 @@ public class Directive {
         builder.append("identifier: ").append(identifier).append(", ");
         builder.append("parameters: ").append(parameters).append(", ");
         builder.append("conditional: ").append(conditional).append(", ");
-        builder.append("lines: ").append(lineNumbers).append(" }");
+        builder.append("lines: ").append(lineNumbers).append(", ");
+        builder.append("group: ").append(group).append(" }");
         return builder.toString();
     }
 
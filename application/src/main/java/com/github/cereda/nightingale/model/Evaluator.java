@@ -36,10 +36,11 @@ package com.github.cereda.nightingale.model;
 import com.github.cereda.nightingale.controller.ConfigurationController;
 import com.github.cereda.nightingale.controller.LanguageController;
 import com.github.cereda.nightingale.utils.CommonUtils;
+import com.github.cereda.nightingale.utils.CompilerUtils;
+import com.github.cereda.nightingale.utils.ExpressionParser;
 import groovy.lang.Binding;
-import groovy.lang.GroovyShell;
+import groovy.lang.Script;
 import org.codehaus.groovy.control.CompilationFailedException;
-import org.codehaus.groovy.control.CompilerConfiguration;
 
 /**
  * Implements the evaluator model, on which a conditional can be analyzed and
@@ -65,6 +66,15 @@ public class Evaluator {
     // evaluation to halt regardless
     // of the the result
     private boolean halt;
+
+    // the conditional text and its prepared form: either
+    // a native expression, when the conditional is simple
+    // enough, or a compiled script class otherwise; the
+    // conditional is prepared once and simply executed
+    // again in every iteration
+    private String condition;
+    private Expression expression;
+    private Class<? extends Script> script;
     
     // the application messages obtained from the
     // language controller
@@ -81,6 +91,9 @@ public class Evaluator {
                 get("execution.loops");
         counter = 0;
         halt = false;
+        condition = null;
+        expression = null;
+        script = null;
     }
 
     /**
@@ -127,21 +140,23 @@ public class Evaluator {
             return false;
         } else {
 
-            // create a new evaluation context,
-            // set the base class and evaluate
-            // the expression
-            String base = "com.github.cereda.nightingale.model.BaseConditional";
-            Binding binding = new Binding();
-            CompilerConfiguration configuration = new CompilerConfiguration();
-            configuration.setScriptBaseClass(base);
-            GroovyShell shell = new GroovyShell(binding, configuration);
-
             try {
 
                 // get the result and try to analyze
                 // it according to its class type
-                // and conditional type
-                Object result = shell.evaluate(conditional.getCondition());
+                // and conditional type; native expressions
+                // do not need Groovy at all, and scripts have
+                // their own binding for each evaluation, but
+                // the script class is reused
+                prepare(conditional);
+                Object result;
+                if (expression != null) {
+                    result = expression.evaluate();
+                } else {
+                    result = CompilerUtils.
+                            instantiate(script, new Binding()).
+                            run();
+                }
                 if (!CommonUtils.checkClass(Boolean.class, result)) {
                     throw new NightingaleException(
                             messages.getMessage(
@@ -177,4 +192,26 @@ public class Evaluator {
         }
     }
 
+    /**
+     * Prepares the provided conditional, either as a native expression or as
+     * a compiled script class. The conditional is prepared only once, unless
+     * its text changes.
+     * @param conditional The conditional object.
+     * @throws CompilationFailedException The conditional could not be
+     * compiled.
+     */
+    private void prepare(Conditional conditional)
+            throws CompilationFailedException {
+        if (!conditional.getCondition().equals(condition)) {
+            condition = conditional.getCondition();
+            expression = new ExpressionParser(condition.trim()).parse();
+            if (expression == null) {
+                String base = "com.github.cereda.nightingale.model.BaseConditional";
+                script = CompilerUtils.compile(condition, base);
+            } else {
+                script = null;
+            }
+        }
+    }
+
 }
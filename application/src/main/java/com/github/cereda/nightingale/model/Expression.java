@@ -0,0 +1,203 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.model;
+
+import com.github.cereda.nightingale.utils.CommonUtils;
+import com.github.cereda.nightingale.utils.DependencyUtils;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Implements the expression model. An expression is a native representation
+ * of the most common conditionals, that is, calls to the file methods from
+ * the conditional base class, possibly combined through negations,
+ * conjunctions and disjunctions. Such conditionals are evaluated without
+ * Groovy at all.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class Expression {
+
+    // the types of expressions nightingale is able
+    // to evaluate natively; everything else is
+    // handled by the Groovy engine, as usual
+    public enum ExpressionType {
+
+        // a conjunction of two expressions, evaluated
+        // from left to right with short circuit
+        AND,
+
+        // a call to one of the file methods (or to
+        // the analyzer check), with string literals
+        // as arguments
+        CALL,
+
+        // the negation of an expression
+        NOT,
+
+        // a disjunction of two expressions, evaluated
+        // from left to right with short circuit
+        OR,
+
+        // a boolean literal
+        VALUE
+    }
+
+    // the expression type, specified above
+    private final ExpressionType type;
+
+    // the method name (for calls) or the literal
+    // value (for boolean literals)
+    private final String name;
+
+    // the list of string arguments (for calls)
+    // or the list of operands (for operators)
+    private final List<String> arguments;
+    private final List<Expression> operands;
+
+    /**
+     * Constructor.
+     * @param type The expression type.
+     * @param name The method name or the literal value.
+     * @param arguments The list of string arguments.
+     * @param operands The list of operands.
+     */
+    public Expression(ExpressionType type, String name,
+            List<String> arguments, List<Expression> operands) {
+        this.type = type;
+        this.name = name;
+        this.arguments = arguments;
+        this.operands = operands;
+    }
+
+    /**
+     * Gets the expression type.
+     * @return The expression type.
+     */
+    public ExpressionType getType() {
+        return type;
+    }
+
+    /**
+     * Evaluates the expression. The semantics are exactly the same of the
+     * corresponding methods in the conditional base class.
+     * @return A boolean value indicating if the expression holds.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public boolean evaluate() throws NightingaleException {
+        switch (type) {
+            case AND:
+                return operands.get(0).evaluate()
+                        && operands.get(1).evaluate();
+            case OR:
+                return operands.get(0).evaluate()
+                        || operands.get(1).evaluate();
+            case NOT:
+                return !operands.get(0).evaluate();
+            case VALUE:
+                return Boolean.parseBoolean(name);
+            default:
+                return call();
+        }
+    }
+
+    /**
+     * Evaluates the method call.
+     * @return A boolean value indicating if the method call holds.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private boolean call() throws NightingaleException {
+        if (name.equals("outdated")) {
+            return DependencyUtils.isOutdated();
+        }
+        if (name.equals("uptodate")) {
+            return !DependencyUtils.isOutdated();
+        }
+        if (name.equals("found")) {
+            return CommonUtils.found(arguments.get(0));
+        }
+        String extension = arguments.get(0);
+        if (name.equals("exists")) {
+            return CommonUtils.exists(extension);
+        } else {
+            if (name.equals("missing")) {
+                return !CommonUtils.exists(extension);
+            } else {
+                if (name.equals("changed")) {
+                    return CommonUtils.hasChanged(extension);
+                } else {
+                    if (name.equals("unchanged")) {
+                        return !CommonUtils.hasChanged(extension);
+                    } else {
+                        return CommonUtils.checkRegex(
+                                extension,
+                                arguments.get(1)
+                        );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Provides a textual representation of the expression.
+     * @return A string representation of this object.
+     */
+    @Override
+    public String toString() {
+        switch (type) {
+            case AND:
+                return "(" + operands.get(0) + " && " + operands.get(1) + ")";
+            case OR:
+                return "(" + operands.get(0) + " || " + operands.get(1) + ")";
+            case NOT:
+                return "!" + operands.get(0);
+            case VALUE:
+                return name;
+            default:
+                List<String> values = new ArrayList<String>();
+                for (String argument : arguments) {
+                    values.add(CommonUtils.addQuotes(argument));
+                }
+                return name.concat("(").
+                        concat(StringUtils.join(values, ", ")).
+                        concat(")");
+        }
+    }
+
+}
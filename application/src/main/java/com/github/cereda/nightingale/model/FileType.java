@@ -35,7 +35,9 @@ package com.github.cereda.nightingale.model;
 
 import com.github.cereda.nightingale.controller.LanguageController;
 import com.github.cereda.nightingale.utils.CommonUtils;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
@@ -58,20 +60,20 @@ public class FileType {
     private String pattern;
 
     // a map containing all file
-    // types that nightingale accepts
+    // types that nightingale accepts,
+    // in their default lookup order
     private static final Map<String, String> types =
-            new HashMap<String, String>();
+            new LinkedHashMap<String, String>();
     
     // the application messages obtained from the
     // language controller
     private static final LanguageController messages =
             LanguageController.getInstance();
 
-    /**
-     * Initializes the file type class by setting the default file types and
-     * their corresponding patterns.
-     */
-    public static void init() {
+    // the default file types and their corresponding
+    // patterns are set when the class is first used,
+    // not when the application starts
+    static {
         types.put("tex", "^\\s*%\\s+");
         types.put("dtx", "^\\s*%\\s+");
         types.put("ltx", "^\\s*%\\s+");
@@ -79,6 +81,18 @@ public class FileType {
         types.put("ins", "^\\s*%\\s+");
     }
 
+    /**
+     * Gets the list of default file types provided by nightingale, in order.
+     * @return The list of default file types, in order.
+     */
+    public static List<FileType> getDefaults() {
+        List<FileType> result = new ArrayList<FileType>();
+        for (String key : types.keySet()) {
+            result.add(new FileType(key, types.get(key)));
+        }
+        return result;
+    }
+
     /**
      * Constructor. It takes both file extension and pattern lookup.
      * @param extension The file extension.
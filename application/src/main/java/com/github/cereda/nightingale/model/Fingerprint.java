@@ -0,0 +1,176 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.model;
+
+/**
+ * Implements a file fingerprint, as stored in the database. Besides the file
+ * hash and the algorithm which produced it, the fingerprint holds the file
+ * size, its last modification time (in nanoseconds) and the file key provided
+ * by the file system, if any; when all of them are the same, the file is
+ * considered unchanged without being hashed again. The fingerprint is stored
+ * as a single string, with the hash first, so plain CRC32 hashes from older
+ * databases are still understood.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class Fingerprint {
+
+    // the field separator in the
+    // string representation
+    private static final String SEPARATOR = "|";
+
+    // the hash algorithm, the file hash, the file
+    // size, the last modification time and the file
+    // key; a negative size means the file metadata
+    // is unknown, so the hash must be checked
+    private final String algorithm;
+    private final String hash;
+    private final long size;
+    private final long modified;
+    private final String key;
+
+    /**
+     * Constructor.
+     * @param algorithm The hash algorithm.
+     * @param hash The file hash.
+     * @param size The file size, or a negative value if the metadata is
+     * unknown.
+     * @param modified The last modification time, in nanoseconds.
+     * @param key The file key, or an empty string if there is none.
+     */
+    public Fingerprint(String algorithm, String hash, long size,
+            long modified, String key) {
+        this.algorithm = algorithm;
+        this.hash = hash;
+        this.size = size;
+        this.modified = modified;
+        this.key = key;
+    }
+
+    /**
+     * Parses the provided string representation of a fingerprint.
+     * @param value The string representation, possibly a plain hash.
+     * @return The fingerprint, or null if the value is null.
+     */
+    public static Fingerprint parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] fields = value.split("\\|", 4);
+        
+        // hashes without an algorithm come
+        // from older databases, so they are
+        // plain CRC32 hashes
+        String algorithm = "crc32";
+        String hash = fields[0];
+        int index = hash.indexOf(':');
+        if (index >= 0) {
+            algorithm = hash.substring(0, index);
+            hash = hash.substring(index + 1);
+        }
+        if (fields.length < 4) {
+            return new Fingerprint(algorithm, hash, -1, 0, "");
+        }
+        try {
+            return new Fingerprint(
+                    algorithm,
+                    hash,
+                    Long.parseLong(fields[1]),
+                    Long.parseLong(fields[2]),
+                    fields[3]
+            );
+        } catch (NumberFormatException exception) {
+            return new Fingerprint(algorithm, hash, -1, 0, "");
+        }
+    }
+
+    /**
+     * Gets the hash algorithm.
+     * @return The hash algorithm.
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Gets the file hash.
+     * @return The file hash.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Creates a fingerprint with the same metadata, but with the provided
+     * hash instead.
+     * @param algorithm The hash algorithm.
+     * @param hash The file hash.
+     * @return The new fingerprint.
+     */
+    public Fingerprint withHash(String algorithm, String hash) {
+        return new Fingerprint(algorithm, hash, size, modified, key);
+    }
+
+    /**
+     * Checks if both fingerprints have the very same known file metadata,
+     * that is, size, last modification time and file key.
+     * @param fingerprint The other fingerprint.
+     * @return A boolean value indicating if the metadata is the same.
+     */
+    public boolean hasSameMetadata(Fingerprint fingerprint) {
+        return (fingerprint != null)
+                && (size >= 0)
+                && (size == fingerprint.size)
+                && (modified == fingerprint.modified)
+                && key.equals(fingerprint.key);
+    }
+
+    /**
+     * Provides a textual representation of the fingerprint, as stored in
+     * the database.
+     * @return The fingerprint as a string.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(algorithm).append(":");
+        builder.append(hash).append(SEPARATOR);
+        builder.append(size).append(SEPARATOR);
+        builder.append(modified).append(SEPARATOR);
+        builder.append(key);
+        return builder.toString();
+    }
+
+}
@@ -34,21 +34,38 @@
 package com.github.cereda.nightingale.model;
 
 import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.controller.DatabaseController;
 import com.github.cereda.nightingale.controller.LanguageController;
+import com.github.cereda.nightingale.utils.CacheUtils;
 import com.github.cereda.nightingale.utils.CommonUtils;
+import com.github.cereda.nightingale.utils.CompilerUtils;
+import com.github.cereda.nightingale.utils.DeclarationUtils;
 import com.github.cereda.nightingale.utils.DisplayUtils;
 import com.github.cereda.nightingale.utils.InterpreterUtils;
+import com.github.cereda.nightingale.utils.StateUtils;
 import groovy.lang.Binding;
 import groovy.lang.Closure;
-import groovy.lang.GroovyShell;
 import groovy.lang.MissingPropertyException;
+import groovy.lang.Script;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.codehaus.groovy.control.CompilationFailedException;
-import org.codehaus.groovy.control.CompilerConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,6 +80,23 @@ public class Interpreter {
     // list of directives to be
     // interpreted in here
     private List<Directive> directives;
+
+    // a flag indicating that a directive from the
+    // current parallel group has stopped the
+    // execution, so the others must stop as well
+    private volatile boolean cancelled;
+
+    // a flag indicating that at least one task
+    // has failed during the execution
+    private volatile boolean failed;
+
+    // the number of identical directives found before
+    // each directive, so their states are kept apart
+    private Map<Directive, Integer> occurrences;
+
+    // the inputs and outputs of every directive which
+    // has either run or been skipped, indexed by key
+    private Map<String, Pair<List<String>, Set<String>>> states;
     
     // the application messages obtained from the
     // language controller
@@ -84,191 +118,631 @@ public class Interpreter {
 
     /**
      * Executes each directive, throwing an exception if something bad has
-     * happened.
+     * happened. Directives run in order, except for consecutive directives
+     * sharing a parallel group, which run concurrently on a pool of workers
+     * when more than one job is allowed; the next directive only starts when
+     * the whole group is finished.
+     * @return A boolean value indicating if every task has succeeded.
      * @throws NightingaleException Something wrong happened, to be caught in
      * the higher levels.
      */
-    public void execute() throws NightingaleException {
-        
-        
-        // for every directive in the list of
-        // directives, this method will evaluate
-        // the rules and tasks and run them
-        // accordingly
+    public boolean execute() throws NightingaleException {
+
+        // parallel execution is only available when
+        // the output is not interactive, that is,
+        // neither in verbose nor in dry-run modes
+        int jobs = (int) ((long) (Long) ConfigurationController.
+                getInstance().
+                get("execution.jobs"));
+        boolean parallel = jobs > 1
+                && !((Boolean) ConfigurationController.
+                        getInstance().
+                        get("execution.verbose"))
+                && !((Boolean) ConfigurationController.
+                        getInstance().
+                        get("execution.dryrun"));
+
+        // count identical directives, so each one of
+        // them gets its own state when directives
+        // might be skipped
+        occurrences = new IdentityHashMap<Directive, Integer>();
+        states = new LinkedHashMap<String, Pair<List<String>, Set<String>>>();
+        Map<String, Integer> signatures = new HashMap<String, Integer>();
         for (Directive directive : directives) {
+            String signature = StateUtils.getSignature(directive);
+            Integer occurrence = signatures.get(signature);
+            occurrence = (occurrence == null) ? 0 : occurrence + 1;
+            signatures.put(signature, occurrence);
+            occurrences.put(directive, occurrence);
+        }
 
-            // add the current info to
-            // the logging framework
-            logger.info(messages.getMessage(
-                    Messages.LOG_INFO_INTERPRET_RULE,
-                    directive.getIdentifier())
-            );
+        ExecutorService pool = null;
+        try {
+            int index = 0;
+            while (index < directives.size()) {
 
-            // set the current file being executed;
-            // this is needed in order to make methods
-            // like changed() and exists() to work for
-            // file extensions; note that this value might
-            // be different from the main file being
-            // processed by nightingale
-            ConfigurationController.
-                    getInstance().
-                    put("execution.file",
-                            directive.getParameters().get("file")
+                // find the group of consecutive directives
+                // that can run along with the current one
+                int group = directives.get(index).getGroup();
+                int end = index + 1;
+                if (parallel && (group != 0)) {
+                    while ((end < directives.size())
+                            && (directives.get(end).getGroup() == group)) {
+                        end++;
+                    }
+                    end = schedule(index, end);
+                }
+
+                boolean proceed;
+                if (end - index == 1) {
+                    proceed = execute(directives.get(index));
+                } else {
+                    if (pool == null) {
+                        pool = Executors.newFixedThreadPool(jobs);
+                    }
+                    proceed = execute(
+                            directives.subList(index, end),
+                            pool,
+                            jobs
                     );
-            
-            // obtain rule from a list of paths
-            // (at least the application path)
-            // or throw an error in case the
-            // rule is not found
-            File rule = getRule(directive);
-
-            // add the current info to the
-            // logging framework
-            logger.info(messages.getMessage(
-                    Messages.LOG_INFO_RULE_LOCATION,
-                    rule.getParent())
+                }
+
+                if (!proceed) {
+                    break;
+                }
+                index = end;
+            }
+
+            // states are only recorded when everything
+            // went fine, and all at once, so they reflect
+            // the files as they are by the end of the run
+            if (!failed && !states.isEmpty()) {
+                StateUtils.commit(states);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+
+            // the change database is kept in memory during the
+            // whole interpretation, so this is the checkpoint in
+            // which pending changes are actually written back
+            DatabaseController.getInstance().flush();
+        }
+        return !failed;
+    }
+
+    /**
+     * Schedules the provided range of directives sharing a parallel group,
+     * according to their declared inputs and outputs. The range is cut
+     * short right before the first directive that writes a file another
+     * directive of the range reads or writes, or the other way around, so
+     * such directives do not run at the same time. Directives without
+     * declarations are not taken into account.
+     * @param start The index of the first directive of the range.
+     * @param end The index right after the last directive of the range.
+     * @return The index right after the last directive that can run along
+     * with the first one.
+     */
+    private int schedule(int start, int end) {
+        List<Pair<List<String>, List<String>>> declarations =
+                new ArrayList<Pair<List<String>, List<String>>>();
+        for (int i = start; i < end; i++) {
+            Pair<List<String>, List<String>> current =
+                    getDeclarations(directives.get(i));
+            for (Pair<List<String>, List<String>> previous : declarations) {
+                if (DeclarationUtils.overlaps(
+                        previous.getSecondElement(),
+                        current.getFirstElement())
+                        || DeclarationUtils.overlaps(
+                                previous.getSecondElement(),
+                                current.getSecondElement())
+                        || DeclarationUtils.overlaps(
+                                current.getSecondElement(),
+                                previous.getFirstElement())) {
+                    logger.info(messages.getMessage(
+                            Messages.LOG_INFO_PARALLEL_STAGE_SPLIT,
+                            directives.get(i).getIdentifier())
+                    );
+                    return i;
+                }
+            }
+            declarations.add(current);
+        }
+        return end;
+    }
+
+    /**
+     * Gets the declared inputs and outputs of the provided directive. The
+     * rule is evaluated, but none of its commands is; if anything goes
+     * wrong, the directive is simply taken as having no declarations, since
+     * the very same problem will be properly reported when it runs. The
+     * watch mode relies on this method as well.
+     * @param directive The directive.
+     * @return A pair containing the lists of globs denoting the inputs and
+     * the outputs, relative to the working directory; any of them might be
+     * null when not declared.
+     */
+    Pair<List<String>, List<String>> getDeclarations(
+            Directive directive) {
+        File file = (File) directive.getParameters().get("file");
+        try {
+            Binding binding = new Binding();
+            BaseRule.setParameters(directive.getParameters());
+            CompilerUtils.instantiate(
+                    CompilerUtils.compile(
+                            getRule(directive),
+                            "com.github.cereda.nightingale.model.BaseRule"
+                    ),
+                    binding
+            ).run();
+            Object header = binding.getVariable("rule");
+            Object commands = binding.getVariable("commands");
+            InterpreterUtils.checkHeader(header);
+            InterpreterUtils.checkCommands(commands);
+            return new Pair<List<String>, List<String>>(
+                    DeclarationUtils.resolve(
+                            InterpreterUtils.getAllPatterns(
+                                    header,
+                                    commands,
+                                    "inputs"
+                            ),
+                            file
+                    ),
+                    DeclarationUtils.resolve(
+                            InterpreterUtils.getAllPatterns(
+                                    header,
+                                    commands,
+                                    "outputs"
+                            ),
+                            file
+                    )
             );
+        } catch (Exception exception) {
+            return new Pair<List<String>, List<String>>(null, null);
+        }
+    }
+
+    /**
+     * Executes the provided group of directives in parallel. Every directive
+     * runs in its own configuration scope, and entries are only displayed
+     * when their results are known. The first directive to stop the
+     * execution, either by failing or by a halt trigger, cancels the
+     * outstanding ones.
+     * @param group The group of directives.
+     * @param pool The pool of workers.
+     * @param jobs The number of workers.
+     * @return A boolean value indicating if the execution should proceed to
+     * the next directive.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private boolean execute(List<Directive> group, ExecutorService pool,
+            int jobs) throws NightingaleException {
 
-            // set the current rule identifier,
-            // path and lines to the configuration
-            // controller
+        logger.info(messages.getMessage(
+                Messages.LOG_INFO_PARALLEL_STAGE,
+                group.size(),
+                jobs)
+        );
+
+        // the settings of the current thread, if any,
+        // are handed over to every worker scope
+        final Map<String, Object> parent = ConfigurationController.
+                getInstance().
+                getScope();
+        cancelled = false;
+
+        // the display state is kept in the worker
+        // scopes, so this flag tells whether any of
+        // the workers has displayed an entry
+        final AtomicBoolean displayed = new AtomicBoolean(false);
+
+        CompletionService<Boolean> service =
+                new ExecutorCompletionService<Boolean>(pool);
+        List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+        for (final Directive directive : group) {
+            futures.add(service.submit(new Callable<Boolean>() {
+
+                @Override
+                public Boolean call() throws NightingaleException {
+                    if (cancelled) {
+                        return false;
+                    }
+                    ConfigurationController controller =
+                            ConfigurationController.getInstance();
+                    controller.openScope(parent);
+                    controller.put("display.deferred", true);
+                    controller.put("execution.parallel", true);
+                    try {
+                        boolean proceed = execute(directive);
+                        if (!proceed) {
+                            cancelled = true;
+                        }
+                        return proceed;
+                    } catch (NightingaleException nexception) {
+                        cancelled = true;
+                        throw nexception;
+                    } finally {
+                        if (controller.contains("display.entry")) {
+                            displayed.set(true);
+                        }
+                        controller.closeScope();
+                    }
+                }
+            }));
+        }
+
+        // wait for the directives in the order they
+        // finish, so a failure cancels the others
+        // as soon as possible
+        boolean proceed = true;
+        NightingaleException failure = null;
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<Boolean> future = service.take();
+                try {
+                    if (!future.get()) {
+                        proceed = false;
+                    }
+                } catch (CancellationException cexception) {
+                    proceed = false;
+                } catch (ExecutionException eexception) {
+                    proceed = false;
+                    if (failure == null) {
+                        if (eexception.getCause()
+                                instanceof NightingaleException) {
+                            failure = (NightingaleException)
+                                    eexception.getCause();
+                        } else {
+                            failure = new NightingaleException(
+                                    CommonUtils.getRuleErrorHeader().
+                                    concat(messages.getMessage(
+                                            Messages.ERROR_INTERPRETER_GENERIC_EXCEPTION)
+                                    ),
+                                    eexception
+                            );
+                        }
+                    }
+                }
+                if (!proceed) {
+                    cancel(futures);
+                }
+            }
+        } catch (InterruptedException iexception) {
+            cancel(futures);
+            throw new NightingaleException(
+                    messages.getMessage(
+                            Messages.ERROR_INTERPRETER_INTERRUPTED
+                    ),
+                    iexception
+            );
+        }
+
+        if (displayed.get()) {
             ConfigurationController.
                     getInstance().
-                    put("execution.info.rule.id",
-                            directive.getIdentifier()
-                    );
+                    put("display.line", false);
             ConfigurationController.
                     getInstance().
-                    put("execution.info.rule.path",
-                            rule.getParent()
-                    );
+                    put("display.result", true);
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return proceed;
+    }
+
+    /**
+     * Cancels the provided list of directive executions. Executions not yet
+     * started are simply discarded, while running ones are interrupted.
+     * @param futures The list of directive executions.
+     */
+    private void cancel(List<Future<Boolean>> futures) {
+        cancelled = true;
+        for (Future<Boolean> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Executes the provided directive, throwing an exception if something bad
+     * has happened.
+     * @param directive The directive.
+     * @return A boolean value indicating if the execution should proceed to
+     * the next directive; it is false when the directive failed and the
+     * execution halts on errors, or when a halt trigger was processed.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private boolean execute(Directive directive) throws NightingaleException {
+
+        // add the current info to
+        // the logging framework
+        logger.info(messages.getMessage(
+                Messages.LOG_INFO_INTERPRET_RULE,
+                directive.getIdentifier())
+        );
+
+        // set the current file being executed;
+        // this is needed in order to make methods
+        // like changed() and exists() to work for
+        // file extensions; note that this value might
+        // be different from the main file being
+        // processed by nightingale
+        ConfigurationController.
+                getInstance().
+                put("execution.file",
+                        directive.getParameters().get("file")
+                );
+        
+        // obtain rule from a list of paths
+        // (at least the application path)
+        // or throw an error in case the
+        // rule is not found
+        File rule = getRule(directive);
+
+        // add the current info to the
+        // logging framework
+        logger.info(messages.getMessage(
+                Messages.LOG_INFO_RULE_LOCATION,
+                rule.getParent())
+        );
+
+        // set the current rule identifier,
+        // path and lines to the configuration
+        // controller
+        ConfigurationController.
+                getInstance().
+                put("execution.info.rule.id",
+                        directive.getIdentifier()
+                );
+        ConfigurationController.
+                getInstance().
+                put("execution.info.rule.path",
+                        rule.getParent()
+                );
+        ConfigurationController.
+                getInstance().
+                put("execution.directive.lines",
+                        directive.getLineNumbers()
+                );
+
+        // set the binding and the base class; note
+        // that the rule is compiled only once per
+        // execution and then simply instantiated
+        // for every directive that refers to it
+        String base = "com.github.cereda.nightingale.model.BaseRule";
+        Binding binding = new Binding();
+        BaseRule.setParameters(directive.getParameters());
+
+        try {
+            
+            // evaluate rule, checking header, validating
+            // identifier, version and arguments
+            Class<? extends Script> script =
+                    CompilerUtils.compile(rule, base);
+            CompilerUtils.instantiate(script, binding).run();
+            Object holder = binding.getVariable("rule");
+            InterpreterUtils.checkHeader(holder);
+            InterpreterUtils.validateIdentifier(holder, rule);
+            InterpreterUtils.checkVersion(holder);
+            InterpreterUtils.validateArguments(
+                    holder,
+                    directive.getParameters()
+            );
+
+            // get the rule name, the list of authors, and
+            // put the arguments list in the configuration
+            // controller in order to make methods like
+            // ensure() to not accept unknown keys
+            String name = InterpreterUtils.getRuleName(holder);
+            List<String> authors = InterpreterUtils.getAuthors(holder);
             ConfigurationController.
                     getInstance().
-                    put("execution.directive.lines",
-                            directive.getLineNumbers()
+                    put("execution.rule.arguments",
+                            InterpreterUtils.getRuleArguments(holder)
                     );
 
-            // set the shell configuration, binding,
-            // configuration and base class
-            String base = "com.github.cereda.nightingale.model.BaseRule";
-            Binding binding = new Binding();
-            BaseRule.setParameters(directive.getParameters());
-            CompilerConfiguration configuration = new CompilerConfiguration();
-            configuration.setScriptBaseClass(base);
-            GroovyShell shell = new GroovyShell(binding, configuration);
+            // get the rule commands, check them
+            // and create a new evaluator
+            Object header = holder;
+            holder = binding.getVariable("commands");
+            InterpreterUtils.checkCommands(holder);
+            Evaluator evaluator = new Evaluator();
 
-            try {
-                
-                // evaluate rule, checking header, validating
-                // identifier, version and arguments
-                shell.evaluate(rule);
-                Object holder = shell.getVariable("rule");
-                InterpreterUtils.checkHeader(holder);
-                InterpreterUtils.validateIdentifier(holder, rule);
-                InterpreterUtils.checkVersion(holder);
-                InterpreterUtils.validateArguments(
-                        holder,
-                        directive.getParameters()
+            // the directive might be skipped altogether when
+            // nothing it has read or written has changed since
+            // its last successful run; otherwise, the files
+            // around are scanned, so its outputs are known
+            File file = (File) directive.getParameters().get("file");
+            String key = null;
+            Map<String, String> before = null;
+            if (StateUtils.isEnabled()) {
+                key = StateUtils.getKey(
+                        directive,
+                        rule,
+                        occurrences.get(directive)
                 );
-
-                // get the rule name, the list of authors, and
-                // put the arguments list in the configuration
-                // controller in order to make methods like
-                // ensure() to not accept unknown keys
-                String name = InterpreterUtils.getRuleName(holder);
-                List<String> authors = InterpreterUtils.getAuthors(holder);
-                ConfigurationController.
-                        getInstance().
-                        put("execution.rule.arguments",
-                                InterpreterUtils.getRuleArguments(holder)
+                List<String> inputs = DeclarationUtils.getInputs(
+                        InterpreterUtils.getAllPatterns(
+                                header,
+                                holder,
+                                "inputs"
+                        ),
+                        file
+                );
+                if (StateUtils.isUpToDate(key, inputs)) {
+                    logger.info(messages.getMessage(
+                            Messages.LOG_INFO_DIRECTIVE_UP_TO_DATE,
+                            directive.getIdentifier())
+                    );
+                    for (Map command : InterpreterUtils.getCommands(holder)) {
+                        DisplayUtils.printEntry(
+                                name,
+                                (String) command.get("name")
                         );
-
-                // get the rule commands, check them
-                // and create a new evaluator
-                holder = shell.getVariable("commands");
-                InterpreterUtils.checkCommands(holder);
-                Evaluator evaluator = new Evaluator();
-
-                // check if the current directive has a prior
-                // evaluation; if so, we need to evaluate it
-                // right now
-                boolean available = true;
-                if (InterpreterUtils.runPriorEvaluation(
-                        directive.getConditional())) {
-                    available = evaluator.evaluate(directive.getConditional());
+                        DisplayUtils.printEntryUpToDate();
+                    }
+                    states.put(key, new Pair<List<String>, Set<String>>(
+                            inputs,
+                            StateUtils.getOutputs(key)
+                    ));
+                    return true;
                 }
+                before = CacheUtils.scan();
+            }
+
+            // check if the current directive has a prior
+            // evaluation; if so, we need to evaluate it
+            // right now
+            boolean available = true;
+            if (InterpreterUtils.runPriorEvaluation(
+                    directive.getConditional())) {
+                available = evaluator.evaluate(directive.getConditional());
+            }
 
-                // we are good to go, so let's
-                // evaluate each command
-                if (available) {
+            // we are good to go, so let's
+            // evaluate each command
+            if (available) {
+                
+                // it's a loop because we can have conditionals that
+                // might require repeating such executions; in the end
+                // of this block, there is a conditional evaluation
+                do {
                     
-                    // it's a loop because we can have conditionals that
-                    // might require repeating such executions; in the end
-                    // of this block, there is a conditional evaluation
-                    do {
-                        
-                        // get the list of commands, so
-                        // we can evaluate them
-                        List<Map> commands = InterpreterUtils
-                                .getCommands(holder);
-                        
-                        // for each command found in the
-                        // list of commands of the current
-                        // rule, let's evaluate it
-                        for (Map command : commands) {
-
-                            // get the first command and
-                            // run the closure
-                            Closure closure = (Closure) command.get("command");
-                            Object result = closure.call();
-
-                            // this list will hold the
-                            // commands execution
-                            List<Object> execution = new ArrayList<Object>();
-
-                            // if we got a list as result,
-                            // let's flatten the list and
-                            // add each command to the list;
-                            // otherwise, we simply add the
-                            // result to the list
-                            if (CommonUtils.checkClass(List.class, result)) {
-                                execution = CommonUtils.
-                                        flatten((List<?>) result);
-                            } else {
-                                execution.add(result);
+                    // get the list of commands, so
+                    // we can evaluate them
+                    List<Map> commands = InterpreterUtils
+                            .getCommands(holder);
+                    
+                    // for each command found in the
+                    // list of commands of the current
+                    // rule, let's evaluate it
+                    for (Map command : commands) {
+
+                        // the output cache only takes the
+                        // declared inputs of the command into
+                        // account, if there are any
+                        ConfigurationController.
+                                getInstance().
+                                put("execution.command.inputs",
+                                        CacheUtils.isEnabled()
+                                        ? DeclarationUtils.getInputs(
+                                                InterpreterUtils.getPatterns(
+                                                        header,
+                                                        command,
+                                                        "inputs"
+                                                ),
+                                                file
+                                        )
+                                        : null
+                                );
+
+                        // the analyzers of the command watch
+                        // its output while it runs and publish
+                        // their results in the session
+                        ConfigurationController.
+                                getInstance().
+                                put("execution.command.analyzers",
+                                        InterpreterUtils.getAnalyzers(command)
+                                );
+
+                        // get the first command and
+                        // run the closure
+                        Closure closure = (Closure) command.get("command");
+                        Object result = closure.call();
+
+                        // this list will hold the
+                        // commands execution
+                        List<Object> execution = new ArrayList<Object>();
+
+                        // if we got a list as result,
+                        // let's flatten the list and
+                        // add each command to the list;
+                        // otherwise, we simply add the
+                        // result to the list
+                        if (CommonUtils.checkClass(List.class, result)) {
+                            execution = CommonUtils.
+                                    flatten((List<?>) result);
+                        } else {
+                            execution.add(result);
+                        }
+
+                        // for each command in the
+                        // execution list, we check
+                        // if it's not null and if
+                        // types are valid
+                        for (Object current : execution) {
+
+                            // a parallel directive might have stopped
+                            // the execution, so there is no point in
+                            // running the remaining commands
+                            if (cancelled) {
+                                return false;
                             }
 
-                            // for each command in the
-                            // execution list, we check
-                            // if it's not null and if
-                            // types are valid
-                            for (Object current : execution) {
-                                if (current == null) {
-                                    throw new NightingaleException(
-                                            messages.getMessage(
-                                                    Messages.ERROR_INTERPRETER_NULL_COMMAND_LIST
-                                            )
+                            if (current == null) {
+                                throw new NightingaleException(
+                                        messages.getMessage(
+                                                Messages.ERROR_INTERPRETER_NULL_COMMAND_LIST
+                                        )
+                                );
+                            } else {
+                                
+                                // check if it's not an empty string,
+                                // otherwise nothing happends
+                                if (!CommonUtils.
+                                        checkEmptyString(
+                                                String.valueOf(current))
+                                        ) {
+                                    DisplayUtils.printEntry(
+                                            name,
+                                            (String) command.get("name")
                                     );
-                                } else {
+
+                                    boolean success = true;
                                     
-                                    // check if it's not an empty string,
-                                    // otherwise nothing happends
-                                    if (!CommonUtils.
-                                            checkEmptyString(
-                                                    String.valueOf(current))
-                                            ) {
-                                        DisplayUtils.printEntry(
-                                                name,
-                                                (String) command.get("name")
-                                        );
-
-                                        boolean success = true;
+                                    // we check if it's a boolean result,
+                                    // that is, the computation happened
+                                    // inside the command closure
+                                    if (CommonUtils.checkClass(
+                                            Boolean.class,
+                                            current)) {
+                                        if (((Boolean) ConfigurationController.
+                                                getInstance().
+                                                get("execution.dryrun")) == false) {
+                                            if (((Boolean) ConfigurationController.
+                                                    getInstance().
+                                                    get("execution.verbose")) == true) {
+                                                DisplayUtils.wrapText(
+                                                        messages.getMessage(
+                                                                Messages.INFO_INTERPRETER_VERBOSE_MODE_BOOLEAN_MODE
+                                                        )
+                                                );
+                                            }
+                                        } else {
+                                            DisplayUtils.printAuthors(authors);
+                                            DisplayUtils.wrapText(
+                                                    messages.getMessage(
+                                                            Messages.INFO_INTERPRETER_DRYRUN_MODE_BOOLEAN_MODE
+                                                    )
+                                            );
+                                            DisplayUtils.printConditional(
+                                                    directive.getConditional()
+                                            );
+                                        }
+                                        
+                                        success = (Boolean) current;
+                                        
+                                    } else {
                                         
-                                        // we check if it's a boolean result,
-                                        // that is, the computation happened
-                                        // inside the command closure
+                                        // let's check if it's a trigger,
+                                        // which can alter the application
+                                        // behaviour
                                         if (CommonUtils.checkClass(
-                                                Boolean.class,
+                                                Trigger.class,
                                                 current)) {
                                             if (((Boolean) ConfigurationController.
                                                     getInstance().
@@ -278,7 +752,7 @@ public class Interpreter {
                                                         get("execution.verbose")) == true) {
                                                     DisplayUtils.wrapText(
                                                             messages.getMessage(
-                                                                    Messages.INFO_INTERPRETER_VERBOSE_MODE_BOOLEAN_MODE
+                                                                    Messages.INFO_INTERPRETER_VERBOSE_MODE_TRIGGER_MODE
                                                             )
                                                     );
                                                 }
@@ -286,158 +760,160 @@ public class Interpreter {
                                                 DisplayUtils.printAuthors(authors);
                                                 DisplayUtils.wrapText(
                                                         messages.getMessage(
-                                                                Messages.INFO_INTERPRETER_DRYRUN_MODE_BOOLEAN_MODE
+                                                                Messages.INFO_INTERPRETER_DRYRUN_MODE_TRIGGER_MODE
                                                         )
                                                 );
                                                 DisplayUtils.printConditional(
                                                         directive.getConditional()
                                                 );
                                             }
-                                            
-                                            success = (Boolean) current;
-                                            
+
+                                            Trigger trigger = (Trigger) current;
+                                            trigger.process();
+
                                         } else {
                                             
-                                            // let's check if it's a trigger,
-                                            // which can alter the application
-                                            // behaviour
-                                            if (CommonUtils.checkClass(
-                                                    Trigger.class,
-                                                    current)) {
-                                                if (((Boolean) ConfigurationController.
-                                                        getInstance().
-                                                        get("execution.dryrun")) == false) {
-                                                    if (((Boolean) ConfigurationController.
-                                                            getInstance().
-                                                            get("execution.verbose")) == true) {
-                                                        DisplayUtils.wrapText(
-                                                                messages.getMessage(
-                                                                        Messages.INFO_INTERPRETER_VERBOSE_MODE_TRIGGER_MODE
-                                                                )
-                                                        );
-                                                    }
+                                            // not a boolean nor a trigger,
+                                            // so it's either a command or
+                                            // a string
+                                            Object representation = CommonUtils.
+                                                    checkClass(
+                                                            Command.class,
+                                                            current
+                                                    )
+                                                    ? current
+                                                    : String.valueOf(current);
+
+                                            logger.info(
+                                                    messages.getMessage(
+                                                            Messages.LOG_INFO_SYSTEM_COMMAND,
+                                                            representation
+                                                    )
+                                            );
+
+                                            if (((Boolean) ConfigurationController.
+                                                    getInstance().get("execution.dryrun")) == false) {
+
+                                                int code = InterpreterUtils.run(representation);
+                                                Closure evaluation = (Closure) command.get("exit");
+                                                Object check = evaluation.call(code);
+                                                if (CommonUtils.checkClass(
+                                                        Boolean.class,
+                                                        check)) {
+                                                    success = (Boolean) check
+                                                            && !((Boolean) ConfigurationController.
+                                                                    getInstance().
+                                                                    get("execution.command.terminated"));
                                                 } else {
-                                                    DisplayUtils.printAuthors(authors);
-                                                    DisplayUtils.wrapText(
+                                                    throw new NightingaleException(
                                                             messages.getMessage(
-                                                                    Messages.INFO_INTERPRETER_DRYRUN_MODE_TRIGGER_MODE
+                                                                    Messages.ERROR_INTERPRETER_WRONG_EXIT_CLOSURE_RETURN
                                                             )
                                                     );
-                                                    DisplayUtils.printConditional(
-                                                            directive.getConditional()
-                                                    );
                                                 }
-
-                                                Trigger trigger = (Trigger) current;
-                                                trigger.process();
-
                                             } else {
-                                                
-                                                // not a boolean nor a trigger,
-                                                // so it's either a command or
-                                                // a string
-                                                Object representation = CommonUtils.
-                                                        checkClass(
-                                                                Command.class,
-                                                                current
-                                                        )
-                                                        ? current
-                                                        : String.valueOf(current);
-
-                                                logger.info(
+                                                DisplayUtils.printAuthors(authors);
+                                                DisplayUtils.wrapText(
                                                         messages.getMessage(
-                                                                Messages.LOG_INFO_SYSTEM_COMMAND,
+                                                                Messages.INFO_INTERPRETER_DRYRUN_MODE_SYSTEM_COMMAND,
                                                                 representation
                                                         )
                                                 );
-
-                                                if (((Boolean) ConfigurationController.
-                                                        getInstance().get("execution.dryrun")) == false) {
-
-                                                    int code = InterpreterUtils.run(representation);
-                                                    Closure evaluation = (Closure) command.get("exit");
-                                                    Object check = evaluation.call(code);
-                                                    if (CommonUtils.checkClass(
-                                                            Boolean.class,
-                                                            check)) {
-                                                        success = (Boolean) check;
-                                                    } else {
-                                                        throw new NightingaleException(
-                                                                messages.getMessage(
-                                                                        Messages.ERROR_INTERPRETER_WRONG_EXIT_CLOSURE_RETURN
-                                                                )
-                                                        );
-                                                    }
-                                                } else {
-                                                    DisplayUtils.printAuthors(authors);
-                                                    DisplayUtils.wrapText(
-                                                            messages.getMessage(
-                                                                    Messages.INFO_INTERPRETER_DRYRUN_MODE_SYSTEM_COMMAND,
-                                                                    representation
-                                                            )
-                                                    );
-                                                    DisplayUtils.printConditional(directive.getConditional());
-                                                }
-
+                                                DisplayUtils.printConditional(directive.getConditional());
                                             }
+
                                         }
+                                    }
 
-                                        DisplayUtils.printEntryResult(success);
+                                    DisplayUtils.printEntryResult(success);
+                                    if (!success) {
+                                        failed = true;
+                                    }
 
-                                        // two situations might make the current
-                                        // rule evaluation stop: a failure (if
-                                        // the flag on halting on errors is
-                                        // enabled) or through a 'halt' trigger
-                                        if (((Boolean) ConfigurationController.
-                                                getInstance().
-                                                get("trigger.halt"))
-                                                || (((Boolean) ConfigurationController.
-                                                        getInstance().
-                                                        get("execution.errors.halt")
-                                                && !success))) {
-                                            return;
-                                        }
+                                    // two situations might make the current
+                                    // rule evaluation stop: a failure (if
+                                    // the flag on halting on errors is
+                                    // enabled) or through a 'halt' trigger
+                                    if (((Boolean) ConfigurationController.
+                                            getInstance().
+                                            get("trigger.halt"))
+                                            || (((Boolean) ConfigurationController.
+                                                    getInstance().
+                                                    get("execution.errors.halt")
+                                            && !success))) {
+                                        return false;
                                     }
                                 }
                             }
-
                         }
-                    } while (evaluator.evaluate(directive.getConditional()));
-                }
-            } catch (CompilationFailedException cfexception) {
-                throw new NightingaleException(
-                        CommonUtils.getRuleErrorHeader().
-                        concat(messages.getMessage(
-                                Messages.ERROR_INTERPRETER_COMPILATION_FAILED)
-                        ),
-                        cfexception
-                );
-            } catch (IOException ioexception) {
-                throw new NightingaleException(
-                        CommonUtils.getRuleErrorHeader().
-                        concat(messages.getMessage(
-                                Messages.ERROR_INTERPRETER_IO_EXCEPTION)
-                        ),
-                        ioexception
-                );
-            } catch (MissingPropertyException mpexception) {
-                throw new NightingaleException(
-                        CommonUtils.getRuleErrorHeader().
-                        concat(messages.getMessage(
-                                Messages.ERROR_INTERPRETER_MISSING_PROPERTY)
-                        ),
-                        mpexception
-                );
-            } catch (Exception exception) {
-                throw new NightingaleException(
-                        CommonUtils.getRuleErrorHeader().
-                        concat(messages.getMessage(
-                                Messages.ERROR_INTERPRETER_GENERIC_EXCEPTION)
-                        ),
-                        exception
+
+                    }
+                } while (evaluator.evaluate(directive.getConditional()));
+            }
+
+            // the directive has finished, so whatever has
+            // changed in the meantime is one of its outputs
+            if (key != null) {
+                Set<String> outputs = StateUtils.getOutputs(
+                        before,
+                        CacheUtils.scan(),
+                        DeclarationUtils.resolve(
+                                InterpreterUtils.getAllPatterns(
+                                        header,
+                                        holder,
+                                        "outputs"
+                                ),
+                                file
+                        )
                 );
+                if (outputs != null) {
+                    states.put(key, new Pair<List<String>, Set<String>>(
+                            DeclarationUtils.getInputs(
+                                    InterpreterUtils.getAllPatterns(
+                                            header,
+                                            holder,
+                                            "inputs"
+                                    ),
+                                    file
+                            ),
+                            outputs
+                    ));
+                }
             }
+        } catch (CompilationFailedException cfexception) {
+            throw new NightingaleException(
+                    CommonUtils.getRuleErrorHeader().
+                    concat(messages.getMessage(
+                            Messages.ERROR_INTERPRETER_COMPILATION_FAILED)
+                    ),
+                    cfexception
+            );
+        } catch (IOException ioexception) {
+            throw new NightingaleException(
+                    CommonUtils.getRuleErrorHeader().
+                    concat(messages.getMessage(
+                            Messages.ERROR_INTERPRETER_IO_EXCEPTION)
+                    ),
+                    ioexception
+            );
+        } catch (MissingPropertyException mpexception) {
+            throw new NightingaleException(
+                    CommonUtils.getRuleErrorHeader().
+                    concat(messages.getMessage(
+                            Messages.ERROR_INTERPRETER_MISSING_PROPERTY)
+                    ),
+                    mpexception
+            );
+        } catch (Exception exception) {
+            throw new NightingaleException(
+                    CommonUtils.getRuleErrorHeader().
+                    concat(messages.getMessage(
+                            Messages.ERROR_INTERPRETER_GENERIC_EXCEPTION)
+                    ),
+                    exception
+            );
         }
+        return true;
     }
 
     /**
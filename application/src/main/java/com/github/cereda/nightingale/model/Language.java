@@ -63,10 +63,9 @@ public class Language {
     private static final Map<String, Pair<String, Locale>> languages =
             new HashMap<String, Pair<String, Locale>>();
 
-    /**
-     * Initialize the language model. All supported languages are added in here.
-     */
-    public static void init() {
+    // all supported languages are added in here,
+    // when the class is first used
+    static {
         languages.put("en", new Pair<String, Locale>(
                 "English",
                 new Locale("en"))
@@ -49,7 +49,14 @@ import ch.qos.cal10n.LocaleData;
 })
 public enum Messages {
     ERROR_BASENAME_NOT_A_FILE,
+    ERROR_BATCH_GENERIC_EXCEPTION,
+    ERROR_BATCH_INTERRUPTED,
     ERROR_CALCULATEHASH_IO_EXCEPTION,
+    ERROR_CHECKCOMMANDS_ANALYZERS_INVALID_ELEMENT,
+    ERROR_CHECKCOMMANDS_PATTERNS_EMPTY_STRING,
+    ERROR_CHECKCOMMANDS_PATTERNS_NOT_A_STRING_LIST,
+    ERROR_CHECKHEADER_PATTERNS_EMPTY_STRING,
+    ERROR_CHECKHEADER_PATTERNS_NOT_A_STRING_LIST,
     ERROR_CHECK_INVALID_KEY,
     ERROR_CHECK_UNKNOWN_TYPE,
     ERROR_CHECKBOOLEAN_NOT_VALID_BOOLEAN,
@@ -79,8 +86,18 @@ public enum Messages {
     ERROR_CHECKPATHS_NOT_A_STRING,
     ERROR_CHECKREGEX_IO_EXCEPTION,
     ERROR_CHECKVERSION_VERSION_TOO_OLD,
+    ERROR_CONFIGURATION_CLASS_CACHE_SIZE_INVALID_RANGE,
+    ERROR_CONFIGURATION_INVALID_DATABASE_FORMAT,
+    ERROR_CONFIGURATION_INVALID_FATAL_PATTERNS,
+    ERROR_CONFIGURATION_INVALID_HASH_ALGORITHM,
+    ERROR_CONFIGURATION_INVALID_OUTPUT_POLICY,
+    ERROR_CONFIGURATION_JOBS_INVALID_RANGE,
     ERROR_CONFIGURATION_LOOPS_INVALID_RANGE,
+    ERROR_CONFIGURATION_OUTPUT_CACHE_SIZE_INVALID_RANGE,
     ERROR_CONFIGURATION_TIMEOUT_INVALID_RANGE,
+    ERROR_DAEMON_IO_EXCEPTION,
+    ERROR_DISCOVERFILES_IO_EXCEPTION,
+    ERROR_DISCOVERFILES_NO_MATCHES,
     ERROR_DISCOVERFILE_FILE_NOT_FOUND,
     ERROR_ENSURE_DIFFERENT_SIZES,
     ERROR_ENSURE_UNKNOWN_KEY,
@@ -93,21 +110,28 @@ public enum Messages {
     ERROR_GETAPPLICATIONPATH_ENCODING_EXCEPTION,
     ERROR_GETCANONICALFILE_IO_EXCEPTION,
     ERROR_GETCANONICALPATH_IO_EXCEPTION,
+    ERROR_GETDEPENDENCIES_IO_EXCEPTION,
     ERROR_GETPARENTCANONICALPATH_IO_EXCEPTION,
     ERROR_INTERPRETER_COMPILATION_FAILED,
     ERROR_INTERPRETER_GENERIC_EXCEPTION,
+    ERROR_INTERPRETER_INTERRUPTED,
     ERROR_INTERPRETER_IO_EXCEPTION,
     ERROR_INTERPRETER_MISSING_PROPERTY,
     ERROR_INTERPRETER_NULL_COMMAND_LIST,
     ERROR_INTERPRETER_RULE_NOT_FOUND,
     ERROR_INTERPRETER_WRONG_EXIT_CLOSURE_RETURN,
     ERROR_LANGUAGE_INVALID_CODE,
+    ERROR_LOAD_COULD_NOT_LOAD_DATABASE,
     ERROR_LOAD_COULD_NOT_LOAD_XML,
     ERROR_OBTAIN_INVALID_KEY,
+    ERROR_PARSER_DAEMON_ALREADY_RUNNING,
+    ERROR_PARSER_JOBS_INVALID_RANGE,
+    ERROR_PARSER_JOBS_NAN,
     ERROR_PARSER_LOOPS_INVALID_RANGE,
     ERROR_PARSER_LOOPS_NAN,
     ERROR_PARSER_TIMEOUT_INVALID_RANGE,
     ERROR_PARSER_TIMEOUT_NAN,
+    ERROR_PARSER_WATCH_UNSUPPORTED,
     ERROR_REPLICATELIST_MISSING_FORMAT_ARGUMENTS_EXCEPTION,
     ERROR_REQUIRED_INVALID_KEY,
     ERROR_RULE_IDENTIFIER_AND_PATH,
@@ -116,7 +140,9 @@ public enum Messages {
     ERROR_RUN_INVALID_EXIT_VALUE_EXCEPTION,
     ERROR_RUN_IO_EXCEPTION,
     ERROR_RUN_TIMEOUT_EXCEPTION,
+    ERROR_RUN_TIMEOUT_EXCEPTION_LAST_LINES,
     ERROR_RUN_TIMEOUT_INVALID_RANGE,
+    ERROR_SAVE_COULD_NOT_SAVE_DATABASE,
     ERROR_SAVE_COULD_NOT_SAVE_XML,
     ERROR_SESSION_OBTAIN_UNKNOWN_KEY,
     ERROR_SESSION_REMOVE_UNKNOWN_KEY,
@@ -125,6 +151,7 @@ public enum Messages {
     ERROR_VALIDATE_EMPTY_FILES_LIST,
     ERROR_VALIDATE_FILE_IS_RESERVED,
     ERROR_VALIDATE_FILES_IS_NOT_A_LIST,
+    ERROR_VALIDATE_INDEPENDENT_IS_NOT_A_BOOLEAN,
     ERROR_VALIDATE_INVALID_DIRECTIVE_FORMAT,
     ERROR_VALIDATE_NO_DIRECTIVES_FOUND,
     ERROR_VALIDATE_ORPHAN_LINEBREAK,
@@ -135,12 +162,21 @@ public enum Messages {
     ERROR_VALIDATECONFIGURATION_IO_EXCEPTION,
     ERROR_VALIDATECONFIGURATION_UNSUPPORTED_CHARSET,
     ERROR_VALIDATEIDENTIFIER_WRONG_IDENTIFIER,
+    ERROR_WATCH_INTERRUPTED,
+    ERROR_WATCH_IO_EXCEPTION,
+    INFO_DAEMON_LISTENING,
+    INFO_DISPLAY_BATCH_ENTRY,
+    INFO_DISPLAY_BATCH_SUMMARY,
     INFO_DISPLAY_EXCEPTION_MORE_DETAILS,
     INFO_DISPLAY_EXECUTION_TIME,
     INFO_DISPLAY_FILE_INFORMATION,
+    INFO_DISPLAY_USAGE_DIRECTIVES,
+    INFO_DISPLAY_USAGE_HEADER,
+    INFO_DISPLAY_USAGE_RULES,
     INFO_INTERPRETER_DRYRUN_MODE_BOOLEAN_MODE,
     INFO_INTERPRETER_DRYRUN_MODE_SYSTEM_COMMAND,
     INFO_INTERPRETER_DRYRUN_MODE_TRIGGER_MODE,
+    INFO_INTERPRETER_OUTPUT_SPILLED,
     INFO_INTERPRETER_VERBOSE_MODE_BOOLEAN_MODE,
     INFO_INTERPRETER_VERBOSE_MODE_TRIGGER_MODE,
     INFO_LABEL_AUTHOR,
@@ -151,9 +187,13 @@ public enum Messages {
     INFO_LABEL_ON_ERROR,
     INFO_LABEL_ON_FAILURE,
     INFO_LABEL_ON_SUCCESS,
+    INFO_LABEL_ON_UP_TO_DATE,
+    INFO_PARSER_ACCOUNTING_DESCRIPTION,
     INFO_PARSER_ALL_RIGHTS_RESERVED,
+    INFO_PARSER_DAEMON_DESCRIPTION,
     INFO_PARSER_DRYRUN_MODE_DESCRIPTION,
     INFO_PARSER_HELP_DESCRIPTION,
+    INFO_PARSER_JOBS_DESCRIPTION,
     INFO_PARSER_LANGUAGE_DESCRIPTION,
     INFO_PARSER_LOG_DESCRIPTION,
     INFO_PARSER_LOOPS_DESCRIPTION,
@@ -161,16 +201,40 @@ public enum Messages {
     INFO_PARSER_TIMEOUT_DESCRIPTION,
     INFO_PARSER_VERBOSE_MODE_DESCRIPTION,
     INFO_PARSER_VERSION_DESCRIPTION,
+    INFO_PARSER_WATCH_DESCRIPTION,
+    INFO_WATCH_WAITING,
+    LOG_INFO_BATCH_FILES,
     LOG_INFO_BEGIN_BUFFER,
+    LOG_INFO_CLASS_CACHE_DISCARDED,
+    LOG_INFO_CLASS_CACHE_EVICTED,
+    LOG_INFO_CLASS_CACHE_NOT_SAVED,
+    LOG_INFO_COMMAND_TERMINATED,
+    LOG_INFO_DAEMON_REQUEST,
+    LOG_INFO_DAEMON_REQUEST_FAILED,
+    LOG_INFO_DATABASE_MIGRATED,
+    LOG_INFO_DEPENDENCIES_RECORDED,
+    LOG_INFO_DEPENDENCY_CHANGED,
     LOG_INFO_DIRECTIVES_BLOCK,
+    LOG_INFO_DIRECTIVE_STATES_RECORDED,
+    LOG_INFO_DIRECTIVE_UP_TO_DATE,
     LOG_INFO_END_BUFFER,
     LOG_INFO_INTERPRET_RULE,
     LOG_INFO_INTERPRET_TASK,
+    LOG_INFO_OUTPUT_CACHE_DISCARDED,
+    LOG_INFO_OUTPUT_CACHE_EVICTED,
+    LOG_INFO_OUTPUT_CACHE_HIT,
+    LOG_INFO_OUTPUT_CACHE_NOT_SAVED,
+    LOG_INFO_OUTPUT_CACHE_STORED,
+    LOG_INFO_OUTPUT_CACHE_TOO_MANY_FILES,
+    LOG_INFO_PARALLEL_STAGE,
+    LOG_INFO_PARALLEL_STAGE_SPLIT,
     LOG_INFO_POTENTIAL_DIRECTIVE_FOUND,
     LOG_INFO_POTENTIAL_PATTERN_FOUND,
     LOG_INFO_RULE_LOCATION,
     LOG_INFO_SYSTEM_COMMAND,
+    LOG_INFO_SYSTEM_COMMAND_USAGE,
     LOG_INFO_TASK_RESULT,
     LOG_INFO_VALIDATED_DIRECTIVES,
+    LOG_INFO_WATCH_CHANGES,
     LOG_INFO_WELCOME_MESSAGE,
 }
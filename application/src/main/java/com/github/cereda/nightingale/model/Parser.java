@@ -38,6 +38,7 @@ import com.github.cereda.nightingale.controller.LanguageController;
 import com.github.cereda.nightingale.controller.LoggingController;
 import com.github.cereda.nightingale.utils.CommonUtils;
 import com.github.cereda.nightingale.utils.DisplayUtils;
+import java.util.Arrays;
 import java.util.Locale;
 import org.apache.commons.cli.BasicParser;
 import org.apache.commons.cli.CommandLine;
@@ -79,6 +80,10 @@ public class Parser {
     private Option timeout;
     private Option language;
     private Option loops;
+    private Option jobs;
+    private Option daemon;
+    private Option watch;
+    private Option accounting;
 
     /**
      * Constructor.
@@ -112,6 +117,11 @@ public class Parser {
         language.setArgName("code");
         loops = new Option("m", "max-loops", true, "");
         loops.setArgName("number");
+        jobs = new Option("j", "jobs", true, "");
+        jobs.setArgName("number");
+        daemon = new Option("d", "daemon", false, "");
+        watch = new Option("w", "watch", false, "");
+        accounting = new Option("a", "accounting", false, "");
 
         // add all options to the options
         // group, so they are recognized
@@ -125,6 +135,10 @@ public class Parser {
         options.addOption(timeout);
         options.addOption(language);
         options.addOption(loops);
+        options.addOption(jobs);
+        options.addOption(daemon);
+        options.addOption(watch);
+        options.addOption(accounting);
 
         // update all descriptions based
         // on the localized messages
@@ -135,10 +149,14 @@ public class Parser {
         // arguments are parsed
         CommandLineParser parser = new BasicParser();
         
+        // print the nightingale logo in the terminal; I just
+        // hope people use this tool in a good terminal with
+        // fixed-width fonts, otherwise the logo will be messed
+        DisplayUtils.printLogo();
+
         try {
             
             CommandLine line = parser.parse(options, arguments);
-            String reference;
 
             // there is a language option, get
             // the argument and validate it
@@ -175,18 +193,46 @@ public class Parser {
                 return false;
             }
 
-            // nightingale expects only one file
-            // to be processed at a time, so if
-            // there are no files or more than
-            // one file, print info and return
-            // false, so the application should
-            // gracefully exit
-            if (line.getArgs().length != 1) {
+            // there is a daemon option, so no files
+            // are expected; the daemon will get them
+            // later on, from the thin client; note that
+            // a daemon cannot be started from another
+            // daemon
+            if (line.hasOption("daemon")) {
+                if (ConfigurationController.
+                        getInstance().
+                        contains("execution.daemon.active")) {
+                    throw new NightingaleException(
+                            messages.getMessage(
+                                    Messages.ERROR_PARSER_DAEMON_ALREADY_RUNNING
+                            )
+                    );
+                }
+                if (line.hasOption("log")) {
+                    ConfigurationController.
+                            getInstance().
+                            put("execution.logging", true);
+                }
+                LoggingController.enableLogging(
+                        (Boolean) ConfigurationController.
+                                getInstance().
+                                get("execution.logging")
+                );
+                ConfigurationController.
+                        getInstance().
+                        put("execution.daemon", true);
+                return true;
+            }
+
+            // nightingale expects at least one file
+            // to be processed, so if there are no
+            // files, print info and return false,
+            // so the application should gracefully
+            // exit
+            if (line.getArgs().length == 0) {
                 printVersion();
                 printUsage();
                 return false;
-            } else {
-                reference = line.getArgs()[0];
             }
 
             // there is a timeout option, get
@@ -243,6 +289,53 @@ public class Parser {
                 }
             }
 
+            // there is an option for the
+            // number of parallel jobs, get
+            // the argument and validate it
+            if (line.hasOption("jobs")) {
+                try {
+                    long value = Long.parseLong(line.getOptionValue("jobs"));
+                    if (value <= 0) {
+                        throw new NightingaleException(
+                                messages.getMessage(
+                                        Messages.ERROR_PARSER_JOBS_INVALID_RANGE
+                                )
+                        );
+                    } else {
+                        ConfigurationController.
+                                getInstance().
+                                put("execution.jobs", value);
+                    }
+                } catch (NumberFormatException nfexception) {
+                    throw new NightingaleException(
+                            messages.getMessage(
+                                    Messages.ERROR_PARSER_JOBS_NAN
+                            )
+                    );
+                }
+            }
+
+            // there is a watch option, which is
+            // only available for a single file
+            // outside the daemon, since it never
+            // ends by itself
+            if (line.hasOption("watch")) {
+                if ((line.getArgs().length != 1)
+                        || CommonUtils.isMultipleReference(line.getArgs()[0])
+                        || ConfigurationController.
+                                getInstance().
+                                contains("execution.daemon.active")) {
+                    throw new NightingaleException(
+                            messages.getMessage(
+                                    Messages.ERROR_PARSER_WATCH_UNSUPPORTED
+                            )
+                    );
+                }
+                ConfigurationController.
+                        getInstance().
+                        put("execution.watch", true);
+            }
+
             // there is a verbose option,
             // set the settings accordingly
             if (line.hasOption("verbose")) {
@@ -264,6 +357,14 @@ public class Parser {
                         put("execution.errors.halt", false);
             }
 
+            // there is an accounting option,
+            // set the settings accordingly
+            if (line.hasOption("accounting")) {
+                ConfigurationController.
+                        getInstance().
+                        put("execution.accounting", true);
+            }
+
             // there is a verbose option,
             // set the settings accordingly
             if (line.hasOption("log")) {
@@ -273,10 +374,24 @@ public class Parser {
             }
 
             // time to do a file lookup based on
-            // the string reference; this method
-            // might raise an exception if the file
-            // could not be found
-            CommonUtils.discoverFile(reference);
+            // the string references; a single file
+            // reference is the usual case, while
+            // many references, directories or
+            // patterns make a batch of files; both
+            // methods might raise an exception if
+            // a file could not be found
+            if ((line.getArgs().length == 1)
+                    && !CommonUtils.isMultipleReference(line.getArgs()[0])) {
+                CommonUtils.discoverFile(line.getArgs()[0]);
+            } else {
+                ConfigurationController.
+                        getInstance().
+                        put("execution.references",
+                                CommonUtils.discoverFiles(
+                                        Arrays.asList(line.getArgs())
+                                )
+                        );
+            }
             LoggingController.enableLogging((Boolean) ConfigurationController.
                     getInstance().
                     get("execution.logging")
@@ -284,6 +399,17 @@ public class Parser {
             ConfigurationController.
                     getInstance().
                     put("display.time", true);
+
+            // the resource usage of every command
+            // is accounted for from now on, and
+            // displayed along with the time
+            if ((Boolean) ConfigurationController.
+                    getInstance().
+                    get("execution.accounting")) {
+                ConfigurationController.
+                        getInstance().
+                        put("execution.usage", new Accounting());
+            }
             
             // everything is good, so the application
             // can proceed on the analysis
@@ -302,9 +428,10 @@ public class Parser {
     private void printUsage() {
         HelpFormatter formatter = new HelpFormatter();
         StringBuilder builder = new StringBuilder();
-        builder.append("nightingale [file [--dry-run] [--log] ");
+        builder.append("nightingale [file... [--dry-run] [--log] ");
         builder.append("[--verbose] [--timeout N] [--max-loops N] ");
-        builder.append("[--language L] | --help | --version]");
+        builder.append("[--jobs N] [--watch] [--accounting] [--language L] | ");
+        builder.append("--daemon | --help | --version]");
         formatter.printHelp(builder.toString(), options);
     }
 
@@ -383,6 +510,26 @@ public class Parser {
                         Messages.INFO_PARSER_LOOPS_DESCRIPTION
                 )
         );
+        jobs.setDescription(
+                messages.getMessage(
+                        Messages.INFO_PARSER_JOBS_DESCRIPTION
+                )
+        );
+        daemon.setDescription(
+                messages.getMessage(
+                        Messages.INFO_PARSER_DAEMON_DESCRIPTION
+                )
+        );
+        watch.setDescription(
+                messages.getMessage(
+                        Messages.INFO_PARSER_WATCH_DESCRIPTION
+                )
+        );
+        accounting.setDescription(
+                messages.getMessage(
+                        Messages.INFO_PARSER_ACCOUNTING_DESCRIPTION
+                )
+        );
     }
 
 }
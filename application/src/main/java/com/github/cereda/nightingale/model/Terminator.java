@@ -0,0 +1,130 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.model;
+
+import com.github.cereda.nightingale.utils.ProcessUtils;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Implements the terminator model. A terminator is an analyzer attached to
+ * every command when early termination is enabled: as soon as one of the
+ * fatal patterns shows up in the output, the running process is killed
+ * along with its descendants, so a doomed run does not keep churning until
+ * it exits by itself.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class Terminator extends Analyzer {
+
+    // the fatal patterns, combined
+    // into a single one
+    private final Pattern pattern;
+
+    // the running process, once it
+    // has been started
+    private Process process;
+
+    // the line which caused the
+    // termination, if any
+    private String line;
+
+    /**
+     * Constructor.
+     * @param patterns The list of fatal regexes.
+     */
+    public Terminator(List<String> patterns) {
+        this.pattern = Pattern.compile(
+                "(".concat(StringUtils.join(patterns, ")|(")).concat(")")
+        );
+    }
+
+    /**
+     * Attaches the running process, which is killed at once if a fatal
+     * pattern has already been found.
+     * @param process The running process.
+     */
+    public synchronized void attach(Process process) {
+        this.process = process;
+        if (line != null) {
+            ProcessUtils.destroyTree(process);
+        }
+    }
+
+    /**
+     * Resets the terminator, so it can be used for a new command.
+     */
+    @Override
+    public synchronized void reset() {
+        super.reset();
+        process = null;
+        line = null;
+    }
+
+    /**
+     * Analyzes the provided line of output and kills the running process if
+     * the line matches one of the fatal patterns.
+     * @param line The line of output.
+     */
+    @Override
+    public synchronized void analyze(String line) {
+        if ((this.line == null) && find(pattern, line)) {
+            this.line = line;
+            if (process != null) {
+                ProcessUtils.destroyTree(process);
+            }
+        }
+    }
+
+    /**
+     * Gets the result of the analysis.
+     * @return A boolean value indicating if the process was terminated.
+     */
+    @Override
+    public synchronized Object getResult() {
+        return line != null;
+    }
+
+    /**
+     * Gets the line which caused the termination.
+     * @return The line which caused the termination, or null if the process
+     * was not terminated.
+     */
+    public synchronized String getLine() {
+        return line;
+    }
+
+}
@@ -0,0 +1,151 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.model;
+
+/**
+ * Implements the resource usage model, that is, the wall time, the user and
+ * system CPU times and the peak resident set size of one or more commands.
+ * CPU times and memory are available on systems which expose them through
+ * the proc filesystem, like Linux; elsewhere, only the total CPU time might
+ * be available, as user time.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class Usage {
+
+    // the number of commands
+    // accounted for
+    private int runs;
+
+    // the times, in milliseconds, and the
+    // peak resident set size, in kilobytes
+    private long wall;
+    private long user;
+    private long system;
+    private long peak;
+
+    // a flag indicating if CPU times and
+    // memory are available at all
+    private boolean available;
+
+    /**
+     * Constructor, for an empty usage.
+     */
+    public Usage() {
+    }
+
+    /**
+     * Constructor, for the usage of a single command.
+     * @param wall The wall time, in milliseconds.
+     * @param user The user CPU time, in milliseconds.
+     * @param system The system CPU time, in milliseconds.
+     * @param peak The peak resident set size, in kilobytes.
+     * @param available A boolean value indicating if CPU times and memory
+     * are available.
+     */
+    public Usage(long wall, long user, long system, long peak,
+            boolean available) {
+        this.runs = 1;
+        this.wall = wall;
+        this.user = user;
+        this.system = system;
+        this.peak = peak;
+        this.available = available;
+    }
+
+    /**
+     * Adds the provided usage to the current one. Times are summed up, while
+     * the peak resident set size is the largest of both.
+     * @param usage The usage to be added.
+     */
+    public void add(Usage usage) {
+        runs = runs + usage.runs;
+        wall = wall + usage.wall;
+        user = user + usage.user;
+        system = system + usage.system;
+        peak = Math.max(peak, usage.peak);
+        available = available || usage.available;
+    }
+
+    /**
+     * Gets the number of commands accounted for.
+     * @return The number of commands.
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * Gets the wall time.
+     * @return The wall time, in milliseconds.
+     */
+    public long getWall() {
+        return wall;
+    }
+
+    /**
+     * Gets the user CPU time.
+     * @return The user CPU time, in milliseconds.
+     */
+    public long getUser() {
+        return user;
+    }
+
+    /**
+     * Gets the system CPU time.
+     * @return The system CPU time, in milliseconds.
+     */
+    public long getSystem() {
+        return system;
+    }
+
+    /**
+     * Gets the peak resident set size.
+     * @return The peak resident set size, in kilobytes.
+     */
+    public long getPeak() {
+        return peak;
+    }
+
+    /**
+     * Checks if CPU times and memory are available.
+     * @return A boolean value indicating if CPU times and memory are
+     * available.
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+}
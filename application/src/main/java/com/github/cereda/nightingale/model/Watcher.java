@@ -0,0 +1,403 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.model;
+
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.controller.LanguageController;
+import com.github.cereda.nightingale.utils.CacheUtils;
+import com.github.cereda.nightingale.utils.CommonUtils;
+import com.github.cereda.nightingale.utils.DeclarationUtils;
+import com.github.cereda.nightingale.utils.DependencyUtils;
+import com.github.cereda.nightingale.utils.DirectiveUtils;
+import com.github.cereda.nightingale.utils.DisplayUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implements the watch mode. The main file is built once and then watched,
+ * along with the inputs of its directives, that is, the files they refer to,
+ * the files matching their declared inputs and the dependencies listed in the
+ * recorder file; when some of them change, only the directives whose inputs
+ * have changed (or which are new) are run again. Bursts of changes, like the
+ * ones editors produce when saving, are handled as a single change. Compiled
+ * rules and the application startup are kept between builds, of course.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class Watcher {
+
+    // the application messages obtained from the
+    // language controller
+    private static final LanguageController messages =
+            LanguageController.getInstance();
+
+    // the class logger obtained from
+    // the logger factory
+    private static final Logger logger =
+            LoggerFactory.getLogger(Watcher.class);
+
+    /**
+     * Builds the main file and rebuilds it on changes, until the application
+     * is terminated.
+     * @return A boolean value indicating if the last build has succeeded;
+     * in practice, this method only returns through an exception.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public boolean execute() throws NightingaleException {
+        
+        File reference = (File) ConfigurationController.
+                getInstance().
+                get("execution.reference");
+        Map<String, Object> parent = ConfigurationController.
+                getInstance().
+                getScope();
+
+        // the inputs of each directive from the previous
+        // build, indexed by signature, and the files which
+        // have changed since then; both are null in the
+        // first build, so everything runs
+        Map<String, Set<File>> inputs = null;
+        Set<File> changed = null;
+
+        WatchService service;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+        } catch (IOException ioexception) {
+            throw new NightingaleException(
+                    messages.getMessage(
+                            Messages.ERROR_WATCH_IO_EXCEPTION
+                    ),
+                    ioexception
+            );
+        }
+        Set<Path> directories = new HashSet<Path>();
+
+        while (true) {
+
+            // every build runs in its own scope and
+            // session, just like a brand new execution
+            ConfigurationController controller =
+                    ConfigurationController.getInstance();
+            controller.openScope(parent);
+            controller.put("execution.session",
+                    Collections.synchronizedMap(new HashMap<String, Object>())
+            );
+            List<Directive> directives = null;
+            try {
+                try {
+                    StopWatch.start();
+                    DisplayUtils.printFileInformation();
+                    Extractor extractor = new Extractor();
+                    directives = extractor.extract();
+                    directives = DirectiveUtils.validate(directives);
+                    List<Directive> selection = select(
+                            directives,
+                            inputs,
+                            changed
+                    );
+                    Interpreter interpreter = new Interpreter();
+                    interpreter.setDirectives(selection);
+                    interpreter.execute();
+                } catch (NightingaleException exception) {
+                    DisplayUtils.printException(exception);
+                } finally {
+                    StopWatch.stop();
+                    DisplayUtils.printTime();
+                }
+
+                // the inputs are only gathered after the build,
+                // since the recorder file is written by it; if
+                // the directives could not be extracted, the
+                // inputs from the previous build are kept
+                if (directives != null) {
+                    inputs = getInputs(directives);
+                }
+            } finally {
+                controller.closeScope();
+            }
+
+            // the main file is always watched, even if the
+            // directives could not be extracted, so the user
+            // can fix them and get a new build
+            Set<File> files = new LinkedHashSet<File>();
+            files.add(reference.getAbsoluteFile());
+            if (inputs != null) {
+                for (Set<File> entries : inputs.values()) {
+                    files.addAll(entries);
+                }
+            }
+            register(service, directories, files);
+
+            DisplayUtils.wrapText("");
+            DisplayUtils.wrapText(
+                    messages.getMessage(
+                            Messages.INFO_WATCH_WAITING,
+                            files.size()
+                    )
+            );
+            DisplayUtils.wrapText("");
+
+            changed = await(service, files);
+            logger.info(
+                    messages.getMessage(
+                            Messages.LOG_INFO_WATCH_CHANGES,
+                            CommonUtils.getCollectionElements(
+                                    changed,
+                                    "(",
+                                    ")",
+                                    ", "
+                            )
+                    )
+            );
+        }
+    }
+
+    /**
+     * Selects the directives to be run. In the first build, every directive
+     * is selected; otherwise, only the directives whose inputs have changed,
+     * or the ones not present in the previous build, are selected, in their
+     * original order.
+     * @param directives The current list of directives.
+     * @param inputs The inputs of each directive from the previous build,
+     * indexed by signature, or null in the first build.
+     * @param changed The set of files which have changed since the previous
+     * build, or null in the first build.
+     * @return The list of directives to be run.
+     */
+    private List<Directive> select(List<Directive> directives,
+            Map<String, Set<File>> inputs, Set<File> changed) {
+        if ((inputs == null) || (changed == null)) {
+            return directives;
+        }
+        List<Directive> result = new ArrayList<Directive>();
+        for (Directive directive : directives) {
+            Set<File> files = inputs.get(getSignature(directive));
+            if ((files == null) || !Collections.disjoint(files, changed)) {
+                result.add(directive);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the inputs of each provided directive, that is, the file it refers
+     * to, the files around matching its declared inputs and the dependencies
+     * of the main file listed in the recorder file, if any. Directives without
+     * declarations depend on the recorded dependencies as well, since there
+     * is no way to tell which files they actually read.
+     * @param directives The list of directives.
+     * @return A map containing the inputs of each directive, indexed by
+     * signature.
+     */
+    private Map<String, Set<File>> getInputs(List<Directive> directives) {
+        Set<File> dependencies = new LinkedHashSet<File>();
+        try {
+            for (File dependency : DependencyUtils.getDependencies()) {
+                dependencies.add(dependency.getAbsoluteFile());
+            }
+        } catch (NightingaleException exception) {
+            // the recorder file could not be read, so the
+            // dependencies are simply left out this time
+        }
+
+        // the files around are only scanned when some
+        // directive actually declares its inputs
+        File directory = CacheUtils.getDirectory();
+        Map<String, String> stamps = null;
+
+        Interpreter interpreter = new Interpreter();
+        Map<String, Set<File>> result = new HashMap<String, Set<File>>();
+        for (Directive directive : directives) {
+            String signature = getSignature(directive);
+            Set<File> files = result.get(signature);
+            if (files == null) {
+                files = new LinkedHashSet<File>();
+                result.put(signature, files);
+            }
+            files.add(((File) directive.getParameters().get("file")).
+                    getAbsoluteFile());
+            files.addAll(dependencies);
+            List<String> globs = interpreter.getDeclarations(directive).
+                    getFirstElement();
+            if (globs != null) {
+                if (stamps == null) {
+                    stamps = CacheUtils.scan();
+                }
+                if (stamps != null) {
+                    for (String path : DeclarationUtils.match(globs,
+                            stamps.keySet())) {
+                        files.add(new File(directory, path));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the signature of the provided directive, that is, its identifier,
+     * parameters and conditional; line numbers are left out, so moving a
+     * directive around does not make it a new one.
+     * @param directive The directive.
+     * @return A string containing the directive signature.
+     */
+    private String getSignature(Directive directive) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(directive.getIdentifier()).append(" ");
+        builder.append(directive.getParameters()).append(" ");
+        builder.append(directive.getConditional());
+        return builder.toString();
+    }
+
+    /**
+     * Registers the parent directories of the provided files in the watch
+     * service, if not registered yet.
+     * @param service The watch service.
+     * @param directories The set of directories already registered.
+     * @param files The set of files.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private void register(WatchService service, Set<Path> directories,
+            Set<File> files) throws NightingaleException {
+        for (File file : files) {
+            Path directory = file.getAbsoluteFile().getParentFile().toPath();
+            if (!directories.contains(directory)
+                    && directory.toFile().isDirectory()) {
+                try {
+                    directory.register(
+                            service,
+                            StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY,
+                            StandardWatchEventKinds.ENTRY_DELETE
+                    );
+                    directories.add(directory);
+                } catch (IOException ioexception) {
+                    throw new NightingaleException(
+                            messages.getMessage(
+                                    Messages.ERROR_WATCH_IO_EXCEPTION
+                            ),
+                            ioexception
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until some of the provided files change. Events are only taken
+     * as hints: once they stop coming for a while (the debounce delay), the
+     * files are compared against their state before waiting, so events from
+     * unrelated files or from changes which were reverted do not trigger a
+     * new build.
+     * @param service The watch service.
+     * @param files The set of files.
+     * @return The set of files which have changed.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private Set<File> await(WatchService service, Set<File> files)
+            throws NightingaleException {
+        long delay = (Long) ConfigurationController.
+                getInstance().
+                get("execution.watch.delay");
+        Map<File, String> stamps = getStamps(files);
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                do {
+                    key.pollEvents();
+                    key.reset();
+                    key = service.poll(delay, TimeUnit.MILLISECONDS);
+                } while (key != null);
+
+                Map<File, String> current = getStamps(files);
+                Set<File> result = new LinkedHashSet<File>();
+                for (File file : files) {
+                    if (!stamps.get(file).equals(current.get(file))) {
+                        result.add(file);
+                    }
+                }
+                if (!result.isEmpty()) {
+                    return result;
+                }
+            }
+        } catch (InterruptedException iexception) {
+            throw new NightingaleException(
+                    messages.getMessage(
+                            Messages.ERROR_WATCH_INTERRUPTED
+                    ),
+                    iexception
+            );
+        }
+    }
+
+    /**
+     * Gets the state of each provided file, that is, its size and the time
+     * it was last modified, or a mark if it does not exist.
+     * @param files The set of files.
+     * @return A map containing the state of each file.
+     */
+    private Map<File, String> getStamps(Set<File> files) {
+        Map<File, String> stamps = new HashMap<File, String>();
+        for (File file : files) {
+            stamps.put(file, file.exists()
+                    ? String.valueOf(file.lastModified()).
+                            concat(":").
+                            concat(String.valueOf(file.length()))
+                    : "missing"
+            );
+        }
+        return stamps;
+    }
+
+}
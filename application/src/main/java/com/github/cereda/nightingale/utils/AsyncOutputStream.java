@@ -0,0 +1,291 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Implements an asynchronous stream. Data is copied into a bounded ring
+ * buffer and written to the underlying stream, in batches, by a thread of
+ * its own, so a slow sink, like a terminal over a remote connection, does
+ * not slow down the writer. When the buffer is full, the writer either
+ * waits for room or, if spilling is enabled, writes the rest of the data
+ * to a file instead; in such case, a notice with the file name is written
+ * to the sink when the stream is closed.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class AsyncOutputStream extends OutputStream {
+
+    // the underlying stream, which is never
+    // closed by this stream
+    private final OutputStream sink;
+
+    // the ring buffer, along with the position
+    // of the first pending byte and the number
+    // of pending bytes
+    private final byte[] buffer;
+    private int head;
+    private int count;
+
+    // a flag indicating that the writer spills
+    // to a file when the buffer is full
+    private final boolean spill;
+
+    // the file holding the spilled data, if any,
+    // and the stream writing to it
+    private File overflow;
+    private OutputStream stream;
+
+    // the notice to be written to the sink when
+    // data was spilled, with a placeholder for
+    // the file name
+    private final String notice;
+
+    // flags indicating that the thread is writing
+    // a batch and that the stream is closed
+    private boolean writing;
+    private boolean closed;
+
+    // the first failure of the underlying stream,
+    // reported back to the writer
+    private IOException failure;
+
+    // the thread draining the buffer
+    private final Thread thread;
+
+    /**
+     * Constructor.
+     * @param sink The underlying stream.
+     * @param capacity The capacity of the ring buffer, in bytes.
+     * @param spill A boolean value indicating if the writer spills to a file
+     * when the buffer is full, instead of waiting for room.
+     * @param notice The notice to be written to the sink when data was
+     * spilled, in which '{0}' stands for the file name.
+     */
+    public AsyncOutputStream(OutputStream sink, int capacity, boolean spill,
+            String notice) {
+        this.sink = sink;
+        this.buffer = new byte[capacity];
+        this.spill = spill;
+        this.notice = notice;
+        this.thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "nightingale-output");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Writes the provided integer.
+     * @param b The provided integer
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{ (byte) b }, 0, 1);
+    }
+
+    /**
+     * Writes the provided byte array, with the provided offset and length.
+     * The data is copied into the ring buffer, waiting for room if needed,
+     * or into the spill file, once the buffer has overflown.
+     * @param b The byte array.
+     * @param offset The offset.
+     * @param length The length.
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public synchronized void write(byte[] b, int offset, int length)
+            throws IOException {
+        while (length > 0) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (closed) {
+                throw new IOException("closed");
+            }
+
+            // once spilling has started, everything goes
+            // to the file, so the data stays in order
+            if (stream != null) {
+                stream.write(b, offset, length);
+                return;
+            }
+            int free = buffer.length - count;
+            if (free == 0) {
+                if (spill) {
+                    overflow = File.createTempFile("nightingale", ".out");
+                    stream = new BufferedOutputStream(
+                            new FileOutputStream(overflow)
+                    );
+                } else {
+                    await();
+                }
+                continue;
+            }
+            int size = Math.min(free, length);
+            int position = (head + count) % buffer.length;
+            int first = Math.min(size, buffer.length - position);
+            System.arraycopy(b, offset, buffer, position, first);
+            System.arraycopy(b, offset + first, buffer, 0, size - first);
+            count = count + size;
+            offset = offset + size;
+            length = length - size;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits until every byte in the buffer is written to the underlying
+     * stream, and flushes it.
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        while (((count > 0) || writing) && (failure == null)) {
+            await();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes every pending byte to the underlying stream, stops the thread
+     * and writes the notice, if data was spilled. The underlying stream is
+     * flushed, but not closed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        IOUtils.closeQuietly(stream);
+        if ((overflow != null) && (failure == null)) {
+            try {
+                sink.write(String.format(
+                        "%n%s%n",
+                        notice.replace("{0}", overflow.getPath())
+                ).getBytes());
+                sink.flush();
+            } catch (IOException exception) {
+                // the notice is not essential, the
+                // data is safe in the file anyway
+            }
+        }
+    }
+
+    /**
+     * Writes the buffer to the underlying stream, in batches, until the
+     * stream is closed and the buffer is empty.
+     */
+    private void drain() {
+        byte[] batch = new byte[buffer.length];
+        while (true) {
+            int size;
+            synchronized (this) {
+                while ((count == 0) && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException exception) {
+                        return;
+                    }
+                }
+                if ((count == 0) || (failure != null)) {
+                    return;
+                }
+
+                // the batch is copied right away, so the
+                // writer gets its room back while the sink
+                // is still busy
+                size = count;
+                int first = Math.min(size, buffer.length - head);
+                System.arraycopy(buffer, head, batch, 0, first);
+                System.arraycopy(buffer, 0, batch, first, size - first);
+                head = (head + size) % buffer.length;
+                count = 0;
+                writing = true;
+                notifyAll();
+            }
+            try {
+                sink.write(batch, 0, size);
+                sink.flush();
+            } catch (IOException exception) {
+                synchronized (this) {
+                    failure = exception;
+                }
+            } finally {
+                synchronized (this) {
+                    writing = false;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the thread to make some progress.
+     * @throws IOException The writer was interrupted.
+     */
+    private void await() throws IOException {
+        try {
+            wait();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+}
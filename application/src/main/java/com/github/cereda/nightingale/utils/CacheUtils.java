@@ -0,0 +1,635 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.controller.LanguageController;
+import com.github.cereda.nightingale.model.Analyzer;
+import com.github.cereda.nightingale.model.Command;
+import com.github.cereda.nightingale.model.Messages;
+import com.github.cereda.nightingale.model.NightingaleException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implements output cache utilitary methods. The output cache works like a
+ * compiler cache: the outputs of a command, that is, the files it created,
+ * modified or removed, its exit value and its textual output, are recorded
+ * in an entry named after the command itself, the current rule and the
+ * contents of every file around the working directory. When the very same
+ * command is about to run against the very same files, the entry is simply
+ * restored instead. Entries live in the application cache directory and the
+ * least recently used ones are evicted when the cache grows beyond its size
+ * limit.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class CacheUtils {
+
+    // the application messages obtained from the
+    // language controller
+    private static final LanguageController messages =
+            LanguageController.getInstance();
+
+    // get the logger context from a factory
+    private static final Logger logger =
+            LoggerFactory.getLogger(CacheUtils.class);
+
+    // the magic number and format version of
+    // an output cache entry, so entries from
+    // other formats are simply discarded
+    private static final int MAGIC = 0x4e474f43;
+    private static final int FORMAT = 1;
+
+    // the maximum number of files to be scanned; the
+    // cache is not worth it beyond this value
+    private static final int LIMIT = 10000;
+
+    /**
+     * Checks if the output cache can be used for the current command. The
+     * cache is not used for interactive commands, nor when other commands
+     * might be running in the same directory at the same time, since their
+     * outputs could not be told apart.
+     * @return A boolean value indicating if the output cache can be used.
+     */
+    public static boolean isEnabled() {
+        ConfigurationController controller =
+                ConfigurationController.getInstance();
+        return ((Boolean) controller.get("execution.cache.outputs"))
+                && !((Boolean) controller.get("execution.verbose"))
+                && !controller.contains("execution.parallel");
+    }
+
+    /**
+     * Scans the files around the working directory, that is, the files in
+     * the working directory and in the directory of the file being
+     * processed, recursively. Hidden files, the database and the log file
+     * are not taken into account.
+     * @return A map of file stamps, indexed by the file path relative to the
+     * working directory, or null if there are too many files around.
+     */
+    public static Map<String, String> scan() {
+        final Path directory = getDirectory().toPath();
+        final Map<String, String> stamps = new TreeMap<String, String>();
+        final Set<String> excluded = getExcludedNames();
+
+        // the directory of the file being processed is
+        // only scanned on its own when it is not already
+        // inside the working directory
+        final Set<Path> roots = new LinkedHashSet<Path>();
+        roots.add(directory);
+        Path reference = getReferenceDirectory().toPath();
+        if (!reference.startsWith(directory)) {
+            roots.add(reference);
+        }
+        for (Path root : roots) {
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path path,
+                            BasicFileAttributes attributes) {
+                        return isHidden(path) && !roots.contains(path)
+                                ? FileVisitResult.SKIP_SUBTREE
+                                : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path path,
+                            BasicFileAttributes attributes) {
+                        if (!attributes.isRegularFile()
+                                || isHidden(path)
+                                || excluded.contains(
+                                        path.getFileName().toString())) {
+                            return FileVisitResult.CONTINUE;
+                        }
+                        stamps.put(
+                                directory.relativize(path).toString(),
+                                String.valueOf(attributes.size()).
+                                        concat("|").
+                                        concat(String.valueOf(
+                                                attributes.
+                                                        lastModifiedTime().
+                                                        to(TimeUnit.NANOSECONDS)
+                                        ))
+                        );
+                        return stamps.size() > LIMIT
+                                ? FileVisitResult.TERMINATE
+                                : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path path,
+                            IOException exception) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException exception) {
+                return null;
+            }
+        }
+        if (stamps.size() > LIMIT) {
+            logger.info(
+                    messages.getMessage(
+                            Messages.LOG_INFO_OUTPUT_CACHE_TOO_MANY_FILES,
+                            LIMIT
+                    )
+            );
+            return null;
+        }
+        return stamps;
+    }
+
+    /**
+     * Gets the key of the provided command, that is, a digest of the command
+     * elements, the current rule identifier and the contents of the scanned
+     * files.
+     * @param command The command, either a command object or a string.
+     * @param stamps The map of file stamps, from a previous scan.
+     * @return The key, as a hexadecimal string.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static String getKey(Object command, Map<String, String> stamps)
+            throws NightingaleException {
+        List<String> elements = CommonUtils.checkClass(Command.class, command)
+                ? ((Command) command).getElements()
+                : Arrays.asList((String) command);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, String.valueOf(ConfigurationController.
+                    getInstance().
+                    get("execution.info.rule.id")
+            ));
+            update(digest, String.valueOf(elements.size()));
+            for (String element : elements) {
+                update(digest, element);
+            }
+            // when the command declares its inputs and the
+            // recorder file tells what was actually read,
+            // only these are taken into account, so
+            // unrelated files around do not spoil the key
+            Set<String> paths = stamps.keySet();
+            @SuppressWarnings("unchecked")
+            List<String> inputs = (List<String>) ConfigurationController.
+                    getInstance().
+                    get("execution.command.inputs");
+            if (inputs != null) {
+                paths = DeclarationUtils.match(inputs, paths);
+            }
+            File directory = getDirectory();
+            for (String path : paths) {
+                update(digest, path);
+                update(digest, HashUtils.calculateHash(
+                        new File(directory, path),
+                        "xxhash64"
+                ));
+            }
+            StringBuilder builder = new StringBuilder();
+            for (byte value : digest.digest()) {
+                builder.append(String.format("%02x", value));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException exception) {
+            // every Java platform is required to
+            // support SHA-256, so this is dead code
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Restores the cache entry of the provided key, if any. The outputs are
+     * written back to the working directory, the recorded textual output is
+     * logged and handed over to the analyzers, and the entry becomes the most
+     * recently used one.
+     * @param key The key.
+     * @param analyzers The analyzers of the command.
+     * @return The recorded exit value, or null if there is no usable entry.
+     */
+    public static Integer restore(String key,
+            Collection<Analyzer> analyzers) {
+        File entry = getEntry(key);
+        if (!entry.isFile()) {
+            return null;
+        }
+        File directory = getDirectory();
+        DataInputStream stream = null;
+        try {
+            stream = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(entry))
+            );
+            if ((stream.readInt() != MAGIC)
+                    || (stream.readInt() != FORMAT)) {
+                throw new IOException(entry.getName());
+            }
+            int exit = stream.readInt();
+
+            // the recorded textual output goes straight
+            // to the log and to the analyzers, one line
+            // at a time
+            long size = stream.readInt();
+            CaptureOutputStream output = new CaptureOutputStream(
+                    logger,
+                    0,
+                    null,
+                    analyzers
+            );
+            if (IOUtils.copyLarge(stream, output, 0, size) != size) {
+                throw new IOException(entry.getName());
+            }
+            output.close();
+            int count = stream.readInt();
+            for (int i = 0; i < count; i++) {
+                File file = new File(directory, stream.readUTF());
+                long length = stream.readLong();
+                File parent = file.getParentFile();
+                if (!parent.isDirectory() && !parent.mkdirs()) {
+                    throw new IOException(parent.getPath());
+                }
+                File temporary = File.createTempFile(
+                        "nightingale",
+                        ".tmp",
+                        parent
+                );
+                OutputStream target = new BufferedOutputStream(
+                        new FileOutputStream(temporary)
+                );
+                try {
+                    if (IOUtils.copyLarge(stream, target, 0, length)
+                            != length) {
+                        throw new IOException(entry.getName());
+                    }
+                    target.close();
+                    move(temporary, file);
+                } finally {
+                    IOUtils.closeQuietly(target);
+                    FileUtils.deleteQuietly(temporary);
+                }
+            }
+            count = stream.readInt();
+            for (int i = 0; i < count; i++) {
+                FileUtils.deleteQuietly(new File(directory, stream.readUTF()));
+            }
+            stream.close();
+            entry.setLastModified(System.currentTimeMillis());
+            logger.info(
+                    messages.getMessage(
+                            Messages.LOG_INFO_OUTPUT_CACHE_HIT,
+                            entry.getName()
+                    )
+            );
+            return exit;
+        } catch (IOException exception) {
+            IOUtils.closeQuietly(stream);
+            logger.info(
+                    messages.getMessage(
+                            Messages.LOG_INFO_OUTPUT_CACHE_DISCARDED,
+                            entry.getName()
+                    )
+            );
+            FileUtils.deleteQuietly(entry);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a cache entry for the provided key. The outputs are found by
+     * comparing the provided stamps, taken before the command was run, with
+     * a new scan. The entry is written to a temporary file first and then
+     * atomically moved into place, and the least recently used entries are
+     * evicted afterwards if the cache is too big. Failures are not fatal,
+     * the command will simply be run again next time.
+     * @param key The key.
+     * @param stamps The map of file stamps, taken before the command was run.
+     * @param exit The exit value.
+     * @param output The file holding the textual output.
+     */
+    public static void store(String key, Map<String, String> stamps,
+            int exit, File output) {
+        Map<String, String> current = scan();
+        if ((current == null) || (output.length() > Integer.MAX_VALUE)) {
+            return;
+        }
+        File directory = getDirectory();
+        List<String> outputs = new ArrayList<String>();
+        long total = output.length();
+        for (String path : current.keySet()) {
+            if (!current.get(path).equals(stamps.get(path))) {
+                outputs.add(path);
+                total = total + new File(directory, path).length();
+            }
+        }
+        List<String> removals = new ArrayList<String>();
+        for (String path : stamps.keySet()) {
+            if (!current.containsKey(path)) {
+                removals.add(path);
+            }
+        }
+        long limit = getLimit();
+        if (total > limit) {
+            return;
+        }
+
+        File entry = getEntry(key);
+        File temporary = null;
+        DataOutputStream stream = null;
+        try {
+            File parent = entry.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException(parent.getPath());
+            }
+            temporary = File.createTempFile("nightingale", ".tmp", parent);
+            stream = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temporary))
+            );
+            stream.writeInt(MAGIC);
+            stream.writeInt(FORMAT);
+            stream.writeInt(exit);
+            stream.writeInt((int) output.length());
+            FileUtils.copyFile(output, stream);
+            stream.writeInt(outputs.size());
+            for (String path : outputs) {
+                File file = new File(directory, path);
+                InputStream source = new FileInputStream(file);
+                try {
+                    long length = file.length();
+                    stream.writeUTF(path);
+                    stream.writeLong(length);
+                    if (IOUtils.copyLarge(source, stream, 0, length)
+                            != length) {
+                        throw new IOException(path);
+                    }
+                } finally {
+                    IOUtils.closeQuietly(source);
+                }
+            }
+            stream.writeInt(removals.size());
+            for (String path : removals) {
+                stream.writeUTF(path);
+            }
+            stream.close();
+            move(temporary, entry);
+            logger.info(
+                    messages.getMessage(
+                            Messages.LOG_INFO_OUTPUT_CACHE_STORED,
+                            entry.getName()
+                    )
+            );
+        } catch (IOException exception) {
+            IOUtils.closeQuietly(stream);
+            FileUtils.deleteQuietly(temporary);
+            logger.info(
+                    messages.getMessage(
+                            Messages.LOG_INFO_OUTPUT_CACHE_NOT_SAVED,
+                            entry.getName()
+                    )
+            );
+            return;
+        }
+        evict(entry.getParentFile(), limit);
+    }
+
+    /**
+     * Evicts the least recently used entries until the output cache fits in
+     * the provided limit.
+     * @param directory The output cache directory.
+     * @param limit The limit, in bytes.
+     */
+    private static void evict(File directory, long limit) {
+        File[] entries = directory.listFiles();
+        if (entries == null) {
+            return;
+        }
+        long total = 0;
+        List<File> files = new ArrayList<File>();
+        for (File entry : entries) {
+            if (entry.getName().endsWith(".cache")) {
+                files.add(entry);
+                total = total + entry.length();
+            }
+        }
+        if (total <= limit) {
+            return;
+        }
+        final Map<File, Long> times = new HashMap<File, Long>();
+        for (File entry : files) {
+            times.put(entry, entry.lastModified());
+        }
+        Collections.sort(files, new Comparator<File>() {
+
+            @Override
+            public int compare(File first, File second) {
+                return times.get(first).compareTo(times.get(second));
+            }
+        });
+        for (File entry : files) {
+            if (total <= limit) {
+                break;
+            }
+            long length = entry.length();
+            if (entry.delete()) {
+                total = total - length;
+                logger.info(
+                        messages.getMessage(
+                                Messages.LOG_INFO_OUTPUT_CACHE_EVICTED,
+                                entry.getName()
+                        )
+                );
+            }
+        }
+    }
+
+    /**
+     * Moves the provided temporary file into place, atomically if possible.
+     * @param temporary The temporary file.
+     * @param file The target file.
+     * @throws IOException The file could not be moved.
+     */
+    private static void move(File temporary, File file) throws IOException {
+        try {
+            Files.move(temporary.toPath(), file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temporary.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Updates the provided digest with a text, followed by a separator.
+     * @param digest The digest.
+     * @param text The text.
+     */
+    private static void update(MessageDigest digest, String text) {
+        try {
+            digest.update(text.getBytes("UTF-8"));
+            digest.update((byte) 0);
+        } catch (UnsupportedEncodingException exception) {
+            // every Java platform is required to
+            // support UTF-8, so this is dead code
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Checks if the provided path is hidden, that is, if its name starts
+     * with a dot.
+     * @param path The path.
+     * @return A boolean value indicating if the path is hidden.
+     */
+    private static boolean isHidden(Path path) {
+        return (path.getFileName() != null)
+                && path.getFileName().toString().startsWith(".");
+    }
+
+    /**
+     * Gets the names of the files which are not taken into account when
+     * scanning, that is, the files written by the application itself.
+     * @return A set of file names.
+     */
+    private static Set<String> getExcludedNames() {
+        String database = (String) ConfigurationController.
+                getInstance().
+                get("execution.database.name");
+        String log = (String) ConfigurationController.
+                getInstance().
+                get("execution.log.name");
+        Set<String> names = new LinkedHashSet<String>();
+        names.add(database.concat(".db"));
+        names.add(database.concat(".xml"));
+        names.add(log.concat(".log"));
+        return names;
+    }
+
+    /**
+     * Gets the cache entry file for the provided key.
+     * @param key The key.
+     * @return The cache entry file.
+     */
+    private static File getEntry(String key) {
+        String path = (String) ConfigurationController.
+                getInstance().
+                get("execution.cache.path");
+        String directory = CommonUtils.buildPath(path, "outputs");
+        return new File(
+                CommonUtils.buildPath(directory, key.concat(".cache"))
+        );
+    }
+
+    /**
+     * Gets the output cache size limit.
+     * @return The limit, in bytes.
+     */
+    private static long getLimit() {
+        return ((Long) ConfigurationController.
+                getInstance().
+                get("execution.cache.outputs.size")) * 1024L * 1024L;
+    }
+
+    /**
+     * Gets the working directory, that is, the directory in which commands
+     * are run.
+     * @return The working directory.
+     */
+    public static File getDirectory() {
+        if (ConfigurationController.
+                getInstance().
+                contains("execution.directory")) {
+            return ((File) ConfigurationController.
+                    getInstance().
+                    get("execution.directory")).
+                    getAbsoluteFile().
+                    toPath().
+                    normalize().
+                    toFile();
+        }
+        return new File(System.getProperty("user.dir")).
+                getAbsoluteFile().
+                toPath().
+                normalize().
+                toFile();
+    }
+
+    /**
+     * Gets the directory of the file being processed.
+     * @return The directory of the file being processed.
+     */
+    private static File getReferenceDirectory() {
+        File reference = (File) ConfigurationController.
+                getInstance().
+                get("execution.reference");
+        return reference.
+                getAbsoluteFile().
+                toPath().
+                normalize().
+                getParent().
+                toFile();
+    }
+
+}
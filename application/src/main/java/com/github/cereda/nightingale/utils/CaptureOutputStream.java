@@ -0,0 +1,278 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import com.github.cereda.nightingale.model.Analyzer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+
+/**
+ * Implements a bounded capture of the output of a command. The output is
+ * handed over to the logger one line at a time, as it arrives, and only its
+ * last bytes are kept in memory, so a chatty command does not pile up its
+ * whole output in the heap. The very same lines are also handed over to the
+ * analyzers, if any. Optionally, the whole output is also copied to another
+ * stream, like a file.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class CaptureOutputStream extends OutputStream {
+
+    // the maximum length of a line; longer lines
+    // are logged in chunks of this length
+    private static final int LINE = 8 * 1024;
+
+    // the logger which receives the lines, or null
+    // if the lines are not logged at all
+    private final Logger logger;
+
+    // the analyzers which receive the lines
+    private final List<Analyzer> analyzers;
+
+    // the stream which receives the whole
+    // output, if any
+    private final OutputStream copy;
+
+    // the line being assembled
+    private final ByteArrayOutputStream line;
+
+    // the circular buffer holding the last
+    // bytes of the output
+    private final byte[] tail;
+
+    // the number of bytes written so far
+    private long size;
+
+    /**
+     * Constructor.
+     * @param logger The logger which receives the lines; they are only
+     * assembled when the logger has the information level enabled.
+     * @param limit The number of bytes to be kept from the end of the output.
+     * @param copy The stream which receives the whole output, or null.
+     */
+    public CaptureOutputStream(Logger logger, int limit, OutputStream copy) {
+        this(logger, limit, copy, Collections.<Analyzer>emptyList());
+    }
+
+    /**
+     * Constructor.
+     * @param logger The logger which receives the lines; they are only
+     * assembled when the logger has the information level enabled or when
+     * there are analyzers.
+     * @param limit The number of bytes to be kept from the end of the output.
+     * @param copy The stream which receives the whole output, or null.
+     * @param analyzers The analyzers which receive the lines.
+     */
+    public CaptureOutputStream(Logger logger, int limit, OutputStream copy,
+            Collection<Analyzer> analyzers) {
+        this.logger = logger.isInfoEnabled() ? logger : null;
+        this.analyzers = new ArrayList<Analyzer>(analyzers);
+        this.copy = copy;
+        this.line = new ByteArrayOutputStream();
+        this.tail = new byte[limit];
+    }
+
+    /**
+     * Writes the provided integer.
+     * @param b The provided integer
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public synchronized void write(int b) throws IOException {
+        write(new byte[]{ (byte) b }, 0, 1);
+    }
+
+    /**
+     * Writes the provided byte array, with the provided offset and length.
+     * @param b The byte array.
+     * @param offset The offset.
+     * @param length The length.
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public synchronized void write(byte[] b, int offset, int length)
+            throws IOException {
+        if (copy != null) {
+            copy.write(b, offset, length);
+        }
+        keep(b, offset, length);
+        if (isAssembling()) {
+            int start = offset;
+            for (int i = offset; i < offset + length; i++) {
+                if (b[i] == '\n') {
+                    line.write(b, start, i - start);
+                    emit();
+                    start = i + 1;
+                } else if (line.size() + i - start >= LINE) {
+                    line.write(b, start, i - start);
+                    emit();
+                    start = i;
+                }
+            }
+            line.write(b, start, offset + length - start);
+        }
+        size = size + length;
+    }
+
+    /**
+     * Flushes the stream which receives the whole output, if any.
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (copy != null) {
+            copy.flush();
+        }
+    }
+
+    /**
+     * Hands the pending line, if any, over to the logger and to the analyzers,
+     * and closes the stream which receives the whole output silently.
+     */
+    @Override
+    public synchronized void close() {
+        if (isAssembling() && (line.size() > 0)) {
+            emit();
+        }
+        IOUtils.closeQuietly(copy);
+    }
+
+    /**
+     * Gets the number of bytes written so far.
+     * @return The number of bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the last bytes of the output, as a string.
+     * @return The last bytes of the output.
+     */
+    public synchronized String getTail() {
+        if (tail.length == 0) {
+            return "";
+        }
+        int length = (int) Math.min(size, tail.length);
+        int start = (int) ((size - length) % tail.length);
+        byte[] result = new byte[length];
+        int first = Math.min(length, tail.length - start);
+        System.arraycopy(tail, start, result, 0, first);
+        System.arraycopy(tail, 0, result, first, length - first);
+        return new String(result);
+    }
+
+    /**
+     * Gets the last non-empty lines of the output, from the bytes kept in
+     * memory, joined by spaces.
+     * @param count The maximum number of lines.
+     * @return The last non-empty lines, or an empty string if there are none.
+     */
+    public String getLastLines(int count) {
+        String[] lines = getTail().split("\r?\n");
+        LinkedList<String> result = new LinkedList<String>();
+        for (int i = lines.length - 1; (i >= 0) && (result.size() < count);
+                i--) {
+            if (!lines[i].trim().isEmpty()) {
+                result.addFirst(lines[i].trim());
+            }
+        }
+        return StringUtils.join(result, " ");
+    }
+
+    /**
+     * Keeps the provided bytes in the circular buffer.
+     * @param b The byte array.
+     * @param offset The offset.
+     * @param length The length.
+     */
+    private void keep(byte[] b, int offset, int length) {
+        if (tail.length == 0) {
+            return;
+        }
+        // every byte goes to the position given by its
+        // index in the whole output, so only the last
+        // ones of a long chunk are worth copying
+        long index = size;
+        if (length > tail.length) {
+            index = index + length - tail.length;
+            offset = offset + length - tail.length;
+            length = tail.length;
+        }
+        int position = (int) (index % tail.length);
+        int first = Math.min(length, tail.length - position);
+        System.arraycopy(b, offset, tail, position, first);
+        System.arraycopy(b, offset + first, tail, 0, length - first);
+    }
+
+    /**
+     * Checks if the lines have to be assembled, that is, if there is anyone
+     * to receive them.
+     * @return A boolean value indicating if the lines have to be assembled.
+     */
+    private boolean isAssembling() {
+        return (logger != null) || !analyzers.isEmpty();
+    }
+
+    /**
+     * Hands the line being assembled over to the logger and to the analyzers,
+     * without the line terminator, and starts a new one.
+     */
+    private void emit() {
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if ((length > 0) && (bytes[length - 1] == '\r')) {
+            length--;
+        }
+        String text = new String(bytes, 0, length);
+        if (logger != null) {
+            logger.info(text);
+        }
+        for (Analyzer analyzer : analyzers) {
+            analyzer.analyze(text);
+        }
+        line.reset();
+    }
+
+}
@@ -34,26 +34,49 @@
 package com.github.cereda.nightingale.utils;
 
 import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.controller.DatabaseController;
 import com.github.cereda.nightingale.controller.LanguageController;
+import com.github.cereda.nightingale.controller.SessionController;
 import com.github.cereda.nightingale.model.NightingaleException;
 import com.github.cereda.nightingale.model.Database;
 import com.github.cereda.nightingale.model.FileType;
+import com.github.cereda.nightingale.model.Fingerprint;
 import com.github.cereda.nightingale.model.Messages;
+import com.github.cereda.nightingale.model.Pair;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.MissingFormatArgumentException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.collections4.CollectionUtils;
@@ -75,6 +98,10 @@ public class CommonUtils {
     private static final LanguageController messages =
             LanguageController.getInstance();
 
+    // the pool of workers used to fingerprint
+    // files in parallel, created on demand
+    private static ExecutorService pool;
+
     /**
      * Gets the reference of the current file in execution. Note that this
      * method might return a value different than the main file provided in
@@ -169,24 +196,25 @@ public class CommonUtils {
     }
 
     /**
-     * Calculates the CRC32 checksum of the provided file.
+     * Calculates the hash of the provided file, using the algorithm set in
+     * the configuration (CRC32, by default).
      * @param file The file.
-     * @return A string containing the CRC32 checksum of the provided file.
+     * @return A string containing the hash of the provided file.
      * @throws NightingaleException Something wrong happened, to be caught in
      * the higher levels.
      */
     public static String calculateHash(File file) throws NightingaleException {
-        try {
-            long result = FileUtils.checksumCRC32(file);
-            return String.format("%08x", result);
-        } catch (IOException exception) {
-            throw new NightingaleException(
-                    messages.getMessage(
-                            Messages.ERROR_CALCULATEHASH_IO_EXCEPTION
-                    ),
-                    exception
-            );
-        }
+        return HashUtils.calculateHash(file, getHashAlgorithm());
+    }
+
+    /**
+     * Gets the hash algorithm set in the configuration.
+     * @return The hash algorithm name.
+     */
+    private static String getHashAlgorithm() {
+        return (String) ConfigurationController.
+                getInstance().
+                get("execution.database.algorithm");
     }
 
     /**
@@ -262,6 +290,18 @@ public class CommonUtils {
         return file.exists();
     }
 
+    /**
+     * Checks if an analyzer reported its pattern as found, that is, if the
+     * session holds a true value under the provided key. Analyzers publish
+     * their results in the session once their commands end.
+     * @param key The session key.
+     * @return A boolean value indicating if the analyzer reported its pattern
+     * as found.
+     */
+    public static boolean found(String key) {
+        return Boolean.TRUE.equals(SessionController.getInstance().get(key));
+    }
+
     /**
      * Gets the parent canonical path of a file.
      * @param file The file.
@@ -296,44 +336,332 @@ public class CommonUtils {
     }
 
     /**
-     * Checks if a file has changed since the last verification.
+     * Checks if a file has changed since the last verification. The database
+     * is kept in memory by the database controller and changes are written
+     * back later; access is still serialized, since parallel directives might
+     * check and update the very same entries. Unless strict checks are
+     * enabled, a file whose size, modification time and file key are the
+     * same as recorded is not hashed at all.
      * @param file The file.
      * @return A boolean value indicating if the file has changed since the last
      * verification.
      * @throws NightingaleException Something wrong happened, to be caught in
      * the higher levels.
      */
-    public static boolean hasChanged(File file) throws NightingaleException {
-        Database database = DatabaseUtils.load();
-        HashMap<String, String> map = database.getMap();
+    public static synchronized boolean hasChanged(File file)
+            throws NightingaleException {
+        DatabaseController controller = DatabaseController.getInstance();
+        Database database = controller.get();
         String path = getCanonicalPath(file);
-        if (!file.exists()) {
-            if (map.containsKey(path)) {
-                map.remove(path);
-                database.setMap(map);
-                DatabaseUtils.save(database);
-                return true;
-            } else {
-                return false;
+        Pair<Boolean, String> result = verify(
+                file,
+                database.get(path),
+                isStrict(),
+                getHashAlgorithm()
+        );
+        if (apply(database, path, result.getSecondElement())) {
+            controller.update();
+        }
+        return result.getFirstElement();
+    }
+
+    /**
+     * Checks which of the provided files have changed since the last
+     * verification. The files are fingerprinted in parallel, on a bounded
+     * pool of workers, and the database is then updated in one batch.
+     * @param files The collection of files.
+     * @return A map indicating, for each file, if it has changed since the
+     * last verification.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static synchronized Map<File, Boolean> getChanges(
+            Collection<File> files) throws NightingaleException {
+        DatabaseController controller = DatabaseController.getInstance();
+        Database database = controller.get();
+        Map<File, String> values = new LinkedHashMap<File, String>();
+        Map<File, String> paths = new HashMap<File, String>();
+        for (File file : files) {
+            String path = getCanonicalPath(file);
+            paths.put(file, path);
+            values.put(file, database.get(path));
+        }
+        Map<File, Pair<Boolean, String>> results = verify(values);
+        Map<File, Boolean> changes = new LinkedHashMap<File, Boolean>();
+        boolean modified = false;
+        for (File file : results.keySet()) {
+            Pair<Boolean, String> result = results.get(file);
+            if (apply(database, paths.get(file), result.getSecondElement())) {
+                modified = true;
+            }
+            changes.put(file, result.getFirstElement());
+        }
+        if (modified) {
+            controller.update();
+        }
+        return changes;
+    }
+
+    /**
+     * Verifies the provided files against their previous values, that is,
+     * fingerprints as kept in the database. The files are verified in
+     * parallel, on a bounded pool of workers, and nothing is written at all.
+     * @param values The map of previous values, indexed by file; a null
+     * value means that the file was not known.
+     * @return A map containing, for each file, a pair with a boolean value
+     * indicating if the file has changed and its new value, which is null
+     * when the file does not exist.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static Map<File, Pair<Boolean, String>> verify(
+            Map<File, String> values) throws NightingaleException {
+
+        // the settings are obtained right here, since the
+        // workers do not share the scope of this thread
+        final boolean strict = isStrict();
+        final String algorithm = getHashAlgorithm();
+        List<File> files = new ArrayList<File>(values.keySet());
+        List<Callable<Pair<Boolean, String>>> tasks =
+                new ArrayList<Callable<Pair<Boolean, String>>>();
+        for (final File file : files) {
+            final String value = values.get(file);
+            tasks.add(new Callable<Pair<Boolean, String>>() {
+
+                @Override
+                public Pair<Boolean, String> call()
+                        throws NightingaleException {
+                    return verify(file, value, strict, algorithm);
+                }
+            });
+        }
+
+        // a handful of files is not worth
+        // the overhead of the pool at all
+        List<Pair<Boolean, String>> results =
+                new ArrayList<Pair<Boolean, String>>();
+        if (tasks.size() < 4) {
+            for (Callable<Pair<Boolean, String>> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (NightingaleException nexception) {
+                    throw nexception;
+                } catch (Exception exception) {
+                    // the task only throws the application
+                    // exception, so this is dead code
+                    throw new IllegalStateException(exception);
+                }
             }
         } else {
-            String hash = calculateHash(file);
-            if (map.containsKey(path)) {
-                String value = map.get(path);
-                if (hash.equals(value)) {
-                    return false;
-                } else {
-                    map.put(path, hash);
-                    database.setMap(map);
-                    DatabaseUtils.save(database);
-                    return true;
+            try {
+                for (Future<Pair<Boolean, String>> future
+                        : getPool().invokeAll(tasks)) {
+                    results.add(future.get());
                 }
-            } else {
-                map.put(path, hash);
-                database.setMap(map);
-                DatabaseUtils.save(database);
+            } catch (InterruptedException iexception) {
+                throw new NightingaleException(
+                        messages.getMessage(
+                                Messages.ERROR_INTERPRETER_INTERRUPTED
+                        ),
+                        iexception
+                );
+            } catch (ExecutionException eexception) {
+                if (eexception.getCause() instanceof NightingaleException) {
+                    throw (NightingaleException) eexception.getCause();
+                }
+                throw new IllegalStateException(eexception.getCause());
+            }
+        }
+
+        Map<File, Pair<Boolean, String>> result =
+                new LinkedHashMap<File, Pair<Boolean, String>>();
+        for (int i = 0; i < files.size(); i++) {
+            result.put(files.get(i), results.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Checks if any of the provided files has changed since the last
+     * verification. Every file is verified, so they are all up to date in
+     * the database afterwards.
+     * @param files The collection of files.
+     * @return A boolean value indicating if any file has changed since the
+     * last verification.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static boolean hasChanged(Collection<File> files)
+            throws NightingaleException {
+        return getChanges(files).containsValue(true);
+    }
+
+    /**
+     * Verifies the provided file against its value in the database. This
+     * method does not touch the database at all, so files can be verified
+     * concurrently.
+     * @param file The file.
+     * @param value The value in the database, if any.
+     * @param strict A boolean value indicating if the file must be hashed
+     * even when its metadata has not changed.
+     * @param algorithm The hash algorithm.
+     * @return A pair containing a boolean value indicating if the file has
+     * changed and the new value for the database, which is null when the
+     * file does not exist.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private static Pair<Boolean, String> verify(File file, String value,
+            boolean strict, String algorithm) throws NightingaleException {
+        if (!file.exists()) {
+            return new Pair<Boolean, String>(value != null, null);
+        }
+        Fingerprint previous = Fingerprint.parse(value);
+        Fingerprint current = getFingerprint(file);
+        if (!strict && current.hasSameMetadata(previous)) {
+            return new Pair<Boolean, String>(false, value);
+        }
+        current = current.withHash(
+                algorithm,
+                HashUtils.calculateHash(file, algorithm)
+        );
+
+        // with the same content, the metadata is still
+        // refreshed, so the next check might take the
+        // fast path
+        return new Pair<Boolean, String>(
+                !isSameContent(file, current, previous),
+                current.toString()
+        );
+    }
+
+    /**
+     * Applies the new value of the provided path to the database.
+     * @param database The database.
+     * @param path The path.
+     * @param value The new value, or null if the path must be removed.
+     * @return A boolean value indicating if the database was modified.
+     */
+    private static boolean apply(Database database, String path,
+            String value) {
+        if (value == null) {
+            if (database.contains(path)) {
+                database.remove(path);
                 return true;
             }
+            return false;
+        }
+        if (value.equals(database.get(path))) {
+            return false;
+        }
+        database.put(path, value);
+        return true;
+    }
+
+    /**
+     * Checks if strict checks are enabled, that is, if files are always
+     * hashed when checking for changes.
+     * @return A boolean value indicating if strict checks are enabled.
+     */
+    private static boolean isStrict() {
+        return (Boolean) ConfigurationController.
+                getInstance().
+                get("execution.database.strict");
+    }
+
+    /**
+     * Gets the pool of workers used to fingerprint files in parallel,
+     * creating it if necessary. The pool is bounded by the number of
+     * available processors and its threads do not prevent the application
+     * from terminating.
+     * @return The pool of workers.
+     */
+    private static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * Checks if the file content is the same as recorded in the previous
+     * fingerprint. If the previous hash was calculated with some other
+     * algorithm, the file is hashed once more with that algorithm, so
+     * switching algorithms does not make every file look changed.
+     * @param file The file.
+     * @param current The current fingerprint.
+     * @param previous The previous fingerprint, if any.
+     * @return A boolean value indicating if the content is the same.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private static boolean isSameContent(File file, Fingerprint current,
+            Fingerprint previous) throws NightingaleException {
+        if (previous == null) {
+            return false;
+        }
+        if (previous.getAlgorithm().equals(current.getAlgorithm())) {
+            return previous.getHash().equals(current.getHash());
+        }
+        if (!HashUtils.isSupported(previous.getAlgorithm())) {
+            return false;
+        }
+        return previous.getHash().equals(
+                HashUtils.calculateHash(file, previous.getAlgorithm())
+        );
+    }
+
+    /**
+     * Gets the fingerprint of the provided file, without the hash. The file
+     * metadata is obtained with a single call; a file modified too recently
+     * gets unknown metadata, since it might still change within the file
+     * system timestamp granularity without its metadata reflecting it.
+     * @param file The file.
+     * @return The file fingerprint, without the hash.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private static Fingerprint getFingerprint(File file)
+            throws NightingaleException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(
+                    file.toPath(),
+                    BasicFileAttributes.class
+            );
+            long modified = attributes.
+                    lastModifiedTime().
+                    to(TimeUnit.NANOSECONDS);
+            long now = TimeUnit.MILLISECONDS.toNanos(
+                    System.currentTimeMillis()
+            );
+            if (now - modified < TimeUnit.SECONDS.toNanos(2)) {
+                return new Fingerprint("", "", -1, 0, "");
+            }
+            Object key = attributes.fileKey();
+            return new Fingerprint(
+                    "",
+                    "",
+                    attributes.size(),
+                    modified,
+                    key == null ? "" : key.toString()
+            );
+        } catch (IOException exception) {
+            throw new NightingaleException(
+                    messages.getMessage(
+                            Messages.ERROR_CALCULATEHASH_IO_EXCEPTION
+                    ),
+                    exception
+            );
         }
     }
 
@@ -359,7 +687,7 @@ public class CommonUtils {
      * @throws NightingaleException Something wrong happened, to be caught in
      * the higher levels.
      */
-    private static String getPath(String extension)
+    public static String getPath(String extension)
             throws NightingaleException {
         String name = getBasename(getCurrentReference());
         String path = getParentCanonicalPath(getCurrentReference());
@@ -388,6 +716,28 @@ public class CommonUtils {
         }
     }
 
+    /**
+     * Gets the file denoted by the provided path. Relative paths are resolved
+     * against the working directory of the current execution, if set, which
+     * is the case of builds requested to the daemon; otherwise, they are
+     * resolved against the application working directory, as usual.
+     * @param path The path.
+     * @return The file.
+     */
+    public static File getFile(String path) {
+        File file = new File(path);
+        if (!file.isAbsolute() && ConfigurationController.
+                getInstance().
+                contains("execution.directory")) {
+            file = new File((File) ConfigurationController.
+                    getInstance().
+                    get("execution.directory"),
+                    path
+            );
+        }
+        return file;
+    }
+
     /**
      * Gets the canonical file from a file.
      * @param file The file.
@@ -398,7 +748,7 @@ public class CommonUtils {
     public static File getCanonicalFile(String file)
             throws NightingaleException {
         try {
-            return (new File(file)).getCanonicalFile();
+            return getFile(file).getCanonicalFile();
         } catch (IOException exception) {
             throw new NightingaleException(
                     messages.getMessage(
@@ -552,39 +902,24 @@ public class CommonUtils {
     /**
      * Performs a file lookup based on a string reference.
      * @param reference The file reference.
-     * @return The file.
+     * @return The file, or null if no file could be found.
      * @throws NightingaleException Something wrong happened, to be caught in
      * the higher levels.
      */
     private static File lookupFile(String reference)
             throws NightingaleException {
-        @SuppressWarnings("unchecked")
-        List<FileType> types = (List<FileType>) ConfigurationController.
-                getInstance().
-                get("execution.filetypes");
-        File file = new File(reference);
+        List<FileType> types = getFileTypes();
+        File file = getFile(reference);
         String name = file.getName();
         String parent = getParentCanonicalPath(file);
         String path = buildPath(parent, name);
 
         // direct search, so we are considering
         // the reference as a complete name
-        for (FileType type : types) {
-            if (path.endsWith(".".concat(type.getExtension()))) {
-                file = new File(path);
-                if (file.exists()) {
-                    if (file.isFile()) {
-                        ConfigurationController.
-                                getInstance().
-                                put("execution.file.pattern",
-                                        type.getPattern()
-                                );
-                        ConfigurationController.
-                                getInstance().
-                                put("execution.reference", file);
-                        return file;
-                    }
-                }
+        if (getFileType(new File(path)) != null) {
+            file = new File(path);
+            if (file.isFile()) {
+                return file;
             }
         }
 
@@ -596,22 +931,45 @@ public class CommonUtils {
                     concat(type.getExtension())
             );
             file = new File(path);
-            if (file.exists()) {
-                if (file.isFile()) {
-                    ConfigurationController.
-                            getInstance().
-                            put("execution.file.pattern", type.getPattern());
-                    ConfigurationController.
-                            getInstance().
-                            put("execution.reference", file);
-                    return file;
-                }
+            if (file.isFile()) {
+                return file;
             }
         }
 
         return null;
     }
 
+    /**
+     * Gets the file type of the provided file, based on its extension.
+     * @param file The file.
+     * @return The file type, or null if the extension is unknown.
+     */
+    private static FileType getFileType(File file) {
+        List<FileType> types = getFileTypes();
+        for (FileType type : types) {
+            if (file.getName().endsWith(".".concat(type.getExtension()))) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the provided file as the main file, that is, the file from which
+     * the directives are extracted, and sets its pattern accordingly.
+     * @param file The file, which must have a known extension.
+     */
+    public static void setReference(File file) {
+        ConfigurationController.
+                getInstance().
+                put("execution.file.pattern",
+                        getFileType(file).getPattern()
+                );
+        ConfigurationController.
+                getInstance().
+                put("execution.reference", file);
+    }
+
     /**
      * Discovers the file through string reference lookup and sets the
      * configuration accordingly.
@@ -631,6 +989,168 @@ public class CommonUtils {
                     )
             );
         }
+        setReference(file);
+    }
+
+    /**
+     * Checks if the provided string reference is a pattern or a directory
+     * instead of a plain file reference.
+     * @param reference The string reference.
+     * @return A boolean value indicating if the string reference denotes a
+     * pattern or a directory.
+     */
+    public static boolean isMultipleReference(String reference) {
+        return StringUtils.containsAny(reference, "*?[{")
+                || getFile(reference).isDirectory();
+    }
+
+    /**
+     * Discovers the files through string references. Each reference might
+     * be a plain file reference, a directory (its files with known extensions
+     * are taken, in order) or a glob pattern like 'chapters/**.tex' (the
+     * matching files with known extensions are taken, in order). Duplicates
+     * are discarded.
+     * @param references The list of string references.
+     * @return The list of files.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static List<File> discoverFiles(List<String> references)
+            throws NightingaleException {
+        Set<File> result = new LinkedHashSet<File>();
+        for (String reference : references) {
+            List<File> files = new ArrayList<File>();
+            if (StringUtils.containsAny(reference, "*?[{")) {
+                files = findFiles(reference, true);
+            } else {
+                File directory = getFile(reference);
+                if (directory.isDirectory()) {
+                    File[] entries = directory.listFiles();
+                    if (entries != null) {
+                        for (File entry : entries) {
+                            if (entry.isFile()
+                                    && (getFileType(entry) != null)) {
+                                files.add(getCanonicalFile(
+                                        entry.getPath())
+                                );
+                            }
+                        }
+                    }
+                    Collections.sort(files);
+                } else {
+                    File file = lookupFile(reference);
+                    if (file == null) {
+                        throw new NightingaleException(
+                                messages.getMessage(
+                                        Messages.ERROR_DISCOVERFILE_FILE_NOT_FOUND,
+                                        reference,
+                                        getFileTypesList()
+                                )
+                        );
+                    }
+                    files.add(getCanonicalFile(file.getPath()));
+                }
+            }
+            if (files.isEmpty()) {
+                throw new NightingaleException(
+                        messages.getMessage(
+                                Messages.ERROR_DISCOVERFILES_NO_MATCHES,
+                                reference,
+                                getFileTypesList()
+                        )
+                );
+            }
+            result.addAll(files);
+        }
+        return new ArrayList<File>(result);
+    }
+
+    /**
+     * Finds the files matching the provided glob pattern, like
+     * 'figures/*.pdf' or 'chapters/**.tex'.
+     * @param pattern The glob pattern.
+     * @return The list of matching files, in order.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static List<File> glob(String pattern)
+            throws NightingaleException {
+        return findFiles(pattern, false);
+    }
+
+    /**
+     * Finds the files matching the provided glob pattern. The pattern is
+     * split into a base directory, that is, the leading path without
+     * wildcards, and the remaining pattern, which is matched against paths
+     * relative to the base directory.
+     * @param reference The glob pattern.
+     * @param known A boolean value indicating if only files with known
+     * extensions are taken.
+     * @return The list of matching files, in order.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private static List<File> findFiles(String reference,
+            final boolean known) throws NightingaleException {
+        String[] segments = reference.replace('\\', '/').split("/");
+        StringBuilder base = new StringBuilder();
+        int index = 0;
+        while ((index < segments.length - 1)
+                && !StringUtils.containsAny(segments[index], "*?[{")) {
+            base.append(segments[index]).append("/");
+            index++;
+        }
+        String pattern = StringUtils.join(
+                Arrays.copyOfRange(segments, index, segments.length),
+                "/"
+        );
+
+        // when the pattern does not cross directories,
+        // there is no need to walk the whole tree
+        int depth = pattern.contains("**")
+                ? Integer.MAX_VALUE
+                : segments.length - index;
+        final Path root = getFile(
+                base.length() == 0 ? "." : base.toString()
+        ).toPath().toAbsolutePath().normalize();
+        final PathMatcher matcher = FileSystems.getDefault().
+                getPathMatcher("glob:".concat(pattern));
+        final List<File> files = new ArrayList<File>();
+
+        if (Files.isDirectory(root)) {
+            try {
+                Files.walkFileTree(
+                        root,
+                        EnumSet.noneOf(FileVisitOption.class),
+                        depth,
+                        new SimpleFileVisitor<Path>() {
+
+                    @Override
+                    public FileVisitResult visitFile(Path path,
+                            BasicFileAttributes attributes) {
+                        File file = path.toFile();
+                        if (attributes.isRegularFile()
+                                && matcher.matches(root.relativize(path))
+                                && (!known
+                                        || (getFileType(file) != null))) {
+                            files.add(file);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException ioexception) {
+                throw new NightingaleException(
+                        messages.getMessage(
+                                Messages.ERROR_DISCOVERFILES_IO_EXCEPTION,
+                                reference
+                        ),
+                        ioexception
+                );
+            }
+        }
+
+        Collections.sort(files);
+        return files;
     }
 
     /**
@@ -653,15 +1173,31 @@ public class CommonUtils {
         return format.format(file.lastModified());
     }
 
+    /**
+     * Gets the file types, in order. Unless the configuration file sets its
+     * own file types, the defaults are used; they are only built when a file
+     * is actually looked up, not when the application starts.
+     * @return The list of file types, in order.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<FileType> getFileTypes() {
+        if (ConfigurationController.
+                getInstance().
+                contains("execution.filetypes")) {
+            return (List<FileType>) ConfigurationController.
+                    getInstance().
+                    get("execution.filetypes");
+        } else {
+            return ConfigurationUtils.getDefaultFileTypes();
+        }
+    }
+
     /**
      * Gets the list of file types, in order.
      * @return A string representation of the list of file types, in order.
      */
     public static String getFileTypesList() {
-        @SuppressWarnings("unchecked")
-        List<FileType> types = (List<FileType>) ConfigurationController.
-                getInstance().
-                get("execution.filetypes");
+        List<FileType> types = getFileTypes();
         return getCollectionElements(types, "[ ", " ]", " | ");
     }
 
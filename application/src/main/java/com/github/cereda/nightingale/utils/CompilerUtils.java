@@ -0,0 +1,559 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.controller.LanguageController;
+import com.github.cereda.nightingale.controller.ScriptController;
+import com.github.cereda.nightingale.model.Messages;
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovySystem;
+import groovy.lang.Script;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.codehaus.groovy.tools.GroovyClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implements compiler utilitary methods.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class CompilerUtils {
+
+    // the application messages obtained from the
+    // language controller
+    private static final LanguageController messages =
+            LanguageController.getInstance();
+
+    // get the logger context from a factory
+    private static final Logger logger =
+            LoggerFactory.getLogger(CompilerUtils.class);
+
+    // the magic number and format version of
+    // the class cache entries; a change in the
+    // format simply makes old entries unusable
+    private static final int MAGIC = 0x4e474343;
+    private static final int FORMAT = 1;
+
+    /**
+     * Compiles the provided script file, using the provided class as script
+     * base class. The resulting class is kept in the script controller, so
+     * subsequent calls with the very same file content do not trigger a new
+     * compilation.
+     * @param file The script file.
+     * @param base The fully qualified name of the script base class.
+     * @return The compiled script class.
+     * @throws IOException The script file could not be read.
+     * @throws CompilationFailedException The script could not be compiled.
+     */
+    public static Class<? extends Script> compile(File file, String base)
+            throws IOException, CompilationFailedException {
+        String text = FileUtils.readFileToString(
+                file,
+                CompilerConfiguration.DEFAULT.getSourceEncoding()
+        );
+        return compile(file.getCanonicalPath(), file.getName(), text, base,
+                true);
+    }
+
+    /**
+     * Compiles the provided script text, using the provided class as script
+     * base class. The resulting class is kept in the script controller, so
+     * subsequent calls with the very same text do not trigger a new
+     * compilation.
+     * @param text The script text.
+     * @param base The fully qualified name of the script base class.
+     * @return The compiled script class.
+     * @throws CompilationFailedException The script could not be compiled.
+     */
+    public static Class<? extends Script> compile(String text, String base)
+            throws CompilationFailedException {
+        return compile(base, "Script1.groovy", text, base, false);
+    }
+
+    /**
+     * Compiles the provided script, looking up both the script controller
+     * and the class cache before actually invoking the compiler. Access is
+     * serialized, since directives might be interpreted in parallel and the
+     * very same script must not be compiled twice.
+     * @param location The script location, used to index the script class.
+     * @param name The script name, which also defines the script class name.
+     * @param text The script text.
+     * @param base The fully qualified name of the script base class.
+     * @param replace A flag indicating if the script class replaces the ones
+     * previously compiled from the same location, which is the case of
+     * script files, since only their current content matters.
+     * @return The compiled script class.
+     * @throws CompilationFailedException The script could not be compiled.
+     */
+    private static synchronized Class<? extends Script> compile(
+            String location, String name, String text, String base,
+            boolean replace) throws CompilationFailedException {
+        String prefix = location.concat(":");
+        String key = prefix.concat(getDigest(text));
+        ScriptController controller = ScriptController.getInstance();
+        Class<? extends Script> script = controller.get(key);
+        if (script == null) {
+            script = load(name, text, base);
+            if (replace) {
+                controller.removeAll(prefix);
+            }
+            controller.put(key, script);
+        }
+        return script;
+    }
+
+    /**
+     * Creates a new instance of the provided script class, attached to the
+     * provided binding.
+     * @param script The script class.
+     * @param binding The binding.
+     * @return A new script instance.
+     */
+    public static Script instantiate(Class<? extends Script> script,
+            Binding binding) {
+        return InvokerHelper.createScript(script, binding);
+    }
+
+    /**
+     * Loads the script class, either from the class cache or by compiling
+     * the script and storing the result in the class cache.
+     * @param name The script name.
+     * @param text The script text.
+     * @param base The fully qualified name of the script base class.
+     * @return The script class.
+     * @throws CompilationFailedException The script could not be compiled.
+     */
+    private static Class<? extends Script> load(String name, String text,
+            String base) throws CompilationFailedException {
+        File entry = getCacheEntry(name, text, base);
+        if ((entry != null) && (entry.isFile())) {
+            Class<? extends Script> script = read(entry, base);
+            if (script != null) {
+                return script;
+            }
+        }
+        Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+        String main = generate(name, text, base, classes);
+        if (entry != null) {
+            write(entry, main, classes);
+        }
+        try {
+            return define(main, classes, base);
+        } catch (ClassNotFoundException exception) {
+            // the compiler has just generated the main
+            // class, so this is dead code
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Compiles the script into bytecode.
+     * @param name The script name.
+     * @param text The script text.
+     * @param base The fully qualified name of the script base class.
+     * @param classes The map which will hold the bytecode of every generated
+     * class, indexed by the class name.
+     * @return The name of the main script class.
+     * @throws CompilationFailedException The script could not be compiled.
+     */
+    private static String generate(String name, String text, String base,
+            Map<String, byte[]> classes) throws CompilationFailedException {
+        GroovyClassLoader loader = getLoader(base);
+        CompilationUnit unit = new CompilationUnit(
+                getConfiguration(base),
+                null,
+                loader
+        );
+        SourceUnit source = unit.addSource(name, text);
+        unit.compile(Phases.CLASS_GENERATION);
+        for (GroovyClass current : unit.getClasses()) {
+            classes.put(current.getName(), current.getBytes());
+        }
+        String main = null;
+        for (ClassNode node : source.getAST().getClasses()) {
+            if (node.isScript()) {
+                main = node.getName();
+            }
+        }
+        return main;
+    }
+
+    /**
+     * Defines the classes from the provided bytecode map and returns the main
+     * script class.
+     * @param main The main script class name.
+     * @param classes The bytecode map.
+     * @param base The fully qualified name of the script base class.
+     * @return The main script class.
+     * @throws ClassNotFoundException The main class is not available.
+     */
+    private static Class<? extends Script> define(String main,
+            Map<String, byte[]> classes, String base)
+            throws ClassNotFoundException {
+        BytecodeClassLoader loader = new BytecodeClassLoader(
+                getLoader(base),
+                classes
+        );
+        return loader.loadClass(main).asSubclass(Script.class);
+    }
+
+    /**
+     * Reads a class cache entry and defines its classes.
+     * @param entry The class cache entry.
+     * @param base The fully qualified name of the script base class.
+     * @return The main script class, or null if the entry could not be used;
+     * in this case, the entry is removed.
+     */
+    private static Class<? extends Script> read(File entry, String base) {
+        DataInputStream stream = null;
+        try {
+            stream = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(entry))
+            );
+            if ((stream.readInt() != MAGIC)
+                    || (stream.readInt() != FORMAT)) {
+                throw new IOException(entry.getName());
+            }
+            String main = stream.readUTF();
+            int count = stream.readInt();
+            Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+            for (int i = 0; i < count; i++) {
+                String name = stream.readUTF();
+                byte[] bytes = new byte[stream.readInt()];
+                stream.readFully(bytes);
+                classes.put(name, bytes);
+            }
+            Class<? extends Script> script = define(main, classes, base);
+            entry.setLastModified(System.currentTimeMillis());
+            return script;
+        } catch (Exception exception) {
+            discard(entry);
+            return null;
+        } catch (LinkageError error) {
+            discard(entry);
+            return null;
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Writes a class cache entry. The entry is written to a temporary file
+     * first and then atomically moved into place, so concurrent executions
+     * never see a partially written entry; the least recently used entries
+     * are evicted afterwards if the class cache is too big. Failures are not
+     * fatal, the script will simply be compiled again next time.
+     * @param entry The class cache entry.
+     * @param main The main script class name.
+     * @param classes The bytecode map.
+     */
+    private static void write(File entry, String main,
+            Map<String, byte[]> classes) {
+        File directory = entry.getParentFile();
+        File temporary = null;
+        DataOutputStream stream = null;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException(directory.getPath());
+            }
+            temporary = File.createTempFile("nightingale", ".tmp", directory);
+            stream = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temporary))
+            );
+            stream.writeInt(MAGIC);
+            stream.writeInt(FORMAT);
+            stream.writeUTF(main);
+            stream.writeInt(classes.size());
+            for (String name : classes.keySet()) {
+                stream.writeUTF(name);
+                stream.writeInt(classes.get(name).length);
+                stream.write(classes.get(name));
+            }
+            stream.close();
+            try {
+                Files.move(temporary.toPath(), entry.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(temporary.toPath(), entry.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException exception) {
+            IOUtils.closeQuietly(stream);
+            FileUtils.deleteQuietly(temporary);
+            logger.info(
+                    messages.getMessage(
+                            Messages.LOG_INFO_CLASS_CACHE_NOT_SAVED,
+                            entry.getName()
+                    )
+            );
+            return;
+        }
+        evict(directory, getLimit());
+    }
+
+    /**
+     * Evicts the least recently used entries until the class cache fits in
+     * the provided limit. Entries are touched whenever they are read, so
+     * their modification times tell when they were last used.
+     * @param directory The class cache directory.
+     * @param limit The limit, in bytes.
+     */
+    private static void evict(File directory, long limit) {
+        File[] entries = directory.listFiles();
+        if (entries == null) {
+            return;
+        }
+        long total = 0;
+        List<File> files = new ArrayList<File>();
+        for (File entry : entries) {
+            if (entry.getName().endsWith(".cache")) {
+                files.add(entry);
+                total = total + entry.length();
+            }
+        }
+        if (total <= limit) {
+            return;
+        }
+        final Map<File, Long> times = new HashMap<File, Long>();
+        for (File entry : files) {
+            times.put(entry, entry.lastModified());
+        }
+        Collections.sort(files, new Comparator<File>() {
+
+            @Override
+            public int compare(File first, File second) {
+                return times.get(first).compareTo(times.get(second));
+            }
+        });
+        for (File entry : files) {
+            if (total <= limit) {
+                break;
+            }
+            long length = entry.length();
+            if (entry.delete()) {
+                total = total - length;
+                logger.info(
+                        messages.getMessage(
+                                Messages.LOG_INFO_CLASS_CACHE_EVICTED,
+                                entry.getName()
+                        )
+                );
+            }
+        }
+    }
+
+    /**
+     * Gets the class cache size limit.
+     * @return The limit, in bytes.
+     */
+    private static long getLimit() {
+        return ((Long) ConfigurationController.
+                getInstance().
+                get("execution.cache.classes.size")) * 1024L * 1024L;
+    }
+
+    /**
+     * Discards an unusable class cache entry.
+     * @param entry The class cache entry.
+     */
+    private static void discard(File entry) {
+        logger.info(
+                messages.getMessage(
+                        Messages.LOG_INFO_CLASS_CACHE_DISCARDED,
+                        entry.getName()
+                )
+        );
+        FileUtils.deleteQuietly(entry);
+    }
+
+    /**
+     * Gets the class cache entry for the provided script. The entry name is
+     * a digest of everything that might affect the generated bytecode: the
+     * script itself, the script base class bytecode, the Groovy version, the
+     * Java version and the application version.
+     * @param name The script name.
+     * @param text The script text.
+     * @param base The fully qualified name of the script base class.
+     * @return The class cache entry, or null if the class cache is disabled.
+     */
+    private static File getCacheEntry(String name, String text, String base) {
+        if (!((Boolean) ConfigurationController.
+                getInstance().
+                get("execution.cache.classes"))) {
+            return null;
+        }
+        String path = (String) ConfigurationController.
+                getInstance().
+                get("execution.cache.path");
+        StringBuilder builder = new StringBuilder();
+        builder.append(name).append('\0');
+        builder.append(text).append('\0');
+        builder.append(base).append('\0');
+        builder.append(getBaseDigest(base)).append('\0');
+        builder.append(GroovySystem.getVersion()).append('\0');
+        builder.append(System.getProperty("java.specification.version"));
+        builder.append('\0').append(CommonUtils.getVersionString());
+        String directory = CommonUtils.buildPath(path, "classes");
+        return new File(
+                CommonUtils.buildPath(
+                        directory,
+                        getDigest(builder.toString()).concat(".cache")
+                )
+        );
+    }
+
+    /**
+     * Gets the digest of the script base class bytecode, so any change in
+     * the base class invalidates the class cache entries built upon it.
+     * @param base The fully qualified name of the script base class.
+     * @return A string containing the digest, or an empty string if the
+     * bytecode could not be read.
+     */
+    private static String getBaseDigest(String base) {
+        String resource = base.replace('.', '/').concat(".class");
+        InputStream stream = CompilerUtils.class.
+                getClassLoader().
+                getResourceAsStream(resource);
+        try {
+            return stream == null ? "" :
+                    getDigest(IOUtils.toByteArray(stream));
+        } catch (IOException exception) {
+            return "";
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Gets the class loader for the provided script base class, creating it
+     * if necessary.
+     * @param base The fully qualified name of the script base class.
+     * @return The class loader.
+     */
+    private static GroovyClassLoader getLoader(String base) {
+        ScriptController controller = ScriptController.getInstance();
+        GroovyClassLoader loader = controller.getLoader(base);
+        if (loader == null) {
+            loader = new GroovyClassLoader(
+                    CompilerUtils.class.getClassLoader(),
+                    getConfiguration(base)
+            );
+            controller.putLoader(base, loader);
+        }
+        return loader;
+    }
+
+    /**
+     * Gets a new compiler configuration for the provided script base class.
+     * @param base The fully qualified name of the script base class.
+     * @return The compiler configuration.
+     */
+    private static CompilerConfiguration getConfiguration(String base) {
+        CompilerConfiguration configuration = new CompilerConfiguration();
+        configuration.setScriptBaseClass(base);
+        return configuration;
+    }
+
+    /**
+     * Calculates the SHA-256 digest of the provided text.
+     * @param text The text.
+     * @return A string containing the hexadecimal representation of the
+     * digest.
+     */
+    private static String getDigest(String text) {
+        try {
+            return getDigest(text.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException exception) {
+            // every Java platform is required to
+            // support UTF-8, so this is dead code
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Calculates the SHA-256 digest of the provided bytes.
+     * @param bytes The bytes.
+     * @return A string containing the hexadecimal representation of the
+     * digest.
+     */
+    private static String getDigest(byte[] bytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            StringBuilder builder = new StringBuilder();
+            for (byte value : digest.digest(bytes)) {
+                builder.append(String.format("%02x", value));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException exception) {
+            // every Java platform is required to
+            // support SHA-256, so this is dead code
+            throw new IllegalStateException(exception);
+        }
+    }
+
+}
@@ -55,6 +55,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import org.apache.commons.lang.SystemUtils;
 import org.codehaus.groovy.control.CompilationFailedException;
 import org.codehaus.groovy.control.CompilerConfiguration;
@@ -113,13 +115,6 @@ public class ConfigurationUtils {
             @SuppressWarnings("unchecked")
             Map<String, Object> result = (Map<String, Object>) holder;
             return result;
-        } catch (CompilationFailedException cfexception) {
-            throw new NightingaleException(
-                    messages.getMessage(
-                            Messages.ERROR_VALIDATECONFIGURATION_COMPILATION_FAILED
-                    ),
-                    cfexception
-            );
         } catch (IOException ioexception) {
             throw new NightingaleException(
                     messages.getMessage(
@@ -135,6 +130,19 @@ public class ConfigurationUtils {
                     ucexception
             );
         } catch (Exception exception) {
+
+            // compilation failures are checked by instance instead of
+            // having their own catch block, otherwise the class verifier
+            // would load the groovy runtime as soon as this class is
+            // loaded, even if there is no configuration file at all
+            if (exception instanceof CompilationFailedException) {
+                throw new NightingaleException(
+                        messages.getMessage(
+                                Messages.ERROR_VALIDATECONFIGURATION_COMPILATION_FAILED
+                        ),
+                        exception
+                );
+            }
             throw new NightingaleException(
                     messages.getMessage(
                             Messages.ERROR_VALIDATECONFIGURATION_GENERIC_EXCEPTION
@@ -175,8 +183,12 @@ public class ConfigurationUtils {
                 mapping.put("file types", List.class);
                 mapping.put("directive charset", Charset.class);
                 mapping.put("maximum number of loops", Long.class);
+                mapping.put("number of jobs", Long.class);
                 mapping.put("halt on error", Boolean.class);
                 mapping.put("database name", String.class);
+                mapping.put("database format", String.class);
+                mapping.put("strict checks", Boolean.class);
+                mapping.put("hash algorithm", String.class);
                 mapping.put("log name", String.class);
                 mapping.put("enable timeout", Boolean.class);
                 mapping.put("timeout value", Long.class);
@@ -184,6 +196,15 @@ public class ConfigurationUtils {
                 mapping.put("verbose mode", Boolean.class);
                 mapping.put("enable logging", Boolean.class);
                 mapping.put("language", Language.class);
+                mapping.put("enable class cache", Boolean.class);
+                mapping.put("class cache size", Long.class);
+                mapping.put("enable output cache", Boolean.class);
+                mapping.put("output cache size", Long.class);
+                mapping.put("skip up to date directives", Boolean.class);
+                mapping.put("slow output policy", String.class);
+                mapping.put("enable early termination", Boolean.class);
+                mapping.put("fatal output patterns", List.class);
+                mapping.put("resource accounting", Boolean.class);
 
                 @SuppressWarnings("unchecked")
                 Map<String, Object> config = (Map<String, Object>) holder;
@@ -269,21 +290,36 @@ public class ConfigurationUtils {
         }
     }
 
+    /**
+     * Checks if the provided list holds valid regexes only.
+     * @param holder The list from the map.
+     * @return A boolean value indicating if the list is not empty and every
+     * element is a string holding a valid regex.
+     */
+    public static boolean checkRegexes(List<?> holder) {
+        if (holder.isEmpty()) {
+            return false;
+        }
+        for (Object element : holder) {
+            if (!CommonUtils.checkClass(String.class, element)
+                    || CommonUtils.checkEmptyString((String) element)) {
+                return false;
+            }
+            try {
+                Pattern.compile((String) element);
+            } catch (PatternSyntaxException exception) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Gets the list of default file types provided by nightingale, in order.
      * @return The list of default file types, in order.
-     * @throws NightingaleException Something wrong happened, to be caught in
-     * the higher levels.
      */
-    public static List<FileType> getDefaultFileTypes()
-            throws NightingaleException {
-        return Arrays.asList(
-                new FileType("tex"),
-                new FileType("dtx"),
-                new FileType("ltx"),
-                new FileType("drv"),
-                new FileType("ins")
-        );
+    public static List<FileType> getDefaultFileTypes() {
+        return FileType.getDefaults();
     }
 
     /**
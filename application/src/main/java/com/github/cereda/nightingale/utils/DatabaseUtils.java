@@ -37,10 +37,21 @@ import com.github.cereda.nightingale.controller.ConfigurationController;
 import com.github.cereda.nightingale.controller.LanguageController;
 import com.github.cereda.nightingale.model.NightingaleException;
 import com.github.cereda.nightingale.model.Database;
+import com.github.cereda.nightingale.model.DatabaseTable;
 import com.github.cereda.nightingale.model.Messages;
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.simpleframework.xml.Serializer;
 import org.simpleframework.xml.core.Persister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Implements database utilitary methods.
@@ -55,17 +66,76 @@ public class DatabaseUtils {
     private static final LanguageController messages =
             LanguageController.getInstance();
 
+    // the class logger obtained from
+    // the logger factory
+    private static final Logger logger =
+            LoggerFactory.getLogger(DatabaseUtils.class);
+
     /**
-     * Loads the XML file representing the database.
+     * Loads the database of the current main file.
      * @return The database object.
      * @throws NightingaleException Something wrong happened, to be caught in
      * the higher levels.
      */
     public static Database load() throws NightingaleException {
-        if (!exists()) {
+        return load(getFile());
+    }
+
+    /**
+     * Loads the provided file representing a database, either a binary table
+     * or a XML file, according to its extension. A missing binary table is
+     * migrated from the XML file with the same name, if there is one.
+     * @param file The database file.
+     * @return The database object.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static Database load(File file) throws NightingaleException {
+        if (!isBinary(file)) {
+            return loadXML(file);
+        }
+        if (!file.exists()) {
+            File xml = getSibling(file, "xml");
+            if (!xml.exists()) {
+                return new Database();
+            }
+            
+            // the XML database is converted once and kept
+            // untouched, so nothing is lost if the binary
+            // table cannot be used later on
+            save(loadXML(xml), file);
+            logger.info(
+                    messages.getMessage(
+                            Messages.LOG_INFO_DATABASE_MIGRATED,
+                            xml.getName(),
+                            file.getName()
+                    )
+            );
+        }
+        try {
+            return new Database(DatabaseTable.open(file));
+        } catch (IOException exception) {
+            throw new NightingaleException(
+                    messages.getMessage(
+                            Messages.ERROR_LOAD_COULD_NOT_LOAD_DATABASE,
+                            file.getName()
+                    ),
+                    exception
+            );
+        }
+    }
+
+    /**
+     * Loads the provided XML file representing a database.
+     * @param file The XML file.
+     * @return The database object.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private static Database loadXML(File file) throws NightingaleException {
+        if (!file.exists()) {
             return new Database();
         } else {
-            File file = new File(getPath());
             try {
                 Serializer serializer = new Persister();
                 Database database = serializer.read(Database.class, file);
@@ -83,51 +153,151 @@ public class DatabaseUtils {
     }
 
     /**
-     * Saves the database on a XML file.
+     * Saves the database of the current main file.
      * @param database The database object.
      * @throws NightingaleException Something wrong happened, to be caught in
      * the higher levels.
      */
     public static void save(Database database) throws NightingaleException {
-        File file = new File(getPath());
+        save(database, getFile());
+    }
+
+    /**
+     * Saves the database on the provided file, either as a binary table or
+     * as a XML file, according to its extension. Several executions might
+     * share the very same database file, so saving is done while holding an
+     * exclusive lock on a companion lock file: the database file is read
+     * again, the changes made since the database was loaded are merged into
+     * it, and the result is written to a temporary file which then replaces
+     * the original one, so an interrupted write never leaves a corrupted
+     * database behind and concurrent writes never lose entries.
+     * @param database The database object.
+     * @param file The database file.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static void save(Database database, File file)
+            throws NightingaleException {
+        File lock = new File(
+                file.getParentFile(),
+                ".".concat(file.getName()).concat(".lock")
+        );
+        File temporary = null;
+        FileChannel channel = null;
         try {
-            Serializer serializer = new Persister();
-            serializer.write(database, file);
+            channel = FileChannel.open(
+                    lock.toPath(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE
+            );
+
+            // the lock is released when the channel is closed,
+            // and by the operating system if the process dies
+            channel.lock();
+
+            Database result = database;
+            if (file.exists()) {
+                result = read(file);
+                database.applyChanges(result);
+            }
+            temporary = File.createTempFile(
+                    file.getName(),
+                    ".tmp",
+                    file.getParentFile()
+            );
+            if (isBinary(file)) {
+                DatabaseTable.write(result.getEntries(), temporary);
+            } else {
+                Database xml = new Database();
+                xml.setMap(result.getEntries());
+                Serializer serializer = new Persister();
+                serializer.write(xml, temporary);
+            }
+            try {
+                Files.move(
+                        temporary.toPath(),
+                        file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE
+                );
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(
+                        temporary.toPath(),
+                        file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING
+                );
+            }
         } catch (Exception exception) {
+            FileUtils.deleteQuietly(temporary);
             throw new NightingaleException(
                     messages.getMessage(
-                            Messages.ERROR_SAVE_COULD_NOT_SAVE_XML,
+                            isBinary(file)
+                                    ? Messages.ERROR_SAVE_COULD_NOT_SAVE_DATABASE
+                                    : Messages.ERROR_SAVE_COULD_NOT_SAVE_XML,
                             file.getName()
                     ),
                     exception
             );
+        } finally {
+            IOUtils.closeQuietly(channel);
         }
     }
 
     /**
-     * Checks if the XML file representing the database exists.
-     * @return A boolean value indicating if the XML file exists.
-     * @throws NightingaleException Something wrong happened, to be caught in
-     * the higher levels.
+     * Reads the provided database file as it is, without migrations.
+     * @param file The database file.
+     * @return The database object.
+     * @throws Exception Something wrong happened.
      */
-    private static boolean exists() throws NightingaleException {
-        File file = new File(getPath());
-        return file.exists();
+    private static Database read(File file) throws Exception {
+        if (isBinary(file)) {
+            return new Database(DatabaseTable.open(file));
+        } else {
+            Serializer serializer = new Persister();
+            return serializer.read(Database.class, file);
+        }
     }
 
     /**
-     * Gets the path to the XML file representing the database.
-     * @return A string representing the path to the XML file.
+     * Gets the file representing the database of the current main file,
+     * according to the database format.
+     * @return The database file.
      * @throws NightingaleException Something wrong happened, to be caught in
      * the higher levels.
      */
-    private static String getPath() throws NightingaleException {
+    public static File getFile() throws NightingaleException {
+        String format = (String) ConfigurationController.
+                getInstance().
+                get("execution.database.format");
         String name = ((String) ConfigurationController.
                 getInstance().
                 get("execution.database.name")
-                ).concat(".xml");
+                ).concat(format.equals("xml") ? ".xml" : ".db");
         String path = CommonUtils.getParentCanonicalPath(getReference());
-        return CommonUtils.buildPath(path, name);
+        return new File(CommonUtils.buildPath(path, name));
+    }
+
+    /**
+     * Checks if the provided database file is a binary table.
+     * @param file The database file.
+     * @return A boolean value indicating if the file is a binary table.
+     */
+    private static boolean isBinary(File file) {
+        return file.getName().endsWith(".db");
+    }
+
+    /**
+     * Gets the file with the same name as the provided one, but with the
+     * provided extension instead.
+     * @param file The file.
+     * @param extension The extension.
+     * @return The sibling file.
+     */
+    private static File getSibling(File file, String extension) {
+        return new File(
+                file.getParentFile(),
+                CommonUtils.getBasename(file).concat(".").concat(extension)
+        );
     }
 
     /**
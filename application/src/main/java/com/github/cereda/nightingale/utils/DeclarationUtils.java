@@ -0,0 +1,242 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import com.github.cereda.nightingale.model.NightingaleException;
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Implements the utilitary methods for the inputs and outputs declared by
+ * rules. A declared pattern is either a suffix to the basename of the file
+ * the directive refers to, when it starts with a dot (like '.aux'), or a
+ * glob relative to the directory of such file (like '**.bib'). Patterns are
+ * resolved to globs relative to the working directory, so they can be
+ * matched against the files scanned around it.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class DeclarationUtils {
+
+    /**
+     * Resolves the provided patterns against the provided file.
+     * @param patterns The list of patterns.
+     * @param file The file the directive refers to.
+     * @return A list of globs relative to the working directory, or null if
+     * there are no patterns at all.
+     */
+    public static List<String> resolve(List<String> patterns, File file) {
+        if (patterns == null) {
+            return null;
+        }
+        String prefix = getPrefix(file);
+        String basename = escape(CommonUtils.getBasename(file));
+        List<String> result = new ArrayList<String>();
+        for (String pattern : patterns) {
+            result.add(prefix.concat(
+                    pattern.startsWith(".")
+                            ? basename.concat(pattern)
+                            : pattern
+            ));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the inputs of the provided file, that is, the resolved patterns
+     * along with the file itself and every dependency listed in the recorder
+     * file. The declared patterns are never complete (engines read graphics,
+     * font definitions, configuration files and whatnot), so they only
+     * narrow the inputs down when the recorder file tells which files were
+     * actually read; otherwise, every file around is an input.
+     * @param patterns The list of patterns.
+     * @param file The file the directive refers to.
+     * @return A list of globs relative to the working directory, or null if
+     * there are no patterns at all or no recorded dependencies, in which
+     * case every file around has to be taken as an input.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static List<String> getInputs(List<String> patterns, File file)
+            throws NightingaleException {
+        List<String> result = resolve(patterns, file);
+        if (result == null) {
+            return null;
+        }
+        List<File> dependencies = DependencyUtils.getDependencies();
+        if (dependencies.isEmpty()) {
+            return null;
+        }
+        result.add(getPrefix(file).concat(escape(file.getName())));
+        for (File dependency : dependencies) {
+            result.add(relativize(dependency));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the paths matching any of the provided globs.
+     * @param globs The list of globs relative to the working directory.
+     * @param paths The set of paths relative to the working directory.
+     * @return The set of matching paths.
+     */
+    public static Set<String> match(List<String> globs, Set<String> paths) {
+        List<PathMatcher> matchers = getMatchers(globs);
+        Set<String> result = new TreeSet<String>();
+        for (String path : paths) {
+            Path current = Paths.get(path);
+            for (PathMatcher matcher : matchers) {
+                if (matcher.matches(current)) {
+                    result.add(path);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if the provided lists of globs might denote a common file, that
+     * is, if any glob of a list matches a glob of the other list taken as a
+     * plain path. Two globs with wildcards on both sides are only taken as
+     * overlapping when they are the same.
+     * @param first The first list of globs, possibly null.
+     * @param second The second list of globs, possibly null.
+     * @return A boolean value indicating if the lists overlap.
+     */
+    public static boolean overlaps(List<String> first, List<String> second) {
+        if ((first == null) || (second == null)) {
+            return false;
+        }
+        List<PathMatcher> matchers = getMatchers(first);
+        for (String glob : second) {
+            if (first.contains(glob)) {
+                return true;
+            }
+            for (PathMatcher matcher : matchers) {
+                if (matcher.matches(Paths.get(unescape(glob)))) {
+                    return true;
+                }
+            }
+        }
+        matchers = getMatchers(second);
+        for (String glob : first) {
+            for (PathMatcher matcher : matchers) {
+                if (matcher.matches(Paths.get(unescape(glob)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the path matchers of the provided globs.
+     * @param globs The list of globs.
+     * @return The list of path matchers.
+     */
+    private static List<PathMatcher> getMatchers(List<String> globs) {
+        List<PathMatcher> matchers = new ArrayList<PathMatcher>();
+        for (String glob : globs) {
+            matchers.add(FileSystems.getDefault().
+                    getPathMatcher("glob:".concat(glob)));
+        }
+        return matchers;
+    }
+
+    /**
+     * Gets the directory of the provided file as a glob prefix relative to
+     * the working directory.
+     * @param file The file.
+     * @return The glob prefix, which is empty when the file is right in the
+     * working directory.
+     */
+    private static String getPrefix(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent == null) {
+            return "";
+        }
+        String prefix = relativize(parent);
+        return prefix.isEmpty() ? prefix : prefix.concat("/");
+    }
+
+    /**
+     * Gets the path of the provided file relative to the working directory,
+     * as a glob matching only such file.
+     * @param file The file.
+     * @return The glob.
+     */
+    private static String relativize(File file) {
+        Path directory = CacheUtils.getDirectory().toPath();
+        Path path = file.getAbsoluteFile().toPath().normalize();
+        return escape(directory.relativize(path).
+                toString().
+                replace(File.separatorChar, '/'));
+    }
+
+    /**
+     * Escapes the glob special characters of the provided text.
+     * @param text The text.
+     * @return The escaped text.
+     */
+    private static String escape(String text) {
+        StringBuilder builder = new StringBuilder();
+        for (char character : text.toCharArray()) {
+            if ("\\*?[]{}".indexOf(character) != -1) {
+                builder.append('\\');
+            }
+            builder.append(character);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Removes the escapes from the provided glob, so it can be taken as a
+     * plain path.
+     * @param glob The glob.
+     * @return The plain path.
+     */
+    private static String unescape(String glob) {
+        return glob.replaceAll("\\\\(.)", "$1");
+    }
+
+}
@@ -0,0 +1,251 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import com.github.cereda.nightingale.controller.DatabaseController;
+import com.github.cereda.nightingale.controller.LanguageController;
+import com.github.cereda.nightingale.model.Database;
+import com.github.cereda.nightingale.model.Messages;
+import com.github.cereda.nightingale.model.NightingaleException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implements dependency utilitary methods. The dependencies of the current
+ * file are obtained from the recorder file written by the TeX engines when
+ * the '-recorder' option is used, that is, every file the engine read and
+ * did not write itself: included chapters, images, packages, classes, and
+ * so forth. The dependency set is kept in the database, so it is still
+ * available if the recorder file goes away.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class DependencyUtils {
+
+    // the application messages obtained from the
+    // language controller
+    private static final LanguageController messages =
+            LanguageController.getInstance();
+
+    // get the logger context from a factory
+    private static final Logger logger =
+            LoggerFactory.getLogger(DependencyUtils.class);
+
+    // the prefix of the database keys holding dependency
+    // sets; regular keys are canonical paths, so there
+    // is no way they might clash
+    private static final String PREFIX = "dependencies:";
+
+    /**
+     * Gets the dependencies of the current file.
+     * @return A list of files, which is empty if the dependencies are not
+     * known.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static synchronized List<File> getDependencies()
+            throws NightingaleException {
+        List<File> files = new ArrayList<File>();
+        Set<String> paths = load(new File(CommonUtils.getPath("fls")));
+        if (paths != null) {
+            for (String path : paths) {
+                files.add(new File(path));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Checks if the current file is outdated, that is, if any of its
+     * dependencies has changed since the last verification. Every dependency
+     * is verified, in parallel, so they are all up to date in the database
+     * afterwards.
+     * The current file is considered outdated when its dependencies are not
+     * known.
+     * @return A boolean value indicating if the current file is outdated.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static synchronized boolean isOutdated()
+            throws NightingaleException {
+        File recorder = new File(CommonUtils.getPath("fls"));
+        Set<String> paths = load(recorder);
+        if (paths == null) {
+            return true;
+        }
+        Database database = DatabaseController.getInstance().get();
+        Set<File> unknown = new HashSet<File>();
+        List<File> files = new ArrayList<File>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (!database.contains(path)) {
+                unknown.add(file);
+            }
+            files.add(file);
+        }
+        Map<File, Boolean> changes = CommonUtils.getChanges(files);
+        boolean outdated = false;
+        for (File file : files) {
+            boolean changed = changes.get(file);
+
+            // a dependency seen for the first time was read by the
+            // very run which wrote the recorder file, so it only
+            // counts as changed if it was modified after that
+            if (changed && unknown.contains(file) && recorder.exists()
+                    && (file.lastModified() <= recorder.lastModified())) {
+                changed = false;
+            }
+            if (changed) {
+                logger.info(
+                        messages.getMessage(
+                                Messages.LOG_INFO_DEPENDENCY_CHANGED,
+                                file.getPath()
+                        )
+                );
+                outdated = true;
+            }
+        }
+        return outdated;
+    }
+
+    /**
+     * Loads the dependency set of the current file. If the recorder file
+     * exists, it is parsed and the dependency set in the database is
+     * replaced; otherwise, the dependency set is obtained from the database.
+     * @param recorder The recorder file.
+     * @return The dependency set, as canonical paths, or null if it is not
+     * known.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private static Set<String> load(File recorder)
+            throws NightingaleException {
+        DatabaseController controller = DatabaseController.getInstance();
+        Database database = controller.get();
+        String key = PREFIX.concat(recorder.getPath());
+        if (!recorder.exists()) {
+            String value = database.get(key);
+            if (value == null) {
+                return null;
+            }
+            Set<String> paths = new LinkedHashSet<String>();
+            if (!value.isEmpty()) {
+                paths.addAll(Arrays.asList(value.split("\n")));
+            }
+            return paths;
+        }
+        Set<String> paths = parse(recorder);
+        String value = StringUtils.join(paths, "\n");
+        if (!value.equals(database.get(key))) {
+            database.put(key, value);
+            controller.update();
+            logger.info(
+                    messages.getMessage(
+                            Messages.LOG_INFO_DEPENDENCIES_RECORDED,
+                            recorder.getName(),
+                            paths.size()
+                    )
+            );
+        }
+        return paths;
+    }
+
+    /**
+     * Parses the provided recorder file. Every line starts with a keyword:
+     * 'PWD' sets the directory relative paths are resolved against, 'INPUT'
+     * denotes a file read by the engine and 'OUTPUT' denotes a file written
+     * by the engine. Files written by the engine are not dependencies, even
+     * if they were read as well, as it is the case of auxiliary files.
+     * @param recorder The recorder file.
+     * @return The dependency set, as canonical paths.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private static Set<String> parse(File recorder)
+            throws NightingaleException {
+        Set<String> inputs = new LinkedHashSet<String>();
+        Set<String> outputs = new LinkedHashSet<String>();
+        File directory = recorder.getParentFile();
+        try {
+            for (String line : FileUtils.readLines(recorder, "UTF-8")) {
+                if (line.startsWith("PWD ")) {
+                    directory = new File(line.substring(4));
+                } else if (line.startsWith("INPUT ")) {
+                    inputs.add(resolve(directory, line.substring(6)));
+                } else if (line.startsWith("OUTPUT ")) {
+                    outputs.add(resolve(directory, line.substring(7)));
+                }
+            }
+        } catch (IOException exception) {
+            throw new NightingaleException(
+                    messages.getMessage(
+                            Messages.ERROR_GETDEPENDENCIES_IO_EXCEPTION,
+                            recorder.getName()
+                    ),
+                    exception
+            );
+        }
+        inputs.removeAll(outputs);
+        return inputs;
+    }
+
+    /**
+     * Resolves the provided path against the provided directory.
+     * @param directory The directory.
+     * @param path The path, either absolute or relative.
+     * @return The canonical path.
+     * @throws IOException The path could not be resolved.
+     */
+    private static String resolve(File directory, String path)
+            throws IOException {
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+            file = new File(directory, path);
+        }
+        return file.getCanonicalPath();
+    }
+
+}
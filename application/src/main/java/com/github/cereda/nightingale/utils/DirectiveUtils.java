@@ -73,7 +73,9 @@ public class DirectiveUtils {
             LoggerFactory.getLogger(DirectiveUtils.class);
 
     /**
-     * Validates the list of directives, returning a new list.
+     * Validates the list of directives, returning a new list. Directives
+     * expanded from a 'files' list share a parallel group, and so do
+     * consecutive directives marked as independent.
      * @param directives The list of directives.
      * @return A new list of directives.
      * @throws NightingaleException Something wrong happened, to be caught in
@@ -82,6 +84,14 @@ public class DirectiveUtils {
     public static List<Directive> validate(List<Directive> directives)
             throws NightingaleException {
         ArrayList<Directive> result = new ArrayList<Directive>();
+        
+        // the current parallel group and a flag
+        // indicating whether the previous directive
+        // was marked as independent, so consecutive
+        // independent directives join the same group
+        int group = 0;
+        boolean chained = false;
+        
         for (Directive directive : directives) {
             Map<String, Object> parameters = directive.getParameters();
 
@@ -102,6 +112,41 @@ public class DirectiveUtils {
                 );
             }
 
+            // the 'independent' key is reserved and tells
+            // that the directive does not depend on its
+            // neighbours, so it can run in parallel with
+            // them; since the directive resolver does not
+            // parse booleans, it must hold either 'true'
+            // or 'false' as string
+            boolean independent = false;
+            if (parameters.containsKey("independent")) {
+                String holder = String.valueOf(
+                        parameters.remove("independent")
+                );
+                if (holder.equals("true") || holder.equals("false")) {
+                    independent = Boolean.parseBoolean(holder);
+                } else {
+                    throw new NightingaleException(
+                            messages.getMessage(
+                                    Messages.ERROR_VALIDATE_INDEPENDENT_IS_NOT_A_BOOLEAN,
+                                    CommonUtils.getCollectionElements(
+                                            directive.getLineNumbers(),
+                                            "(",
+                                            ")",
+                                            ", "
+                                    )
+                            )
+                    );
+                }
+            }
+            if (independent) {
+                if (!chained) {
+                    group++;
+                }
+            }
+            chained = independent;
+            int current = independent ? group : 0;
+
             // the 'files' key is allowed, but the user
             // must follow some guidelines: it must be
             // a non-empty list; each element will be
@@ -129,6 +174,14 @@ public class DirectiveUtils {
                         );
                     }
 
+                    // every directive expanded from the very
+                    // same list belongs to a parallel group,
+                    // unless it is already in one
+                    if (current == 0) {
+                        group++;
+                        current = group;
+                    }
+
                     for (Object file : files) {
 
                         Map<String, Object> map = new HashMap<String, Object>();
@@ -155,6 +208,7 @@ public class DirectiveUtils {
                         addition.setConditional(conditional);
                         addition.setParameters(map);
                         addition.setLineNumbers(directive.getLineNumbers());
+                        addition.setGroup(current);
 
                         result.add(addition);
 
@@ -178,6 +232,7 @@ public class DirectiveUtils {
                         get("execution.reference")
                 );
                 directive.setParameters(parameters);
+                directive.setGroup(current);
 
                 result.add(directive);
             }
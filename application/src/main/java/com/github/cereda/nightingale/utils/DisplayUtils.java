@@ -35,12 +35,18 @@ package com.github.cereda.nightingale.utils;
 
 import com.github.cereda.nightingale.controller.ConfigurationController;
 import com.github.cereda.nightingale.controller.LanguageController;
+import com.github.cereda.nightingale.model.Accounting;
 import com.github.cereda.nightingale.model.NightingaleException;
 import com.github.cereda.nightingale.model.Conditional;
+import com.github.cereda.nightingale.model.Language;
 import com.github.cereda.nightingale.model.Messages;
+import com.github.cereda.nightingale.model.Pair;
 import com.github.cereda.nightingale.model.StopWatch;
+import com.github.cereda.nightingale.model.Usage;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.WordUtils;
 import org.slf4j.Logger;
@@ -58,10 +64,6 @@ public class DisplayUtils {
     // language controller
     private static final LanguageController messages =
             LanguageController.getInstance();
-    
-    // get the logger context from a factory
-    private static final Logger logger =
-            LoggerFactory.getLogger(DisplayUtils.class);
 
     /**
      * Displays the short version of the current entry in the terminal.
@@ -86,11 +88,11 @@ public class DisplayUtils {
 
     /**
      * Displays the short version of the current entry result in the terminal.
-     * @param value The boolean value to be displayed.
+     * @param label The result label to be displayed.
      */
-    private static void buildShortResult(boolean value) {
+    private static void buildShortResult(String label) {
         int result = getLongestMatch();
-        System.out.println(StringUtils.leftPad(getResult(value), result));
+        System.out.println(StringUtils.leftPad(label, result));
     }
 
     /**
@@ -98,35 +100,71 @@ public class DisplayUtils {
      * @param value The boolean value to be displayed.
      */
     public static void printEntryResult(boolean value) {
+        printEntryResult(getResult(value));
+    }
+
+    /**
+     * Displays the current entry as up to date in the terminal, that is, the
+     * entry was skipped since nothing it depends on has changed.
+     */
+    public static void printEntryUpToDate() {
+        printEntryResult(messages.getMessage(Messages.INFO_LABEL_ON_UP_TO_DATE));
+    }
+
+    /**
+     * Displays the provided result label of the current entry in the
+     * terminal.
+     * @param label The result label to be displayed.
+     */
+    private static void printEntryResult(String label) {
         ConfigurationController.getInstance().put("display.line", false);
         ConfigurationController.getInstance().put("display.result", true);
 
-        logger.info(
+        getLogger().info(
                 messages.getMessage(
                         Messages.LOG_INFO_TASK_RESULT
                 ).
                 concat(" ").
-                concat(getResult(value))
+                concat(label)
         );
 
         if (!isDryRunMode()) {
             if (!isVerboseMode()) {
-                buildShortResult(value);
+                if (isDeferredMode()) {
+                    
+                    // the entry was held back, so both entry
+                    // and result are printed at once, without
+                    // other threads writing in between
+                    @SuppressWarnings("unchecked")
+                    Pair<String, String> entry = (Pair<String, String>)
+                            ConfigurationController.
+                                    getInstance().
+                                    get("display.entry");
+                    synchronized (System.out) {
+                        buildShortEntry(
+                                entry.getFirstElement(),
+                                entry.getSecondElement()
+                        );
+                        buildShortResult(label);
+                    }
+                } else {
+                    buildShortResult(label);
+                }
             } else {
-                buildLongResult(value);
+                buildLongResult(label);
             }
         }
     }
 
     /**
      * Displays a long version of the current entry result in the terminal.
-     * @param value The boolean value to be displayed
+     * @param label The result label to be displayed.
      */
-    private static void buildLongResult(boolean value) {
+    private static void buildLongResult(String label) {
         int width = getWidth();
         System.out.println(
                 StringUtils.leftPad(
-                        " ".concat(getResult(value)),
+                        " ".concat(label),
                         width,
                         "-"
                 )
@@ -140,7 +178,7 @@ public class DisplayUtils {
      */
     public static void printEntry(String name, String task) {
 
-        logger.info(
+        getLogger().info(
                 messages.getMessage(
                         Messages.LOG_INFO_INTERPRET_TASK,
                         task,
@@ -152,7 +190,15 @@ public class DisplayUtils {
         ConfigurationController.getInstance().put("display.result", false);
         if (!isDryRunMode()) {
             if (!isVerboseMode()) {
-                buildShortEntry(name, task);
+                if (isDeferredMode()) {
+                    ConfigurationController.
+                            getInstance().
+                            put("display.entry",
+                                    new Pair<String, String>(name, task)
+                            );
+                } else {
+                    buildShortEntry(name, task);
+                }
             } else {
                 buildLongEntry(name, task);
             }
@@ -166,12 +212,20 @@ public class DisplayUtils {
      * @return An integer value representing the longest result match.
      */
     private static int getLongestMatch() {
-        String[] values = new String[]{
-            messages.getMessage(Messages.INFO_LABEL_ON_SUCCESS),
-            messages.getMessage(Messages.INFO_LABEL_ON_FAILURE),
-            messages.getMessage(Messages.INFO_LABEL_ON_ERROR)
-        };
-        int max = values[0].length();
+        List<String> values = new ArrayList<String>();
+        values.add(messages.getMessage(Messages.INFO_LABEL_ON_SUCCESS));
+        values.add(messages.getMessage(Messages.INFO_LABEL_ON_FAILURE));
+        values.add(messages.getMessage(Messages.INFO_LABEL_ON_ERROR));
+
+        // the up to date label is only taken into
+        // account when directives might be skipped,
+        // so the usual layout stays the same
+        if ((Boolean) ConfigurationController.
+                getInstance().
+                get("execution.uptodate")) {
+            values.add(messages.getMessage(Messages.INFO_LABEL_ON_UP_TO_DATE));
+        }
+        int max = values.get(0).length();
         for (String value : values) {
             if (max < value.length()) {
                 max = value.length();
@@ -222,6 +276,7 @@ public class DisplayUtils {
      * @param exception The exception object.
      */
     public static void printException(NightingaleException exception) {
+        printLogo();
         ConfigurationController.getInstance().put("display.exception", true);
         boolean display = false;
         if (ConfigurationController.getInstance().contains("display.line")) {
@@ -259,7 +314,7 @@ public class DisplayUtils {
                 )
                 : exception.getMessage();
 
-        logger.error(text);
+        getLogger().error(text);
 
         wrapText(text);
         if (exception.hasException()) {
@@ -267,7 +322,7 @@ public class DisplayUtils {
             displayDetailsLine();
 
             String details = exception.getException().getMessage();
-            logger.error(details);
+            getLogger().error(details);
 
             wrapText(details);
         }
@@ -359,6 +414,17 @@ public class DisplayUtils {
                 get("execution.verbose");
     }
 
+    /**
+     * Checks if the entries should be held back until their results are
+     * known, which is the case of directives running in parallel.
+     * @return A boolean value indicating if the entries are deferred.
+     */
+    private static boolean isDeferredMode() {
+        return ConfigurationController.
+                getInstance().
+                contains("display.deferred");
+    }
+
     /**
      * Displays the rule authors in the terminal.
      * @param authors The list of authors.
@@ -418,8 +484,8 @@ public class DisplayUtils {
                 CommonUtils.getLastModifiedInformation(file)
         );
 
-        logger.info(messages.getMessage(Messages.LOG_INFO_WELCOME_MESSAGE, CommonUtils.getVersionString()));
-        logger.info(line);
+        getLogger().info(messages.getMessage(Messages.LOG_INFO_WELCOME_MESSAGE, CommonUtils.getVersionString()));
+        getLogger().info(line);
 
         wrapText(line);
         addNewLine();
@@ -437,21 +503,222 @@ public class DisplayUtils {
                 addNewLine();
             }
 
+            printUsage();
+
             String text = messages.getMessage(
                     Messages.INFO_DISPLAY_EXECUTION_TIME,
                     StopWatch.getTime()
             );
 
-            logger.info(text);
+            getLogger().info(text);
 
             wrapText(text);
         }
     }
 
     /**
-     * Displays the application logo in the terminal.
+     * Displays the resource usage of the commands, per directive and per rule,
+     * in the terminal, if resource accounting is enabled. The accounting is
+     * cleared afterwards, so the next build starts from scratch.
+     */
+    private static void printUsage() {
+        if (ConfigurationController.
+                getInstance().
+                contains("execution.usage")) {
+            Accounting accounting = (Accounting) ConfigurationController.
+                    getInstance().
+                    get("execution.usage");
+            if (!accounting.isEmpty()) {
+                printUsageTable(
+                        Messages.INFO_DISPLAY_USAGE_DIRECTIVES,
+                        accounting.getDirectives()
+                );
+                printUsageTable(
+                        Messages.INFO_DISPLAY_USAGE_RULES,
+                        accounting.getRules()
+                );
+                accounting.clear();
+            }
+        }
+    }
+
+    /**
+     * Displays a table of resource usages in the terminal, followed by a
+     * line break.
+     * @param title The table title.
+     * @param usages The map of usages, indexed by description.
+     */
+    private static void printUsageTable(Messages title,
+            Map<String, Usage> usages) {
+        String text = messages.getMessage(title);
+        getLogger().info(text);
+        wrapText(text);
+        addNewLine();
+
+        String[] labels = StringUtils.split(
+                messages.getMessage(Messages.INFO_DISPLAY_USAGE_HEADER),
+                "|"
+        );
+        int[] sizes = new int[labels.length];
+        int space = getWidth();
+        for (int i = 0; i < labels.length; i++) {
+            sizes[i] = Math.max(labels[i].length(), 8);
+            space = space - sizes[i] - 1;
+        }
+        printUsageLine("", labels, sizes, space);
+        for (Map.Entry<String, Usage> entry : usages.entrySet()) {
+            Usage usage = entry.getValue();
+            boolean available = usage.isAvailable();
+            String[] values = new String[] {
+                String.valueOf(usage.getRuns()),
+                formatSeconds(usage.getWall()),
+                available ? formatSeconds(usage.getUser()) : "-",
+                available ? formatSeconds(usage.getSystem()) : "-",
+                available ? formatMegabytes(usage.getPeak()) : "-"
+            };
+            printUsageLine(entry.getKey(), values, sizes, space);
+        }
+        addNewLine();
+    }
+
+    /**
+     * Displays a line of a resource usage table in the terminal and in the
+     * log.
+     * @param description The line description.
+     * @param values The column values.
+     * @param sizes The column sizes.
+     * @param space The space available for the description.
+     */
+    private static void printUsageLine(String description, String[] values,
+            int[] sizes, int space) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(StringUtils.rightPad(
+                StringUtils.abbreviateMiddle(
+                        description,
+                        "...",
+                        Math.max(space, 5)
+                ),
+                space
+        ));
+        for (int i = 0; i < values.length; i++) {
+            builder.append(" ").append(
+                    StringUtils.leftPad(values[i], sizes[i])
+            );
+        }
+        getLogger().info(builder.toString());
+        System.out.println(builder.toString());
+    }
+
+    /**
+     * Formats the provided amount of time as seconds.
+     * @param milliseconds The amount of time, in milliseconds.
+     * @return A string representation of the amount of time, in seconds.
+     */
+    public static String formatSeconds(long milliseconds) {
+        return String.format(
+                getLanguage().getLocale(),
+                "%1.2f",
+                (double) milliseconds / 1000
+        );
+    }
+
+    /**
+     * Formats the provided amount of memory as megabytes.
+     * @param kilobytes The amount of memory, in kilobytes.
+     * @return A string representation of the amount of memory, in megabytes.
+     */
+    public static String formatMegabytes(long kilobytes) {
+        return String.format(
+                getLanguage().getLocale(),
+                "%1.1f",
+                (double) kilobytes / 1024
+        );
+    }
+
+    /**
+     * Gets the current language.
+     * @return The current language.
+     */
+    private static Language getLanguage() {
+        return (Language) ConfigurationController.
+                getInstance().
+                get("execution.language");
+    }
+
+    /**
+     * Gets the logger. The logger is not kept in a static field on purpose:
+     * this class is already used when printing the logo and the help message,
+     * and requesting a logger triggers the whole logback initialization, so
+     * quick executions like --help or --version never pay for it.
+     * @return The logger.
+     */
+    private static Logger getLogger() {
+        return LoggerFactory.getLogger(DisplayUtils.class);
+    }
+
+    /**
+     * Ends the block of the current file in the terminal, adding a line break
+     * if anything was displayed after the file information.
+     */
+    public static void printBlockEnd() {
+        if ((ConfigurationController.getInstance().contains("display.line"))
+                || (ConfigurationController.
+                        getInstance().
+                        contains("display.exception"))) {
+            addNewLine();
+        }
+    }
+
+    /**
+     * Displays the summary of a batch of files in the terminal.
+     * @param entries A list of pairs containing each file description and
+     * its corresponding result label.
+     */
+    public static void printSummary(List<Pair<String, String>> entries) {
+        ConfigurationController.getInstance().put("display.line", false);
+        String text = messages.getMessage(
+                Messages.INFO_DISPLAY_BATCH_SUMMARY,
+                entries.size()
+        );
+        getLogger().info(text);
+        wrapText(text);
+        addNewLine();
+
+        int width = getWidth();
+        int result = getLongestMatch();
+        int space = width - result - 1;
+        for (Pair<String, String> entry : entries) {
+            getLogger().info(entry.getFirstElement().
+                    concat(" ").
+                    concat(entry.getSecondElement())
+            );
+            String line = StringUtils.abbreviate(
+                    entry.getFirstElement().concat(" "),
+                    space - 4
+            );
+            StringBuilder builder = new StringBuilder();
+            builder.append(StringUtils.rightPad(line, space, ".")).append(" ");
+            builder.append(StringUtils.leftPad(
+                    entry.getSecondElement(),
+                    result)
+            );
+            System.out.println(builder.toString());
+        }
+    }
+
+    /**
+     * Displays the application logo in the terminal. The logo is displayed
+     * only once per execution, right before the first output, so it is not
+     * printed upfront when the application starts.
      */
     public static void printLogo() {
+        if ((ConfigurationController.getInstance().contains("display.logo"))
+                && ((Boolean) ConfigurationController.
+                        getInstance().
+                        get("display.logo"))) {
+            return;
+        }
+        ConfigurationController.getInstance().put("display.logo", true);
         StringBuilder builder = new StringBuilder();
         builder.append("        _      __   __  _                __").
                 append("\n");
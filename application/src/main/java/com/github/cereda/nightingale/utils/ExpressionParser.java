@@ -0,0 +1,282 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import com.github.cereda.nightingale.model.Expression;
+import com.github.cereda.nightingale.model.Expression.ExpressionType;
+import com.github.cereda.nightingale.model.Pair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implements an expression parser. It recognizes the most common conditional
+ * forms, namely calls to the file methods with string literals as arguments,
+ * boolean literals, negations, conjunctions, disjunctions and parentheses.
+ * Anything else is not recognized at all, so the conditional is handed to the
+ * Groovy engine instead.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class ExpressionParser {
+
+    // the token kinds produced by
+    // the tokenizer
+    private static final String NAME = "name";
+    private static final String STRING = "string";
+    private static final String SYMBOL = "symbol";
+
+    // the methods which can be evaluated natively,
+    // and their corresponding number of arguments
+    private static final Map<String, Integer> methods =
+            new HashMap<String, Integer>();
+
+    static {
+        methods.put("exists", 1);
+        methods.put("missing", 1);
+        methods.put("changed", 1);
+        methods.put("unchanged", 1);
+        methods.put("contains", 2);
+        methods.put("found", 1);
+        methods.put("outdated", 0);
+        methods.put("uptodate", 0);
+    }
+
+    // the text to be parsed, the list of tokens
+    // and the current position in the list
+    private final String text;
+    private List<Pair<String, String>> tokens;
+    private int position;
+
+    /**
+     * Constructor.
+     * @param text The conditional text.
+     */
+    public ExpressionParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses the conditional text.
+     * @return The corresponding expression, or null if the conditional text
+     * is not recognized.
+     */
+    public Expression parse() {
+        tokens = tokenize();
+        if ((tokens == null) || (tokens.isEmpty())) {
+            return null;
+        }
+        position = 0;
+        Expression expression = parseDisjunction();
+        return (position == tokens.size()) ? expression : null;
+    }
+
+    /**
+     * Parses a disjunction, which has the lowest precedence.
+     * @return The expression, or null if it is not recognized.
+     */
+    private Expression parseDisjunction() {
+        Expression left = parseConjunction();
+        while ((left != null) && (accept(SYMBOL, "||"))) {
+            Expression right = parseConjunction();
+            left = right == null ? null :
+                    combine(ExpressionType.OR, left, right);
+        }
+        return left;
+    }
+
+    /**
+     * Parses a conjunction.
+     * @return The expression, or null if it is not recognized.
+     */
+    private Expression parseConjunction() {
+        Expression left = parseUnary();
+        while ((left != null) && (accept(SYMBOL, "&&"))) {
+            Expression right = parseUnary();
+            left = right == null ? null :
+                    combine(ExpressionType.AND, left, right);
+        }
+        return left;
+    }
+
+    /**
+     * Parses a negation, a parenthesized expression, a boolean literal or a
+     * method call.
+     * @return The expression, or null if it is not recognized.
+     */
+    private Expression parseUnary() {
+        if (accept(SYMBOL, "!")) {
+            Expression operand = parseUnary();
+            return operand == null ? null : new Expression(
+                    ExpressionType.NOT,
+                    null,
+                    null,
+                    Arrays.asList(operand)
+            );
+        }
+        if (accept(SYMBOL, "(")) {
+            Expression expression = parseDisjunction();
+            return accept(SYMBOL, ")") ? expression : null;
+        }
+        if (!peek(NAME)) {
+            return null;
+        }
+        String name = tokens.get(position++).getSecondElement();
+        if (name.equals("true") || name.equals("false")) {
+            return new Expression(ExpressionType.VALUE, name, null, null);
+        }
+        if ((!methods.containsKey(name)) || (!accept(SYMBOL, "("))) {
+            return null;
+        }
+        List<String> arguments = new ArrayList<String>();
+        if (methods.get(name) > 0) {
+            do {
+                if (!peek(STRING)) {
+                    return null;
+                }
+                arguments.add(tokens.get(position++).getSecondElement());
+            } while (accept(SYMBOL, ","));
+        }
+        if ((!accept(SYMBOL, ")"))
+                || (arguments.size() != methods.get(name))) {
+            return null;
+        }
+        return new Expression(ExpressionType.CALL, name, arguments, null);
+    }
+
+    /**
+     * Combines two expressions through the provided operator.
+     * @param type The operator type.
+     * @param left The left operand.
+     * @param right The right operand.
+     * @return The combined expression.
+     */
+    private Expression combine(ExpressionType type, Expression left,
+            Expression right) {
+        return new Expression(type, null, null, Arrays.asList(left, right));
+    }
+
+    /**
+     * Checks if the current token is of the provided kind.
+     * @param kind The token kind.
+     * @return A boolean value indicating if the current token is of the
+     * provided kind.
+     */
+    private boolean peek(String kind) {
+        return (position < tokens.size())
+                && (tokens.get(position).getFirstElement().equals(kind));
+    }
+
+    /**
+     * Consumes the current token if it matches the provided kind and value.
+     * @param kind The token kind.
+     * @param value The token value.
+     * @return A boolean value indicating if the token was consumed.
+     */
+    private boolean accept(String kind, String value) {
+        if (peek(kind)
+                && (tokens.get(position).getSecondElement().equals(value))) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Splits the conditional text into tokens. String literals containing
+     * escape sequences or interpolations are not recognized, since they are
+     * better left to the Groovy engine.
+     * @return A list of tokens, or null if the text contains something that
+     * is not recognized.
+     */
+    private List<Pair<String, String>> tokenize() {
+        List<Pair<String, String>> result =
+                new ArrayList<Pair<String, String>>();
+        int i = 0;
+        while (i < text.length()) {
+            char current = text.charAt(i);
+            if ((current == ' ') || (current == '\t')) {
+                i++;
+            } else {
+                if (Character.isJavaIdentifierStart(current)
+                        && (current != '$')) {
+                    int start = i;
+                    while ((i < text.length())
+                            && Character.isJavaIdentifierPart(text.charAt(i))
+                            && (text.charAt(i) != '$')) {
+                        i++;
+                    }
+                    result.add(new Pair<String, String>(
+                            NAME,
+                            text.substring(start, i))
+                    );
+                } else {
+                    if ((current == '\'') || (current == '"')) {
+                        int end = text.indexOf(current, i + 1);
+                        if (end == -1) {
+                            return null;
+                        }
+                        String value = text.substring(i + 1, end);
+                        if ((value.indexOf('\\') != -1)
+                                || (value.indexOf('$') != -1)
+                                || (value.indexOf('\n') != -1)) {
+                            return null;
+                        }
+                        result.add(new Pair<String, String>(STRING, value));
+                        i = end + 1;
+                    } else {
+                        String symbol = null;
+                        for (String candidate : Arrays.asList(
+                                "&&", "||", "!", "(", ")", ",")) {
+                            if (text.startsWith(candidate, i)) {
+                                symbol = candidate;
+                                break;
+                            }
+                        }
+                        if (symbol == null) {
+                            return null;
+                        }
+                        result.add(new Pair<String, String>(SYMBOL, symbol));
+                        i = i + symbol.length();
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Implements a framed stream. Every chunk of data is written as a frame, that
+ * is, its length followed by its bytes, so the receiving end can tell data
+ * apart from the final status. This is how the daemon sends the build output
+ * back to the client.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class FrameOutputStream extends OutputStream {
+
+    // the underlying stream, which
+    // will receive the frames
+    private final DataOutputStream stream;
+
+    /**
+     * Constructor.
+     * @param stream The underlying stream.
+     */
+    public FrameOutputStream(DataOutputStream stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * Writes the provided integer as a frame.
+     * @param b The provided integer
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public synchronized void write(int b) throws IOException {
+        stream.writeInt(1);
+        stream.write(b);
+    }
+
+    /**
+     * Writes the provided byte array as a frame, with the provided offset and
+     * length.
+     * @param b The byte array.
+     * @param offset The offset.
+     * @param length The length.
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public synchronized void write(byte[] b, int offset, int length)
+            throws IOException {
+        if (length > 0) {
+            stream.writeInt(length);
+            stream.write(b, offset, length);
+        }
+    }
+
+    /**
+     * Flushes the underlying stream.
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        stream.flush();
+    }
+
+    /**
+     * Writes the final status, that is, a negative length followed by the
+     * status itself, and flushes the underlying stream. No frames should be
+     * written afterwards.
+     * @param status The final status.
+     * @throws IOException An IO exception.
+     */
+    public synchronized void finish(int status) throws IOException {
+        stream.writeInt(-1);
+        stream.writeInt(status);
+        stream.flush();
+    }
+
+}
@@ -35,19 +35,28 @@ package com.github.cereda.nightingale.utils;
 
 import com.github.cereda.nightingale.controller.ConfigurationController;
 import com.github.cereda.nightingale.controller.LanguageController;
+import com.github.cereda.nightingale.controller.SessionController;
+import com.github.cereda.nightingale.model.Accounting;
+import com.github.cereda.nightingale.model.Analyzer;
 import com.github.cereda.nightingale.model.Command;
 import com.github.cereda.nightingale.model.NightingaleException;
 import com.github.cereda.nightingale.model.Conditional;
 import com.github.cereda.nightingale.model.Messages;
+import com.github.cereda.nightingale.model.Terminator;
+import com.github.cereda.nightingale.model.Usage;
 import groovy.lang.Closure;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -55,11 +64,16 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.zeroturnaround.exec.InvalidExitValueException;
 import org.zeroturnaround.exec.ProcessExecutor;
+import org.zeroturnaround.exec.listener.ProcessListener;
 import org.zeroturnaround.exec.listener.ShutdownHookProcessDestroyer;
 
 /**
@@ -79,6 +93,14 @@ public class InterpreterUtils {
     private static final Logger logger =
             LoggerFactory.getLogger(InterpreterUtils.class);
 
+    // the number of bytes kept in memory from the
+    // end of the output of a command
+    private static final int TAIL = 64 * 1024;
+
+    // the capacity of the buffer of every sink
+    // of the output of a command
+    private static final int BUFFER = 256 * 1024;
+
     /**
      * Checks if the rule header is valid, including class types and keys.
      * @param holder An object representing the rule header map.
@@ -113,9 +135,29 @@ public class InterpreterUtils {
                 mapping.put("arguments", List.class);
                 mapping.put("authors", List.class);
                 mapping.put("requires", BigDecimal.class);
+                Map<String, Class> optional = getPatternMapping();
                 @SuppressWarnings("unchecked")
                 Map<String, ? extends Object> rule =
                         (Map<String, ? extends Object>) holder;
+                for (String key : optional.keySet()) {
+                    if (rule.containsKey(key)
+                            && !CommonUtils.checkClass(
+                                    optional.get(key),
+                                    rule.get(key))) {
+                        throw new NightingaleException(
+                                CommonUtils.getRuleErrorHeader().
+                                concat(
+                                        messages.getMessage(
+                                                Messages.ERROR_CHECKHEADER_RULE_HEADER_WRONG_CLASS_TYPE,
+                                                key,
+                                                optional.get(key).
+                                                        getSimpleName()
+                                        )
+                                )
+                        );
+                    }
+                }
+                optional.putAll(mapping);
                 for (String key : mapping.keySet()) {
                     if (rule.containsKey(key)) {
                         if (!CommonUtils.checkClass(
@@ -145,7 +187,7 @@ public class InterpreterUtils {
                         );
                     }
                 }
-                if (!CommonUtils.checkMaps(rule, mapping)) {
+                if (!CommonUtils.checkMaps(rule, optional)) {
                     throw new NightingaleException(
                             CommonUtils.getRuleErrorHeader().
                             concat(
@@ -154,7 +196,7 @@ public class InterpreterUtils {
                                             CommonUtils.getCollectionElements(
                                                     CommonUtils.getUnknownKeys(
                                                             rule,
-                                                            mapping
+                                                            optional
                                                     ),
                                                     "(",
                                                     ")",
@@ -168,6 +210,11 @@ public class InterpreterUtils {
                 checkAuthors(rule);
                 checkKeywords(rule);
                 checkDuplicates(rule);
+                checkPatterns(
+                        rule,
+                        Messages.ERROR_CHECKHEADER_PATTERNS_NOT_A_STRING_LIST,
+                        Messages.ERROR_CHECKHEADER_PATTERNS_EMPTY_STRING
+                );
             }
         }
     }
@@ -204,6 +251,9 @@ public class InterpreterUtils {
                 mapping.put("name", String.class);
                 mapping.put("command", Closure.class);
                 mapping.put("exit", Closure.class);
+                Map<String, Class> optional = getPatternMapping();
+                optional.put("analyzers", Map.class);
+                optional.putAll(mapping);
                 List commands = (List) holder;
                 for (Object entry : commands) {
                     if (!CommonUtils.checkClass(Map.class, entry)) {
@@ -248,7 +298,29 @@ public class InterpreterUtils {
                                 );
                             }
                         }
-                        if (!CommonUtils.checkMaps(command, mapping)) {
+                        Set<String> keys = new HashSet<String>(
+                                getPatternMapping().keySet()
+                        );
+                        keys.add("analyzers");
+                        for (String key : keys) {
+                            if (command.containsKey(key)
+                                    && !CommonUtils.checkClass(
+                                            optional.get(key),
+                                            command.get(key))) {
+                                throw new NightingaleException(
+                                        CommonUtils.getRuleErrorHeader().
+                                        concat(
+                                                messages.getMessage(
+                                                        Messages.ERROR_CHECKCOMMANDS_LIST_ELEMENT_WRONG_CLASS_TYPE,
+                                                        key,
+                                                        optional.get(key).
+                                                                getSimpleName()
+                                                )
+                                        )
+                                );
+                            }
+                        }
+                        if (!CommonUtils.checkMaps(command, optional)) {
                             throw new NightingaleException(
                                     CommonUtils.getRuleErrorHeader().
                                     concat(
@@ -257,7 +329,7 @@ public class InterpreterUtils {
                                                     CommonUtils.getCollectionElements(
                                                             CommonUtils.getUnknownKeys(
                                                                     command,
-                                                                    mapping
+                                                                    optional
                                                             ),
                                                             "(",
                                                             ")",
@@ -267,12 +339,210 @@ public class InterpreterUtils {
                                     )
                             );
                         }
+                        checkPatterns(
+                                command,
+                                Messages.ERROR_CHECKCOMMANDS_PATTERNS_NOT_A_STRING_LIST,
+                                Messages.ERROR_CHECKCOMMANDS_PATTERNS_EMPTY_STRING
+                        );
+                        checkAnalyzers(command);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the mapping of the optional keys holding file patterns, which are
+     * available in both the rule header and the commands.
+     * @return A map of class types, indexed by key.
+     */
+    private static Map<String, Class> getPatternMapping() {
+        Map<String, Class> mapping = new HashMap<String, Class>();
+        mapping.put("inputs", List.class);
+        mapping.put("outputs", List.class);
+        return mapping;
+    }
+
+    /**
+     * Checks if the lists of file patterns of the provided map, if any, are
+     * valid.
+     * @param map The map, either the rule header or a command.
+     * @param type The message to be used when an element is not a string.
+     * @param empty The message to be used when an element is empty.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private static void checkPatterns(Map<String, ? extends Object> map,
+            Messages type, Messages empty) throws NightingaleException {
+        for (String key : getPatternMapping().keySet()) {
+            if (map.containsKey(key)) {
+                List patterns = (List) map.get(key);
+                for (Object object : patterns) {
+                    if (!CommonUtils.checkClass(String.class, object)) {
+                        throw new NightingaleException(
+                                CommonUtils.getRuleErrorHeader().
+                                concat(
+                                        messages.getMessage(type, key)
+                                )
+                        );
+                    } else {
+                        if (CommonUtils.checkEmptyString(
+                                ((String) object).trim())) {
+                            throw new NightingaleException(
+                                    CommonUtils.getRuleErrorHeader().
+                                    concat(
+                                            messages.getMessage(empty, key)
+                                    )
+                            );
+                        }
                     }
                 }
             }
         }
     }
 
+    /**
+     * Checks if the analyzers of the provided command, if any, are valid.
+     * Each analyzer is indexed by the session key its result is published
+     * under, and it is either a regex or an analyzer object.
+     * @param command The command.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private static void checkAnalyzers(Map<String, ? extends Object> command)
+            throws NightingaleException {
+        if (command.containsKey("analyzers")) {
+            Map analyzers = (Map) command.get("analyzers");
+            for (Object key : analyzers.keySet()) {
+                Object value = analyzers.get(key);
+                boolean valid = CommonUtils.checkClass(String.class, key)
+                        && !CommonUtils.checkEmptyString(
+                                ((String) key).trim())
+                        && (CommonUtils.checkClass(Analyzer.class, value)
+                        || isRegex(value));
+                if (!valid) {
+                    throw new NightingaleException(
+                            CommonUtils.getRuleErrorHeader().
+                            concat(
+                                    messages.getMessage(
+                                            Messages.ERROR_CHECKCOMMANDS_ANALYZERS_INVALID_ELEMENT,
+                                            key
+                                    )
+                            )
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the provided object is a valid regex.
+     * @param value The object.
+     * @return A boolean value indicating if the provided object is a string
+     * holding a valid regex.
+     */
+    private static boolean isRegex(Object value) {
+        if (!CommonUtils.checkClass(String.class, value)
+                || CommonUtils.checkEmptyString((String) value)) {
+            return false;
+        }
+        try {
+            Pattern.compile((String) value);
+            return true;
+        } catch (PatternSyntaxException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the analyzers declared for the provided command, ready to be
+     * attached to a new run, that is, regexes become fresh analyzers and the
+     * analyzer objects are reset.
+     * @param command The command.
+     * @return A map of analyzers, indexed by the session key their results
+     * are published under; it might be empty.
+     */
+    public static Map<String, Analyzer> getAnalyzers(Map command) {
+        Map<String, Analyzer> result = new LinkedHashMap<String, Analyzer>();
+        if (command.containsKey("analyzers")) {
+            Map analyzers = (Map) command.get("analyzers");
+            for (Object key : analyzers.keySet()) {
+                Object value = analyzers.get(key);
+                Analyzer analyzer;
+                if (CommonUtils.checkClass(Analyzer.class, value)) {
+                    analyzer = (Analyzer) value;
+                    analyzer.reset();
+                } else {
+                    analyzer = new Analyzer((String) value);
+                }
+                result.put(((String) key).trim(), analyzer);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Publishes the results of the provided analyzers in the session, each
+     * one under its own key.
+     * @param analyzers The map of analyzers.
+     */
+    private static void publish(Map<String, Analyzer> analyzers) {
+        for (Map.Entry<String, Analyzer> entry : analyzers.entrySet()) {
+            SessionController.getInstance().put(
+                    entry.getKey(),
+                    entry.getValue().getResult()
+            );
+        }
+    }
+
+    /**
+     * Gets the file patterns declared for the provided command, that is, the
+     * ones from the rule header followed by the ones from the command itself.
+     * @param holder The rule header.
+     * @param command The command.
+     * @param key The key, either inputs or outputs.
+     * @return A list of file patterns, or null if neither the rule header
+     * nor the command declares them.
+     */
+    public static List<String> getPatterns(Object holder, Map command,
+            String key) {
+        Map rule = (Map) holder;
+        if (!rule.containsKey(key) && !command.containsKey(key)) {
+            return null;
+        }
+        List<String> patterns = new ArrayList<String>();
+        for (Map map : Arrays.asList(rule, command)) {
+            if (map.containsKey(key)) {
+                for (Object pattern : (List) map.get(key)) {
+                    patterns.add(((String) pattern).trim());
+                }
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Gets the file patterns declared for the whole rule, that is, the ones
+     * from the rule header and from every command.
+     * @param holder The rule header.
+     * @param commands The list of commands.
+     * @param key The key, either inputs or outputs.
+     * @return A list of file patterns, or null if any command has no
+     * patterns declared, either by itself or by the rule header.
+     */
+    public static List<String> getAllPatterns(Object holder,
+            Object commands, String key) {
+        Set<String> patterns = new LinkedHashSet<String>();
+        for (Map command : getCommands(commands)) {
+            List<String> current = getPatterns(holder, command, key);
+            if (current == null) {
+                return null;
+            }
+            patterns.addAll(current);
+        }
+        return new ArrayList<String>(patterns);
+    }
+
     /**
      * Checks if the rule header arguments are valid.
      * @param map The map representing the rule header.
@@ -475,7 +745,6 @@ public class InterpreterUtils {
         TimeUnit unit = (TimeUnit) ConfigurationController.
                 getInstance().
                 get("execution.timeout.unit");
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 
         ProcessExecutor executor = new ProcessExecutor();
         if (CommonUtils.checkClass(Command.class, command)) {
@@ -494,20 +763,153 @@ public class InterpreterUtils {
             }
             executor = executor.timeout(value, unit);
         }
-        TeeOutputStream tee;
-        if (verbose) {
-            tee = new TeeOutputStream(System.out, buffer);
-            executor = executor.redirectInput(System.in);
-        } else {
-            tee = new TeeOutputStream(buffer);
+
+        // builds requested to the daemon carry their own
+        // working directory and environment, and their
+        // output goes to the requesting client
+        if (ConfigurationController.
+                getInstance().
+                contains("execution.directory")) {
+            executor = executor.directory((File) ConfigurationController.
+                    getInstance().
+                    get("execution.directory")
+            );
+        }
+        if (ConfigurationController.
+                getInstance().
+                contains("execution.environment")) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> environment = (Map<String, String>)
+                    ConfigurationController.
+                            getInstance().
+                            get("execution.environment");
+            executor = executor.environment(environment);
         }
-        executor = executor.redirectOutput(tee).redirectError(tee);
+        OutputStream output = ConfigurationController.
+                getInstance().
+                contains("display.buffer")
+                ? (OutputStream) ConfigurationController.
+                        getInstance().
+                        get("display.buffer")
+                : System.out;
 
         ShutdownHookProcessDestroyer hook = new ShutdownHookProcessDestroyer();
         executor = executor.addDestroyer(hook);
 
+        // the analyzers of the command watch its output
+        // while it runs, so conditionals do not have to
+        // read the log file all over again afterwards
+        @SuppressWarnings("unchecked")
+        Map<String, Analyzer> analyzers = ConfigurationController.
+                getInstance().
+                contains("execution.command.analyzers")
+                ? (Map<String, Analyzer>) ConfigurationController.
+                        getInstance().
+                        get("execution.command.analyzers")
+                : new HashMap<String, Analyzer>();
+
+        // when early termination is enabled, a terminator
+        // watches the output as well and kills the process
+        // as soon as a fatal pattern shows up
+        ConfigurationController.
+                getInstance().
+                put("execution.command.terminated", false);
+        @SuppressWarnings("unchecked")
+        final Terminator terminator = (Boolean) ConfigurationController.
+                getInstance().
+                get("execution.termination")
+                ? new Terminator((List<String>) ConfigurationController.
+                        getInstance().
+                        get("execution.termination.patterns"))
+                : null;
+
+        // when resource accounting is enabled, a monitor
+        // samples the process while it runs
+        final UsageMonitor monitor = ConfigurationController.
+                getInstance().
+                contains("execution.usage")
+                ? new UsageMonitor()
+                : null;
+        if ((terminator != null) || (monitor != null)) {
+            executor = executor.addListener(new ProcessListener() {
+                @Override
+                public void afterStart(Process process,
+                        ProcessExecutor current) {
+                    if (terminator != null) {
+                        terminator.attach(process);
+                    }
+                    if (monitor != null) {
+                        monitor.attach(process);
+                    }
+                }
+            });
+        }
+
+        // the output cache, when enabled, might already hold
+        // the outputs of this very command run against these
+        // very files, so there is no need to run it again
+        Map<String, String> stamps = null;
+        String key = null;
+        if (CacheUtils.isEnabled()) {
+            stamps = CacheUtils.scan();
+            if (stamps != null) {
+                key = CacheUtils.getKey(command, stamps);
+                Integer exit = CacheUtils.restore(key, analyzers.values());
+                if (exit != null) {
+                    publish(analyzers);
+                    account(monitor);
+                    return exit;
+                }
+            }
+        }
+
+        // the output goes to the log one line at a time,
+        // as it arrives, and only its tail is kept in
+        // memory; the output cache gets a full copy in
+        // a temporary file instead
+        File spool = null;
+        CaptureOutputStream capture = null;
+        for (Analyzer analyzer : analyzers.values()) {
+            analyzer.reset();
+        }
+        List<AsyncOutputStream> sinks = new ArrayList<AsyncOutputStream>();
         try {
-            int exit = executor.execute().getExitValue();
+            OutputStream copy = null;
+            if (key != null) {
+                spool = File.createTempFile("nightingale", ".out");
+                copy = new BufferedOutputStream(new FileOutputStream(spool));
+            }
+            List<Analyzer> watchers = new ArrayList<Analyzer>(
+                    analyzers.values()
+            );
+            if (terminator != null) {
+                watchers.add(terminator);
+            }
+            capture = new CaptureOutputStream(logger, TAIL, copy, watchers);
+
+            // every sink is drained by a thread of its own,
+            // so a slow terminal does not hold the command
+            // back; the log never drops anything, while the
+            // terminal might spill to a file, if allowed
+            sinks.add(new AsyncOutputStream(capture, BUFFER, false, null));
+            if (verbose) {
+                sinks.add(0, new AsyncOutputStream(
+                        output,
+                        BUFFER,
+                        ConfigurationController.
+                                getInstance().
+                                get("execution.output.policy").
+                                equals("file"),
+                        messages.getMessage(
+                                Messages.INFO_INTERPRETER_OUTPUT_SPILLED
+                        )
+                ));
+                executor = executor.redirectInput(System.in);
+            }
+            TeeOutputStream tee = new TeeOutputStream(
+                    sinks.toArray(new OutputStream[sinks.size()])
+            );
+            executor = executor.redirectOutput(tee).redirectError(tee);
 
             logger.info(
                     DisplayUtils.displayOutputSeparator(
@@ -516,7 +918,13 @@ public class InterpreterUtils {
                             )
                     )
             );
-            logger.info(buffer.toString());
+            int exit = executor.execute().getExitValue();
+            if (monitor != null) {
+                monitor.stop();
+            }
+            close(sinks);
+            capture.close();
+            publish(analyzers);
             logger.info(
                     DisplayUtils.displayOutputSeparator(
                             messages.getMessage(
@@ -525,6 +933,24 @@ public class InterpreterUtils {
                     )
             );
 
+            // a terminated command failed, no matter its exit
+            // value, and its outputs are not worth caching
+            if ((terminator != null) && (terminator.getLine() != null)) {
+                logger.info(
+                        messages.getMessage(
+                                Messages.LOG_INFO_COMMAND_TERMINATED,
+                                terminator.getLine()
+                        )
+                );
+                ConfigurationController.
+                        getInstance().
+                        put("execution.command.terminated", true);
+                return exit;
+            }
+
+            if (key != null) {
+                CacheUtils.store(key, stamps, exit, spool);
+            }
             return exit;
         } catch (IOException ioexception) {
             throw new NightingaleException(
@@ -548,10 +974,21 @@ public class InterpreterUtils {
                     ievexception
             );
         } catch (TimeoutException texception) {
+
+            // the last lines written by the command usually
+            // tell why it took so long, like a prompt
+            // waiting for input from the user
+            close(sinks);
+            String line = capture.getLastLines(3);
             throw new NightingaleException(
-                    messages.getMessage(
-                            Messages.ERROR_RUN_TIMEOUT_EXCEPTION
-                    ),
+                    line.isEmpty()
+                            ? messages.getMessage(
+                                    Messages.ERROR_RUN_TIMEOUT_EXCEPTION
+                            )
+                            : messages.getMessage(
+                                    Messages.ERROR_RUN_TIMEOUT_EXCEPTION_LAST_LINES,
+                                    StringUtils.abbreviate(line, 240)
+                            ),
                     texception
             );
         } catch (Exception exception) {
@@ -561,6 +998,81 @@ public class InterpreterUtils {
                     ),
                     exception
             );
+        } finally {
+
+            // every command is accounted for, even the ones
+            // which failed or timed out, but not the time
+            // spent writing their pending output
+            if (monitor != null) {
+                monitor.stop();
+            }
+            close(sinks);
+            account(monitor);
+            if (capture != null) {
+                capture.close();
+            }
+            FileUtils.deleteQuietly(spool);
+        }
+    }
+
+    /**
+     * Stops the provided monitor, if any, logs the resource usage of the
+     * command and records it for the current directive and rule. The
+     * monitor might have been stopped already, right after the command
+     * ended, so the time spent writing the output is not accounted for.
+     * Commands restored from the output cache are accounted for as well,
+     * with no CPU time at all.
+     * @param monitor The monitor, or null if resource accounting is
+     * disabled.
+     */
+    private static void account(UsageMonitor monitor) {
+        if (monitor == null) {
+            return;
+        }
+        Usage usage = monitor.stop();
+        logger.info(
+                messages.getMessage(
+                        Messages.LOG_INFO_SYSTEM_COMMAND_USAGE,
+                        DisplayUtils.formatSeconds(usage.getWall()),
+                        usage.isAvailable()
+                                ? DisplayUtils.formatSeconds(usage.getUser())
+                                : "-",
+                        usage.isAvailable()
+                                ? DisplayUtils.formatSeconds(usage.getSystem())
+                                : "-",
+                        usage.isAvailable()
+                                ? DisplayUtils.formatMegabytes(usage.getPeak())
+                                : "-"
+                )
+        );
+        String rule = (String) ConfigurationController.
+                getInstance().
+                get("execution.info.rule.id");
+        File reference = (File) ConfigurationController.
+                getInstance().
+                get("execution.reference");
+
+        // the rule and the line numbers come first, since
+        // they tell the directives of a file apart
+        String directive = rule.
+                concat(" ").
+                concat(getDirectiveLineNumbers()).
+                trim().
+                concat(" ").
+                concat(reference.getName());
+        ((Accounting) ConfigurationController.
+                getInstance().
+                get("execution.usage")).record(directive, rule, usage);
+    }
+
+    /**
+     * Closes the provided asynchronous sinks, that is, waits for their
+     * pending data to be written.
+     * @param sinks The list of sinks.
+     */
+    private static void close(List<AsyncOutputStream> sinks) {
+        for (AsyncOutputStream sink : sinks) {
+            sink.close();
         }
     }
 
@@ -0,0 +1,216 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Implements the utilitary methods for running processes. The project
+ * targets Java 8, so the process API introduced in Java 9 is used through
+ * reflection when available, falling back to the proc filesystem otherwise.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class ProcessUtils {
+
+    /**
+     * Gets the process identifier. The method introduced in Java 9 is used
+     * when available; otherwise, the private field of the Java 8 process
+     * implementation on Unix systems is read.
+     * @param process The process.
+     * @return The process identifier, or -1 if it is not available.
+     */
+    public static long getPid(Process process) {
+        try {
+            Method method = Process.class.getMethod("pid");
+            return (Long) method.invoke(process);
+        } catch (Exception exception) {
+            try {
+                Field field = process.getClass().getDeclaredField("pid");
+                field.setAccessible(true);
+                return field.getInt(process);
+            } catch (Exception nexception) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Gets the total CPU time of the provided process through the process
+     * handles introduced in Java 9, which work on systems without the proc
+     * filesystem as well. Some systems only report it while the process is
+     * still around.
+     * @param process The process.
+     * @return The total CPU time, in milliseconds, or -1 if it is not
+     * available.
+     */
+    public static long getCpuTime(Process process) {
+        try {
+            Class<?> type = Class.forName("java.lang.ProcessHandle");
+            Class<?> info = Class.forName("java.lang.ProcessHandle$Info");
+            Object handle = Process.class.getMethod("toHandle").
+                    invoke(process);
+            Optional<?> duration = (Optional<?>) info.
+                    getMethod("totalCpuDuration").
+                    invoke(type.getMethod("info").invoke(handle));
+            return duration.isPresent()
+                    ? ((Duration) duration.get()).toMillis()
+                    : -1;
+        } catch (Exception exception) {
+            return -1;
+        }
+    }
+
+    /**
+     * Kills the provided process along with all of its descendants, like the
+     * programs spawned through shell escape or by wrapper scripts, which
+     * would otherwise keep the output pipe open. The descendants are taken
+     * before the process is killed, since they are reparented afterwards.
+     * @param process The process.
+     */
+    public static void destroyTree(Process process) {
+        if (!destroyHandles(process)) {
+            List<Long> descendants = getDescendants(getPid(process));
+            process.destroyForcibly();
+            for (long pid : descendants) {
+                try {
+                    new ProcessBuilder("kill", "-KILL", String.valueOf(pid)).
+                            start().
+                            waitFor();
+                } catch (IOException exception) {
+                    // no kill command around
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Kills the provided process and its descendants through the process
+     * handles introduced in Java 9.
+     * @param process The process.
+     * @return A boolean value indicating if process handles are available.
+     */
+    private static boolean destroyHandles(Process process) {
+        try {
+            Class<?> type = Class.forName("java.lang.ProcessHandle");
+            Method destroy = type.getMethod("destroyForcibly");
+            Object handle = Process.class.getMethod("toHandle").
+                    invoke(process);
+            Object[] descendants = ((Stream<?>) type.
+                    getMethod("descendants").
+                    invoke(handle)).toArray();
+            process.destroyForcibly();
+            for (Object descendant : descendants) {
+                destroy.invoke(descendant);
+            }
+            return true;
+        } catch (Exception exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the descendants of the provided process by walking the parent
+     * links found in the proc filesystem.
+     * @param pid The process identifier.
+     * @return The list of descendants, which is empty when the proc
+     * filesystem is not available.
+     */
+    private static List<Long> getDescendants(long pid) {
+        List<Long> result = new ArrayList<Long>();
+        File[] directories = new File("/proc").listFiles();
+        if ((pid <= 0) || (directories == null)) {
+            return result;
+        }
+        Map<Long, List<Long>> children = new HashMap<Long, List<Long>>();
+        for (File directory : directories) {
+            if (!StringUtils.isNumeric(directory.getName())) {
+                continue;
+            }
+            try {
+                String content = FileUtils.readFileToString(
+                        new File(directory, "stat"),
+                        Charset.defaultCharset()
+                );
+
+                // the command name might contain spaces, so the
+                // fields are counted from its closing parenthesis;
+                // the parent identifier is the second one
+                String[] fields = StringUtils.split(
+                        content.substring(content.lastIndexOf(')') + 1)
+                );
+                long parent = Long.parseLong(fields[1]);
+                List<Long> list = children.get(parent);
+                if (list == null) {
+                    list = new ArrayList<Long>();
+                    children.put(parent, list);
+                }
+                list.add(Long.parseLong(directory.getName()));
+            } catch (IOException exception) {
+                // the process is gone
+            } catch (RuntimeException exception) {
+                // the file was truncated
+            }
+        }
+        LinkedList<Long> queue = new LinkedList<Long>();
+        queue.add(pid);
+        while (!queue.isEmpty()) {
+            List<Long> list = children.get(queue.poll());
+            if (list != null) {
+                result.addAll(list);
+                queue.addAll(list);
+            }
+        }
+        return result;
+    }
+
+}
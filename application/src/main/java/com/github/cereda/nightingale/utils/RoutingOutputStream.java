@@ -0,0 +1,108 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Implements a stream router. Data is written to the buffer found in the
+ * configuration scope of the current thread, if any, or to the default
+ * stream otherwise. This is how the output of files processed in parallel
+ * is kept apart.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class RoutingOutputStream extends OutputStream {
+
+    // the default stream, used when
+    // the current thread does not
+    // provide a buffer of its own
+    private final OutputStream stream;
+
+    /**
+     * Constructor.
+     * @param stream The default stream.
+     */
+    public RoutingOutputStream(OutputStream stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * Writes the provided integer to the current stream.
+     * @param b The provided integer
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        getStream().write(b);
+    }
+
+    /**
+     * Writes the provided byte array to the current stream, with the provided
+     * offset and length.
+     * @param b The byte array.
+     * @param offset The offset.
+     * @param length The length.
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public void write(byte[] b, int offset, int length) throws IOException {
+        getStream().write(b, offset, length);
+    }
+
+    /**
+     * Flushes the current stream.
+     * @throws IOException An IO exception.
+     */
+    @Override
+    public void flush() throws IOException {
+        getStream().flush();
+    }
+
+    /**
+     * Gets the stream for the current thread.
+     * @return The buffer set in the configuration scope of the current
+     * thread, or the default stream.
+     */
+    private OutputStream getStream() {
+        OutputStream buffer = (OutputStream) ConfigurationController.
+                getInstance().
+                get("display.buffer");
+        return buffer == null ? stream : buffer;
+    }
+
+}
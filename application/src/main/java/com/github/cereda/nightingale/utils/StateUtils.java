@@ -0,0 +1,383 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.controller.DatabaseController;
+import com.github.cereda.nightingale.controller.LanguageController;
+import com.github.cereda.nightingale.model.Database;
+import com.github.cereda.nightingale.model.Directive;
+import com.github.cereda.nightingale.model.Messages;
+import com.github.cereda.nightingale.model.NightingaleException;
+import com.github.cereda.nightingale.model.Pair;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Implements the directive state utilitary methods. The state of a directive
+ * is the set of files it has read and written in its last successful run,
+ * along with their fingerprints, so the directive can be skipped when none
+ * of them has changed since then.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class StateUtils {
+
+    // the application messages obtained from the
+    // language controller
+    private static final LanguageController messages =
+            LanguageController.getInstance();
+
+    // get the logger context from a factory
+    private static final Logger logger =
+            LoggerFactory.getLogger(StateUtils.class);
+
+    // the prefix of the directive states in the
+    // database, so they do not clash with paths
+    private static final String PREFIX = "state:";
+
+    /**
+     * Checks if directives might be skipped when they are up to date. There
+     * is no point in doing so in dry-run mode, and directives running in
+     * parallel cannot tell their outputs apart.
+     * @return A boolean value indicating if directives might be skipped.
+     */
+    public static boolean isEnabled() {
+        ConfigurationController controller =
+                ConfigurationController.getInstance();
+        return ((Boolean) controller.get("execution.uptodate"))
+                && !((Boolean) controller.get("execution.dryrun"))
+                && !controller.contains("execution.parallel");
+    }
+
+    /**
+     * Gets the key of the provided directive, that is, a digest of its
+     * identifier, parameters, conditional and rule content. Identical
+     * directives are told apart by their occurrence.
+     * @param directive The directive.
+     * @param rule The rule file.
+     * @param occurrence The number of identical directives found before
+     * this one.
+     * @return The key of the provided directive.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static String getKey(Directive directive, File rule,
+            int occurrence) throws NightingaleException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, getSignature(directive));
+            update(digest, String.valueOf(occurrence));
+            update(digest, HashUtils.calculateHash(rule, "xxhash64"));
+            StringBuilder builder = new StringBuilder();
+            for (byte value : digest.digest()) {
+                builder.append(String.format("%02x", value));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException exception) {
+            // every Java platform is required to
+            // support SHA-256, so this is dead code
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Gets the signature of the provided directive, that is, everything
+     * that makes it what it is, so identical directives can be counted.
+     * @param directive The directive.
+     * @return The signature of the provided directive.
+     */
+    public static String getSignature(Directive directive) {
+        return directive.getIdentifier().
+                concat("\n").
+                concat(String.valueOf(
+                        new TreeMap<String, Object>(directive.getParameters())
+                )).
+                concat("\n").
+                concat(String.valueOf(directive.getConditional()));
+    }
+
+    /**
+     * Checks if the directive of the provided key is up to date, that is,
+     * there is a state from a previous successful run, no input has appeared
+     * or disappeared, and neither the files it has read nor the ones it has
+     * written have changed since then.
+     * @param key The directive key.
+     * @param inputs The list of globs denoting the directive inputs, or null
+     * if every file around has to be taken as an input.
+     * @return A boolean value indicating if the directive is up to date.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static boolean isUpToDate(String key, List<String> inputs)
+            throws NightingaleException {
+        Map<String, String> recorded = new TreeMap<String, String>();
+        Map<String, String> outputs = new TreeMap<String, String>();
+        if (!read(key, recorded, outputs)) {
+            return false;
+        }
+        Map<String, String> stamps = CacheUtils.scan();
+        if (stamps == null) {
+            return false;
+        }
+
+        // the set of inputs, except the ones which are
+        // outputs as well, must be the very same as before
+        Set<String> current = getInputs(inputs, stamps);
+        current.removeAll(outputs.keySet());
+        if (!current.equals(recorded.keySet())) {
+            return false;
+        }
+
+        File directory = CacheUtils.getDirectory();
+        Map<File, String> values = new LinkedHashMap<File, String>();
+        for (Map.Entry<String, String> entry : recorded.entrySet()) {
+            values.put(new File(directory, entry.getKey()), entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : outputs.entrySet()) {
+            values.put(
+                    new File(directory, entry.getKey()),
+                    entry.getValue().isEmpty() ? null : entry.getValue()
+            );
+        }
+        for (Pair<Boolean, String> result
+                : CommonUtils.verify(values).values()) {
+            if (result.getFirstElement()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the files written by the directive of the provided key in its
+     * last successful run.
+     * @param key The directive key.
+     * @return The set of paths relative to the working directory.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static Set<String> getOutputs(String key)
+            throws NightingaleException {
+        Map<String, String> outputs = new TreeMap<String, String>();
+        read(key, new TreeMap<String, String>(), outputs);
+        return outputs.keySet();
+    }
+
+    /**
+     * Gets the files written between the two provided scans, that is, the
+     * files which have appeared, changed or disappeared, along with the
+     * declared outputs, if any.
+     * @param before The scan taken before the directive.
+     * @param after The scan taken after the directive.
+     * @param declared The list of globs denoting the declared outputs, or
+     * null if there are none.
+     * @return The set of paths relative to the working directory, or null if
+     * any of the scans is not available.
+     */
+    public static Set<String> getOutputs(Map<String, String> before,
+            Map<String, String> after, List<String> declared) {
+        if ((before == null) || (after == null)) {
+            return null;
+        }
+        Set<String> outputs = new TreeSet<String>();
+        for (Map.Entry<String, String> entry : after.entrySet()) {
+            if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                outputs.add(entry.getKey());
+            }
+        }
+        for (String path : before.keySet()) {
+            if (!after.containsKey(path)) {
+                outputs.add(path);
+            }
+        }
+        if (declared != null) {
+            outputs.addAll(DeclarationUtils.match(declared, after.keySet()));
+        }
+        return outputs;
+    }
+
+    /**
+     * Records the states of the provided directives, all at once, with the
+     * fingerprints of the files as they are by the end of the execution.
+     * This method is meant to be called only when every directive has
+     * succeeded.
+     * @param states The map of states, indexed by directive key; each state
+     * is a pair containing the list of globs denoting the inputs, or null if
+     * every file around is an input, and the set of outputs.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    public static void commit(
+            Map<String, Pair<List<String>, Set<String>>> states)
+            throws NightingaleException {
+        if (states.isEmpty()) {
+            return;
+        }
+        Map<String, String> stamps = CacheUtils.scan();
+        if (stamps == null) {
+            return;
+        }
+
+        // previous fingerprints are reused as much as
+        // possible, so unchanged files are not hashed
+        // once again
+        Map<String, String> previous = new HashMap<String, String>();
+        for (String key : states.keySet()) {
+            read(key, previous, previous);
+        }
+        Map<String, Set<String>> inputs = new HashMap<String, Set<String>>();
+        Set<String> paths = new TreeSet<String>();
+        for (Map.Entry<String, Pair<List<String>, Set<String>>> state
+                : states.entrySet()) {
+            inputs.put(state.getKey(), getInputs(
+                    state.getValue().getFirstElement(),
+                    stamps
+            ));
+            paths.addAll(inputs.get(state.getKey()));
+            paths.addAll(state.getValue().getSecondElement());
+        }
+        File directory = CacheUtils.getDirectory();
+        Map<File, String> values = new LinkedHashMap<File, String>();
+        Map<String, File> files = new HashMap<String, File>();
+        for (String path : paths) {
+            File file = new File(directory, path);
+            String value = previous.get(path);
+            values.put(file, (value == null) || value.isEmpty()
+                    ? null : value);
+            files.put(path, file);
+        }
+        Map<File, Pair<Boolean, String>> results = CommonUtils.verify(values);
+
+        Database database = DatabaseController.getInstance().get();
+        for (Map.Entry<String, Pair<List<String>, Set<String>>> state
+                : states.entrySet()) {
+            Set<String> outputs = state.getValue().getSecondElement();
+            StringBuilder builder = new StringBuilder();
+            for (String path : paths) {
+                String value = results.get(files.get(path)).getSecondElement();
+                boolean output = outputs.contains(path);
+                if (!output && !inputs.get(state.getKey()).contains(path)) {
+                    continue;
+                }
+                builder.append(output ? "O" : "I").
+                        append("\t").
+                        append(path).
+                        append("\t").
+                        append(value == null ? "" : value).
+                        append("\n");
+            }
+            database.put(PREFIX.concat(state.getKey()), builder.toString());
+        }
+        DatabaseController.getInstance().update();
+        logger.info(
+                messages.getMessage(
+                        Messages.LOG_INFO_DIRECTIVE_STATES_RECORDED,
+                        states.size()
+                )
+        );
+    }
+
+    /**
+     * Gets the inputs among the provided scan.
+     * @param globs The list of globs denoting the inputs, or null if every
+     * file around is an input.
+     * @param stamps The scan.
+     * @return The set of paths relative to the working directory.
+     */
+    private static Set<String> getInputs(List<String> globs,
+            Map<String, String> stamps) {
+        if (globs == null) {
+            return new HashSet<String>(stamps.keySet());
+        }
+        return DeclarationUtils.match(globs, stamps.keySet());
+    }
+
+    /**
+     * Reads the state of the provided directive key from the database.
+     * @param key The directive key.
+     * @param inputs The map to be filled with the fingerprints of the
+     * inputs, indexed by path.
+     * @param outputs The map to be filled with the fingerprints of the
+     * outputs, indexed by path; an empty fingerprint means that the output
+     * did not exist.
+     * @return A boolean value indicating if there is a state at all.
+     * @throws NightingaleException Something wrong happened, to be caught in
+     * the higher levels.
+     */
+    private static boolean read(String key, Map<String, String> inputs,
+            Map<String, String> outputs) throws NightingaleException {
+        Database database = DatabaseController.getInstance().get();
+        String value = database.get(PREFIX.concat(key));
+        if (value == null) {
+            return false;
+        }
+        for (String line : value.split("\n")) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length == 3) {
+                if ("O".equals(fields[0])) {
+                    outputs.put(fields[1], fields[2]);
+                } else {
+                    inputs.put(fields[1], fields[2]);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Updates the provided digest with the provided text, followed by a
+     * separator, so consecutive texts cannot be mistaken for one another.
+     * @param digest The digest.
+     * @param text The text.
+     */
+    private static void update(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+}
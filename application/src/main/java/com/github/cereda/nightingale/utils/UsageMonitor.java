@@ -0,0 +1,241 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import com.github.cereda.nightingale.model.Usage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Monitors the resource usage of a running command. The wall time is always
+ * measured; the CPU times and the peak resident set size are sampled from
+ * the proc filesystem while the process runs, if available. The CPU times
+ * include the ones of the children already waited for by the process, so
+ * wrapper scripts are accounted for as well. Without the proc filesystem,
+ * the total CPU time of the process itself is taken from the process
+ * handles, when available, and reported as user time. A last sample is
+ * taken when the monitor stops, since the process might have run for less
+ * than one interval.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class UsageMonitor {
+
+    // the interval between two samples,
+    // in milliseconds
+    private static final long INTERVAL = 50;
+
+    // the number of clock ticks per second
+    // used by the proc filesystem, which is
+    // virtually always this value on Linux
+    private static final long TICKS = 100;
+
+    // the moments the monitor started
+    // and stopped, and the final usage
+    private long beginning;
+    private Usage usage;
+
+    // the process and its files, once
+    // the process has started
+    private Process process;
+    private File stat;
+    private File status;
+
+    // the latest values sampled, in milliseconds
+    // and kilobytes, respectively
+    private long user;
+    private long system;
+    private long peak;
+    private boolean available;
+
+    // a flag indicating if a process was
+    // attached at all
+    private boolean attached;
+
+    // the thread taking the samples
+    private Thread thread;
+
+    /**
+     * Constructor. The wall time starts counting right away, and once again
+     * when the process is attached.
+     */
+    public UsageMonitor() {
+        beginning = System.nanoTime();
+    }
+
+    /**
+     * Attaches the running process and starts sampling it, if either the
+     * proc filesystem or the process handles are available.
+     * @param process The running process.
+     */
+    public synchronized void attach(Process process) {
+        beginning = System.nanoTime();
+        attached = true;
+        this.process = process;
+        long pid = ProcessUtils.getPid(process);
+        if (pid > 0) {
+            File directory = new File("/proc", String.valueOf(pid));
+            if (new File(directory, "stat").isFile()) {
+                stat = new File(directory, "stat");
+                status = new File(directory, "status");
+            }
+        }
+        if ((stat != null) || (ProcessUtils.getCpuTime(process) >= 0)) {
+            thread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        sample();
+                        try {
+                            Thread.sleep(INTERVAL);
+                        } catch (InterruptedException exception) {
+                            return;
+                        }
+                    }
+                }
+            }, "nightingale-usage");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the monitor, if it was not stopped yet. When no process was
+     * attached, like for a command restored from the output cache or one
+     * which could not even start, there is no CPU time nor memory to be
+     * accounted for, so zeros are reported.
+     * @return The resource usage of the command.
+     */
+    public Usage stop() {
+        long end = System.nanoTime();
+        Thread current;
+        synchronized (this) {
+            if (usage != null) {
+                return usage;
+            }
+            current = thread;
+        }
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+
+            // the process is gone by now, but some
+            // systems still report its final values
+            sample();
+        }
+        synchronized (this) {
+            usage = new Usage(
+                    (end - beginning) / 1000000,
+                    user,
+                    system,
+                    peak,
+                    available || !attached
+            );
+            return usage;
+        }
+    }
+
+    /**
+     * Samples the process, either from its files or from its handle. The
+     * process might be gone at any moment, in which case the previous values
+     * are kept.
+     */
+    private void sample() {
+        if (stat != null) {
+            sampleFiles();
+        } else {
+            long cpu = ProcessUtils.getCpuTime(process);
+            if (cpu >= 0) {
+                synchronized (this) {
+                    user = Math.max(user, cpu);
+                    available = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Samples the process files.
+     */
+    private void sampleFiles() {
+        try {
+            String content = FileUtils.readFileToString(
+                    stat,
+                    Charset.defaultCharset()
+            );
+
+            // the command name might contain spaces, so the
+            // fields are counted from its closing parenthesis,
+            // which makes the process state the first one
+            String[] fields = StringUtils.split(
+                    content.substring(content.lastIndexOf(')') + 1)
+            );
+            long utime = Long.parseLong(fields[11])
+                    + Long.parseLong(fields[13]);
+            long stime = Long.parseLong(fields[12])
+                    + Long.parseLong(fields[14]);
+            long hwm = 0;
+            List<String> lines = FileUtils.readLines(
+                    status,
+                    Charset.defaultCharset()
+            );
+            for (String line : lines) {
+                if (line.startsWith("VmHWM:")) {
+                    hwm = Long.parseLong(StringUtils.split(line)[1]);
+                }
+            }
+            synchronized (this) {
+                user = Math.max(user, utime * 1000 / TICKS);
+                system = Math.max(system, stime * 1000 / TICKS);
+                peak = Math.max(peak, hwm);
+                available = true;
+            }
+        } catch (IOException exception) {
+            // the process is gone
+        } catch (RuntimeException exception) {
+            // the files were truncated
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Implements the 64-bit xxHash algorithm, in its streaming form. The hash is
+ * not cryptographic at all, but it is very fast and its 64 bits make
+ * accidental collisions far less likely than the ones from CRC32.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class XXHash64 {
+
+    // the algorithm primes
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    // the four accumulators, the total length and
+    // the pending bytes which do not fill a stripe
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long length;
+    private final ByteBuffer memory;
+
+    /**
+     * Constructor. It starts a new hash, with a zero seed.
+     */
+    public XXHash64() {
+        memory = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        reset();
+    }
+
+    /**
+     * Resets the hash, so a new input can be processed.
+     */
+    public final void reset() {
+        v1 = PRIME1 + PRIME2;
+        v2 = PRIME2;
+        v3 = 0;
+        v4 = -PRIME1;
+        length = 0;
+        memory.clear();
+    }
+
+    /**
+     * Updates the hash with the remaining bytes of the provided buffer. The
+     * buffer is consumed, but its byte order is preserved.
+     * @param buffer The buffer.
+     */
+    public void update(ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        length = length + buffer.remaining();
+
+        // first, complete the pending
+        // stripe, if there is one
+        if (memory.position() > 0) {
+            while (memory.hasRemaining() && buffer.hasRemaining()) {
+                memory.put(buffer.get());
+            }
+            if (!memory.hasRemaining()) {
+                memory.flip();
+                stripe(memory);
+                memory.clear();
+            }
+        }
+
+        // then, process whole stripes straight
+        // from the buffer and keep the rest
+        while (buffer.remaining() >= 32) {
+            stripe(buffer);
+        }
+        while (buffer.hasRemaining()) {
+            memory.put(buffer.get());
+        }
+        buffer.order(order);
+    }
+
+    /**
+     * Gets the hash value of the input processed so far.
+     * @return The hash value.
+     */
+    public long getValue() {
+        long hash;
+        if (length >= 32) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                    + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash = hash + length;
+
+        ByteBuffer tail = memory.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        tail.flip();
+        while (tail.remaining() >= 8) {
+            hash = hash ^ round(0, tail.getLong());
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (tail.remaining() >= 4) {
+            hash = hash ^ ((tail.getInt() & 0xFFFFFFFFL) * PRIME1);
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+        }
+        while (tail.hasRemaining()) {
+            hash = hash ^ ((tail.get() & 0xFF) * PRIME5);
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash = hash ^ (hash >>> 33);
+        hash = hash * PRIME2;
+        hash = hash ^ (hash >>> 29);
+        hash = hash * PRIME3;
+        hash = hash ^ (hash >>> 32);
+        return hash;
+    }
+
+    /**
+     * Processes a stripe of 32 bytes from the provided buffer.
+     * @param buffer The buffer, in little-endian order.
+     */
+    private void stripe(ByteBuffer buffer) {
+        v1 = round(v1, buffer.getLong());
+        v2 = round(v2, buffer.getLong());
+        v3 = round(v3, buffer.getLong());
+        v4 = round(v4, buffer.getLong());
+    }
+
+    /**
+     * Mixes an input lane into the provided accumulator.
+     * @param accumulator The accumulator.
+     * @param input The input lane.
+     * @return The new accumulator value.
+     */
+    private static long round(long accumulator, long input) {
+        accumulator = accumulator + input * PRIME2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME1;
+    }
+
+    /**
+     * Merges an accumulator into the provided hash.
+     * @param hash The hash.
+     * @param accumulator The accumulator.
+     * @return The new hash value.
+     */
+    private static long merge(long hash, long accumulator) {
+        hash = hash ^ round(0, accumulator);
+        return hash * PRIME1 + PRIME4;
+    }
+
+}
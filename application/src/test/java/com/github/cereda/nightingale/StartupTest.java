@@ -0,0 +1,203 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the application startup. Quick executions like --help or --version
+ * must not load the heavy libraries, which are only needed when a file is
+ * actually processed; each execution runs in a forked virtual machine with
+ * the class loading logged, so the loaded classes can be checked. Besides
+ * the forbidden packages, the number of classes loaded from outside the
+ * runtime itself is kept within a budget, so a new dependency creeping into
+ * the startup path is noticed even when it is not listed.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class StartupTest {
+
+    // packages which must not be loaded
+    // by quick executions at all
+    private static final List<String> forbidden = Arrays.asList(
+            "ch.qos.logback.core.joran",
+            "groovy.lang",
+            "org.yaml.snakeyaml",
+            "org.simpleframework.xml"
+    );
+
+    // packages which belong to the runtime
+    // itself, and are not counted
+    private static final List<String> runtime = Arrays.asList(
+            "java",
+            "javax",
+            "jdk",
+            "sun",
+            "com.sun"
+    );
+
+    // the maximum number of classes loaded from
+    // outside the runtime; quick executions load
+    // about 50 of them, while a single library
+    // like Groovy loads hundreds
+    private static final int BUDGET = 150;
+
+    /**
+     * Checks the help message.
+     * @throws Exception Something wrong happened.
+     */
+    @Test
+    public void testHelp() throws Exception {
+        check("--help");
+    }
+
+    /**
+     * Checks the version information.
+     * @throws Exception Something wrong happened.
+     */
+    @Test
+    public void testVersion() throws Exception {
+        check("--version");
+    }
+
+    /**
+     * Runs the application with the provided argument in a forked virtual
+     * machine and checks that no class from the forbidden packages was
+     * loaded and that the number of classes loaded from outside the runtime
+     * is within the budget.
+     * @param argument The command line argument.
+     * @throws IOException The output could not be read.
+     * @throws InterruptedException The execution was interrupted.
+     */
+    private void check(String argument)
+            throws IOException, InterruptedException {
+        List<String> loaded = run(argument);
+        assertFalse(loaded.isEmpty());
+        int count = 0;
+        for (String name : loaded) {
+            for (String prefix : forbidden) {
+                assertFalse(argument.concat(" loaded ").concat(name),
+                        startsWith(name, prefix));
+            }
+            boolean counted = true;
+            for (String prefix : runtime) {
+                if (startsWith(name, prefix)) {
+                    counted = false;
+                }
+            }
+            if (counted) {
+                count++;
+            }
+        }
+        assertTrue(argument.concat(" loaded ").
+                concat(String.valueOf(count)).
+                concat(" classes from outside the runtime"),
+                count <= BUDGET);
+    }
+
+    /**
+     * Checks if the provided class name belongs to the provided package or
+     * to one of its subpackages.
+     * @param name The class name.
+     * @param prefix The package name.
+     * @return A boolean value indicating if the class belongs to the package.
+     */
+    private boolean startsWith(String name, String prefix) {
+        return name.startsWith(prefix.concat("."));
+    }
+
+    /**
+     * Runs the application with the provided argument in a forked virtual
+     * machine, logging the class loading.
+     * @param argument The command line argument.
+     * @return The list of loaded class names.
+     * @throws IOException The output could not be read.
+     * @throws InterruptedException The execution was interrupted.
+     */
+    private List<String> run(String argument)
+            throws IOException, InterruptedException {
+        String java = System.getProperty("java.home").
+                concat(File.separator).
+                concat("bin").
+                concat(File.separator).
+                concat("java");
+        ProcessBuilder builder = new ProcessBuilder(
+                java,
+                "-verbose:class",
+                "-cp",
+                System.getProperty("java.class.path"),
+                Nightingale.class.getName(),
+                argument
+        );
+        builder.redirectErrorStream(true);
+        Process process = builder.start();
+
+        // both the old ([Loaded name from source]) and the
+        // new ([...][class,load] name source: ...) formats
+        // of the class loading log are supported
+        List<String> loaded = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), "UTF-8")
+        );
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("[Loaded ")) {
+                    loaded.add(line.split("\\s+")[1]);
+                } else if (line.contains("[class,load]")) {
+                    String[] parts = line.substring(
+                            line.indexOf("[class,load]") + 12
+                    ).trim().split("\\s+");
+                    loaded.add(parts[0]);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(0, process.waitFor());
+        return loaded;
+    }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.model;
+
+import java.util.Arrays;
+import org.apache.commons.lang.StringUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+/**
+ * Tests the analyzers. Patterns are looked up across the boundary between
+ * two lines only when the first one might have been wrapped, so short lines
+ * which happen to complete each other must not produce a match.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class AnalyzerTest {
+
+    /**
+     * Checks a single line.
+     */
+    @Test
+    public void testLine() {
+        Analyzer analyzer = new Analyzer("Emergency stop");
+        analyzer.analyze("! Emergency stop.");
+        assertEquals(true, analyzer.getResult());
+    }
+
+    /**
+     * Checks a match across a line wrapped at 79 columns.
+     */
+    @Test
+    public void testWrappedLine() {
+        Analyzer analyzer = new Analyzer("Emergency stop");
+        analyzer.analyze(StringUtils.repeat("x", 69).concat(" Emergency"));
+        analyzer.analyze(" stop.");
+        assertEquals(true, analyzer.getResult());
+    }
+
+    /**
+     * Checks that two short lines are not joined.
+     */
+    @Test
+    public void testShortLines() {
+        Analyzer analyzer = new Analyzer("Emergency stop");
+        analyzer.analyze("Emergency");
+        analyzer.analyze(" stop");
+        assertEquals(false, analyzer.getResult());
+    }
+
+    /**
+     * Checks that the previous line is dropped on reset.
+     */
+    @Test
+    public void testReset() {
+        Analyzer analyzer = new Analyzer("Emergency stop");
+        analyzer.analyze(StringUtils.repeat("x", 69).concat(" Emergency"));
+        analyzer.reset();
+        analyzer.analyze(" stop.");
+        assertEquals(false, analyzer.getResult());
+    }
+
+    /**
+     * Checks that a terminator does not fire on two short lines which only
+     * match together.
+     */
+    @Test
+    public void testTerminatorShortLines() {
+        Terminator terminator = new Terminator(
+                Arrays.asList("^! Emergency stop")
+        );
+        terminator.analyze("! Emergency");
+        terminator.analyze(" stop");
+        assertEquals(false, terminator.getResult());
+        assertNull(terminator.getLine());
+    }
+
+}
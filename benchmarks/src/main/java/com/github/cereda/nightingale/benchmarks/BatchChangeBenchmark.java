@@ -0,0 +1,135 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.benchmarks;
+
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.utils.CommonUtils;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the change detection of many files at once, as done by rules
+ * depending on hundreds of figures, either one file at a time or through
+ * the batch check.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchChangeBenchmark {
+
+    // the number of files
+    @Param({"200"})
+    public int count;
+
+    // whether files are always hashed
+    @Param({"false", "true"})
+    public boolean strict;
+
+    // the fixture and
+    // the checked files
+    private Fixture fixture;
+    private List<File> files;
+
+    /**
+     * Sets up the fixture and the files, which are checked once so the
+     * database already knows them.
+     * @throws Exception Something wrong happened.
+     */
+    @Setup
+    public void setup() throws Exception {
+        fixture = new Fixture();
+        ConfigurationController.
+                getInstance().
+                put("execution.database.strict", strict);
+        files = new ArrayList<File>();
+        for (int i = 0; i < count; i++) {
+            files.add(fixture.create("figure" + i + ".pdf", 256 * 1024));
+        }
+        CommonUtils.hasChanged(files);
+    }
+
+    /**
+     * Removes the fixture.
+     * @throws Exception Something wrong happened.
+     */
+    @TearDown
+    public void teardown() throws Exception {
+        fixture.destroy();
+    }
+
+    /**
+     * Checks the files one at a time.
+     * @return A boolean value indicating if any file has changed.
+     * @throws Exception Something wrong happened.
+     */
+    @Benchmark
+    public boolean sequential() throws Exception {
+        boolean changed = false;
+        for (File file : files) {
+            changed = CommonUtils.hasChanged(file) || changed;
+        }
+        return changed;
+    }
+
+    /**
+     * Checks the files through the batch check.
+     * @return A boolean value indicating if any file has changed.
+     * @throws Exception Something wrong happened.
+     */
+    @Benchmark
+    public boolean batch() throws Exception {
+        return CommonUtils.hasChanged(files);
+    }
+
+}
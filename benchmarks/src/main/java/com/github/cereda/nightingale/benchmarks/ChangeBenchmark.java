@@ -0,0 +1,127 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.benchmarks;
+
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.utils.CommonUtils;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the change detection, that is, the hash calculation and the
+ * complete check against the database, for small and large files and for
+ * every hash algorithm.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChangeBenchmark {
+
+    // the file size, in bytes
+    @Param({"4096", "16777216"})
+    public int size;
+
+    // the hash algorithm
+    @Param({"crc32", "xxhash64", "sha256"})
+    public String algorithm;
+
+    // the fixture and
+    // the checked file
+    private Fixture fixture;
+    private File file;
+
+    /**
+     * Sets up the fixture and the file, which is checked once so the
+     * database already knows it.
+     * @throws Exception Something wrong happened.
+     */
+    @Setup
+    public void setup() throws Exception {
+        fixture = new Fixture();
+        ConfigurationController.
+                getInstance().
+                put("execution.database.algorithm", algorithm);
+        file = fixture.create("doc.aux", size);
+        CommonUtils.hasChanged(file);
+    }
+
+    /**
+     * Removes the fixture.
+     * @throws Exception Something wrong happened.
+     */
+    @TearDown
+    public void teardown() throws Exception {
+        fixture.destroy();
+    }
+
+    /**
+     * Calculates the file hash.
+     * @return The file hash.
+     * @throws Exception Something wrong happened.
+     */
+    @Benchmark
+    public String calculateHash() throws Exception {
+        return CommonUtils.calculateHash(file);
+    }
+
+    /**
+     * Checks if the file has changed, which is the common case of an
+     * unchanged file already present in the database.
+     * @return A boolean value indicating if the file has changed.
+     * @throws Exception Something wrong happened.
+     */
+    @Benchmark
+    public boolean hasChanged() throws Exception {
+        return CommonUtils.hasChanged(file);
+    }
+
+}
@@ -0,0 +1,134 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.benchmarks;
+
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.model.Database;
+import com.github.cereda.nightingale.utils.DatabaseUtils;
+import java.io.File;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the database persistence, both loading and saving, for a few
+ * entries and for a lot of them, in both database formats.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatabaseBenchmark {
+
+    // the number of entries
+    // in the database
+    @Param({"10", "10000"})
+    public int entries;
+
+    // the database format
+    @Param({"xml", "binary"})
+    public String format;
+
+    // the fixture and
+    // the database
+    private Fixture fixture;
+    private Database database;
+
+    /**
+     * Sets up the fixture and the database, which is saved once so there
+     * is something to load.
+     * @throws Exception Something wrong happened.
+     */
+    @Setup
+    public void setup() throws Exception {
+        fixture = new Fixture();
+        ConfigurationController.
+                getInstance().
+                put("execution.database.format", format);
+        HashMap<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < entries; i++) {
+            File file = new File(fixture.getDirectory(), "file" + i + ".tex");
+            map.put(file.getAbsolutePath(),
+                    String.format("%032x", (long) i * 2654435761L));
+        }
+        database = new Database();
+        database.setMap(map);
+        DatabaseUtils.save(database);
+    }
+
+    /**
+     * Removes the fixture.
+     * @throws Exception Something wrong happened.
+     */
+    @TearDown
+    public void teardown() throws Exception {
+        fixture.destroy();
+    }
+
+    /**
+     * Loads the database.
+     * @return The database.
+     * @throws Exception Something wrong happened.
+     */
+    @Benchmark
+    public Database load() throws Exception {
+        return DatabaseUtils.load();
+    }
+
+    /**
+     * Saves the database.
+     * @throws Exception Something wrong happened.
+     */
+    @Benchmark
+    public void save() throws Exception {
+        DatabaseUtils.save(database);
+    }
+
+}
@@ -0,0 +1,169 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.benchmarks;
+
+import com.github.cereda.nightingale.model.Directive;
+import com.github.cereda.nightingale.utils.DirectiveAssembler;
+import com.github.cereda.nightingale.utils.DirectiveUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the directive extraction and generation. The document sizes
+ * cover both a typical file and a huge one, in which directives are only a
+ * tiny fraction of the lines to be scanned.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectiveBenchmark {
+
+    /**
+     * Holds the document to be scanned, in several sizes; the lines are a
+     * separate state, so only the extraction is run for every size.
+     */
+    @State(Scope.Benchmark)
+    public static class Document {
+
+        // the number of lines
+        // in the document
+        @Param({"200", "200000"})
+        public int size;
+
+        // the document lines
+        private List<String> lines;
+
+        /**
+         * Sets up the document, with a few directives at the top and plain
+         * text everywhere else.
+         */
+        @Setup
+        public void setup() {
+            lines = new ArrayList<String>();
+            lines.add("% nightingale: pdflatex: { shell: yes }");
+            lines.add("% nightingale: bibtex");
+            lines.add("% nightingale: pdflatex: {");
+            lines.add("% nightingale: --> synctex: yes, options: [ a, b ] }");
+            lines.add("% nightingale: pdflatex if changed('toc')");
+            for (int i = lines.size(); i < size; i++) {
+                lines.add("Lorem ipsum dolor sit amet, consectetur "
+                        + "adipiscing elit, sed do eiusmod tempor.");
+            }
+        }
+
+    }
+
+    // the fixture and
+    // the assemblers
+    private Fixture fixture;
+    private DirectiveAssembler simple;
+    private DirectiveAssembler complex;
+
+    /**
+     * Sets up the fixture and the assemblers.
+     * @throws Exception Something wrong happened.
+     */
+    @Setup
+    public void setup() throws Exception {
+        fixture = new Fixture();
+        simple = new DirectiveAssembler();
+        simple.addLineNumber(1);
+        simple.appendLine("bibtex");
+        complex = new DirectiveAssembler();
+        complex.addLineNumber(1);
+        complex.appendLine("pdflatex: { shell: yes, synctex: yes, "
+                + "options: [ a, b ] } until !changed('toc')");
+    }
+
+    /**
+     * Removes the fixture.
+     * @throws Exception Something wrong happened.
+     */
+    @TearDown
+    public void teardown() throws Exception {
+        fixture.destroy();
+    }
+
+    /**
+     * Extracts the directives from the document.
+     * @param document The document.
+     * @return The list of directives.
+     * @throws Exception Something wrong happened.
+     */
+    @Benchmark
+    public List<Directive> extractDirectives(Document document)
+            throws Exception {
+        return DirectiveUtils.extractDirectives(document.lines);
+    }
+
+    /**
+     * Generates a directive without parameters nor conditional.
+     * @return The directive.
+     * @throws Exception Something wrong happened.
+     */
+    @Benchmark
+    public Directive generateSimpleDirective() throws Exception {
+        return DirectiveUtils.generateDirective(simple);
+    }
+
+    /**
+     * Generates a directive with parameters and a conditional.
+     * @return The directive.
+     * @throws Exception Something wrong happened.
+     */
+    @Benchmark
+    public Directive generateComplexDirective() throws Exception {
+        return DirectiveUtils.generateDirective(complex);
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.benchmarks;
+
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.model.Configuration;
+import com.github.cereda.nightingale.utils.CommonUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Implements the benchmark fixture. Every benchmark runs against a fresh
+ * temporary directory holding a main file, just like a regular execution,
+ * with the default configuration loaded.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+public class Fixture {
+
+    // the temporary directory
+    // and the main file
+    private final File directory;
+    private final File reference;
+
+    /**
+     * Constructor. It creates the temporary directory and the main file,
+     * loads the default configuration and sets the main file as reference.
+     * @throws Exception Something wrong happened.
+     */
+    public Fixture() throws Exception {
+        directory = Files.createTempDirectory("nightingale").toFile();
+        reference = new File(directory, "doc.tex");
+        write(reference, "% nightingale: pdflatex\n");
+        Configuration.load();
+        CommonUtils.setReference(reference);
+
+        // the interpreter sets the current file for every
+        // directive, and the file methods rely on it
+        ConfigurationController.
+                getInstance().
+                put("execution.file", reference);
+    }
+
+    /**
+     * Gets the temporary directory.
+     * @return The temporary directory.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the main file.
+     * @return The main file.
+     */
+    public File getReference() {
+        return reference;
+    }
+
+    /**
+     * Creates a file in the temporary directory with the provided size,
+     * filled with a repeating pattern.
+     * @param name The file name.
+     * @param size The file size, in bytes.
+     * @return The file.
+     * @throws IOException The file could not be written.
+     */
+    public File create(String name, int size) throws IOException {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) ('a' + (i % 26));
+        }
+        File file = new File(directory, name);
+        FileUtils.writeByteArrayToFile(file, data);
+        return file;
+    }
+
+    /**
+     * Writes the provided text to a file.
+     * @param file The file.
+     * @param text The text.
+     * @throws IOException The file could not be written.
+     */
+    public static void write(File file, String text) throws IOException {
+        FileUtils.writeStringToFile(file, text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Removes the temporary directory and everything in it.
+     * @throws IOException The directory could not be removed.
+     */
+    public void destroy() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+}
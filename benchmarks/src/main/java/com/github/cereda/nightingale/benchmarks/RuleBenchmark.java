@@ -0,0 +1,166 @@
+/**
+ * Nightingale
+ * Copyright (c) 2014, Paulo Roberto Massa Cereda 
+ * All rights reserved.
+ *
+ * Redistribution and  use in source  and binary forms, with  or without
+ * modification, are  permitted provided  that the  following conditions
+ * are met:
+ *
+ * 1. Redistributions  of source  code must  retain the  above copyright
+ * notice, this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form  must reproduce the above copyright
+ * notice, this list  of conditions and the following  disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither  the name  of the  project's author nor  the names  of its
+ * contributors may be used to  endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS  PROVIDED BY THE COPYRIGHT  HOLDERS AND CONTRIBUTORS
+ * "AS IS"  AND ANY  EXPRESS OR IMPLIED  WARRANTIES, INCLUDING,  BUT NOT
+ * LIMITED  TO, THE  IMPLIED WARRANTIES  OF MERCHANTABILITY  AND FITNESS
+ * FOR  A PARTICULAR  PURPOSE  ARE  DISCLAIMED. IN  NO  EVENT SHALL  THE
+ * COPYRIGHT HOLDER OR CONTRIBUTORS BE  LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY,  OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT  NOT LIMITED  TO, PROCUREMENT  OF SUBSTITUTE  GOODS OR  SERVICES;
+ * LOSS  OF USE,  DATA, OR  PROFITS; OR  BUSINESS INTERRUPTION)  HOWEVER
+ * CAUSED AND  ON ANY THEORY  OF LIABILITY, WHETHER IN  CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY
+ * WAY  OUT  OF  THE USE  OF  THIS  SOFTWARE,  EVEN  IF ADVISED  OF  THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.github.cereda.nightingale.benchmarks;
+
+import com.github.cereda.nightingale.controller.ConfigurationController;
+import com.github.cereda.nightingale.model.BaseRule;
+import com.github.cereda.nightingale.utils.CompilerUtils;
+import groovy.lang.Binding;
+import groovy.lang.Script;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the rule loading, as done by the interpreter for every
+ * directive: the rule is read, looked up in the script controller (or
+ * compiled, if new), instantiated and run in order to obtain its header.
+ * @author Paulo Roberto Massa Cereda
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleBenchmark {
+
+    // the rule base class, the same
+    // one used by the interpreter
+    private static final String BASE =
+            "com.github.cereda.nightingale.model.BaseRule";
+
+    // a typical rule, with the
+    // usual header and one command
+    private static final String RULE =
+            "import com.github.cereda.nightingale.model.Command\n"
+            + "rule = [\n"
+            + "    id : 'pdflatex',\n"
+            + "    name : 'PDFLaTeX',\n"
+            + "    arguments : [ 'shell', 'synctex' ],\n"
+            + "    description : 'The PDFLaTeX engine',\n"
+            + "    authors : [ 'Paulo Cereda' ],\n"
+            + "    requires : 1.0\n"
+            + "]\n"
+            + "commands = [\n"
+            + "    [\n"
+            + "        name : 'PDFLaTeX engine',\n"
+            + "        command : {\n"
+            + "            def file = basename(obtain('file'))\n"
+            + "            def shell = defined('shell') ? check(true, "
+            + "'shell', '--shell-escape', '--no-shell-escape') : ''\n"
+            + "            return new Command('pdflatex', shell, file)\n"
+            + "        },\n"
+            + "        exit : { value -> return value == 0 }\n"
+            + "    ]\n"
+            + "]\n";
+
+    // the fixture, the rule file and a counter
+    // to make every compiled script unique
+    private Fixture fixture;
+    private File rule;
+    private long counter;
+
+    /**
+     * Sets up the fixture, the rule file and the rule parameters. The class
+     * cache is disabled, so new scripts are always actually compiled.
+     * @throws Exception Something wrong happened.
+     */
+    @Setup
+    public void setup() throws Exception {
+        fixture = new Fixture();
+        ConfigurationController.
+                getInstance().
+                put("execution.cache.classes", false);
+        rule = new File(fixture.getDirectory(), "pdflatex.groovy");
+        Fixture.write(rule, RULE);
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("file", fixture.getReference());
+        BaseRule.setParameters(parameters);
+        counter = 0;
+    }
+
+    /**
+     * Removes the fixture.
+     * @throws Exception Something wrong happened.
+     */
+    @TearDown
+    public void teardown() throws Exception {
+        fixture.destroy();
+    }
+
+    /**
+     * Loads a rule which was already compiled, which is the common case
+     * for every directive but the first one referring to the rule.
+     * @return The rule header.
+     * @throws Exception Something wrong happened.
+     */
+    @Benchmark
+    public Object loadRule() throws Exception {
+        Binding binding = new Binding();
+        Class<? extends Script> script = CompilerUtils.compile(rule, BASE);
+        CompilerUtils.instantiate(script, binding).run();
+        return binding.getVariable("rule");
+    }
+
+    /**
+     * Compiles a brand new rule, which is the cost paid by the first
+     * directive referring to the rule.
+     * @return The compiled script class.
+     * @throws Exception Something wrong happened.
+     */
+    @Benchmark
+    public Class<? extends Script> compileRule() throws Exception {
+        counter++;
+        return CompilerUtils.compile(
+                RULE.concat("// ").concat(String.valueOf(counter)),
+                BASE
+        );
+    }
+
+}
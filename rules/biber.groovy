@@ -15,6 +15,8 @@ rule = [
 	"Marco Daniel",
 	"Paulo Cereda"
     ],
+    inputs : [ ".bcf", "**.bib" ],
+    outputs : [ ".bbl", ".blg" ],
     requires : 1.0
 ]
 
@@ -15,6 +15,8 @@ rule = [
 	"Marco Daniel",
 	"Paulo Cereda"
     ],
+    inputs : [ ".aux", "**.bib", "**.bst" ],
+    outputs : [ ".bbl", ".blg" ],
     requires : 1.0
 ]
 
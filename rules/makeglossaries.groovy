@@ -16,6 +16,8 @@ rule = [
 	"Nicola Talbot",
 	"Paulo Cereda"
     ],
+    inputs : [ ".aux", ".glo", ".acn", "**.ist", "**.xdy" ],
+    outputs : [ ".gls", ".glg", ".acr", ".alg" ],
     requires : 1.0
 ]
 
@@ -15,6 +15,8 @@ rule = [
 	"Marco Daniel",
 	"Paulo Cereda"
     ],
+    inputs : [ ".idx", "**.ist" ],
+    outputs : [ ".ind", ".ilg" ],
     requires : 1.0
 ]
 
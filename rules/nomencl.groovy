@@ -16,6 +16,8 @@ rule = [
 	"Nicola Talbot",
 	"Paulo Cereda"
     ],
+    inputs : [ ".nlo", "**.ist" ],
+    outputs : [ ".nls", ".ilg" ],
     requires : 1.0
 ]
 
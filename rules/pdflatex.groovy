@@ -15,6 +15,19 @@ rule = [
 	"Marco Daniel",
 	"Paulo Cereda"
     ],
+    // the engine reads way more than this; these inputs only
+    // narrow the up-to-date checks and the output cache down
+    // when the recorder file (options: [ '-recorder' ]) exists
+    inputs : [
+	".aux", ".toc", ".lof", ".lot", ".bbl", ".ind", ".gls",
+	".acr", ".nls", "**.tex", "**.sty", "**.cls", "**.png",
+	"**.jpg", "**.eps"
+    ],
+    outputs : [
+	".pdf", ".aux", ".log", ".toc", ".lof", ".lot", ".out",
+	".idx", ".glo", ".acn", ".nlo", ".bcf", ".run.xml",
+	".synctex.gz", ".fls"
+    ],
     requires : 1.0
 ]
 
@@ -50,7 +63,12 @@ commands = [
 		return new Command('pdflatex', interaction, draft, shell, synctex, options, file)
 
 	},
-        exit : { value -> return value == 0 }
+        exit : { value -> return value == 0 },
+        analyzers : [
+            rerun : "Rerun to get|rerunfilecheck Warning|Please \\(re\\)run",
+            undefined : "There were undefined (references|citations)",
+            error : "^! "
+        ]
     ]
 ]
 
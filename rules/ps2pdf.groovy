@@ -15,6 +15,11 @@ rule = [
 	"Marco Daniel",
 	"Paulo Cereda"
     ],
+    inputs : [ ".ps" ],
+    // no outputs are declared, since the 'output' argument
+    // may name any file; the written files are still found
+    // by the up-to-date checks, but parallel groups are not
+    // cut around this rule
     requires : 1.0
 ]
 
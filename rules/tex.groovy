@@ -15,6 +15,11 @@ rule = [
 	"Marco Daniel",
 	"Paulo Cereda"
     ],
+    // the engine reads way more than this; these inputs only
+    // narrow the up-to-date checks and the output cache down
+    // when the recorder file (options: [ '-recorder' ]) exists
+    inputs : [ "**.tex" ],
+    outputs : [ ".dvi", ".log" ],
     requires : 1.0
 ]
 